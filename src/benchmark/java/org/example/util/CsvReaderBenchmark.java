@@ -0,0 +1,86 @@
+package org.example.util;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Throughput of {@link CsvReader} against commons-csv on a synthetic {@code exportRecognitionsCsv} file, decoding
+ * every field the importer decodes (ids, points, sentAt, message, status).
+ * <p>
+ * Run with {@code ./gradlew csvReaderBenchmark [-Pargs=rows,rounds]} (defaults 1,000,000 and 5). The first rounds
+ * warm up the JIT; compare the last ones. Lives in the benchmark source set, so it is not part of the boot jar.
+ */
+public class CsvReaderBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        byte[] data = generate(rows);
+        System.out.printf("%d rows, %.1f MB%n", rows, data.length / 1e6);
+        for (int round = 1; round <= rounds; round++) {
+            long t0 = System.nanoTime();
+            long a = csvReader(data);
+            long t1 = System.nanoTime();
+            long b = commonsCsv(data);
+            long t2 = System.nanoTime();
+            if (a != b) throw new IllegalStateException("checksums differ: " + a + " vs " + b);
+            System.out.printf("round %d: CsvReader %6d ms (%6.1f MB/s)   commons-csv %6d ms (%6.1f MB/s)%n", round,
+                    (t1 - t0) / 1_000_000, data.length * 1e3 / (t1 - t0), (t2 - t1) / 1_000_000, data.length * 1e3 / (t2 - t1));
+        }
+    }
+
+    private static long csvReader(byte[] data) throws Exception {
+        long sum = 0;
+        try (CsvReader reader = new CsvReader(new ByteArrayInputStream(data))) {
+            reader.next(); // header
+            for (CsvRecord r; (r = reader.next()) != null; ) {
+                sum += r.getLong(0) + r.getLong(1) + r.getLong(2) + r.getInstant(3).getEpochSecond()
+                        + r.string(4).length() + r.getInt(5) + r.string(6).length();
+            }
+        }
+        return sum;
+    }
+
+    private static long commonsCsv(byte[] data) throws Exception {
+        long sum = 0;
+        CSVFormat format = CSVFormat.RFC4180.builder().setHeader().setSkipHeaderRecord(true).build();
+        try (CSVParser parser = format.parse(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            for (CSVRecord r : parser) {
+                sum += Long.parseLong(r.get(0)) + Long.parseLong(r.get(1)) + Long.parseLong(r.get(2))
+                        + Instant.parse(r.get(3)).getEpochSecond() + r.get(4).length() + Integer.parseInt(r.get(5)) + r.get(6).length();
+            }
+        }
+        return sum;
+    }
+
+    // Same columns as exportRecognitionsCsv; some messages are quoted, with commas, doubled quotes and line breaks.
+    private static byte[] generate(int rows) {
+        Random random = new Random(42);
+        String[] statuses = {"APPROVED", "PENDING", "REJECTED"};
+        String[] messages = {"Great work on the release", "\"Thanks for covering, really appreciated\"",
+                "\"Went above and beyond, as \"\"always\"\"\"", "\"Fixed the outage\nat 3am\"", "Helpful reviews"};
+        Instant base = Instant.parse("2024-01-01T00:00:00Z");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 110);
+        StringBuilder line = new StringBuilder(256);
+        out.writeBytes("recognitionTypeId,recipientId,senderId,sentAt,message,awardPoints,approvalStatus\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < rows; i++) {
+            line.setLength(0);
+            line.append(1 + random.nextInt(20)).append(',')
+                    .append(1 + random.nextInt(50_000)).append(',')
+                    .append(1 + random.nextInt(50_000)).append(',')
+                    .append(base.plusSeconds(random.nextInt(60_000_000))).append(',')
+                    .append(messages[random.nextInt(messages.length)]).append(',')
+                    .append(random.nextInt(100)).append(',')
+                    .append(statuses[random.nextInt(statuses.length)]).append('\n');
+            out.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,15 +1,24 @@
 package org.example.controller;
 
+import org.example.service.ArtifactRetentionService;
+import org.example.service.ArtifactWriteBehind;
+import org.example.service.ChartService;
+import org.example.service.CopyImportService;
 import org.example.service.DevModeService;
 import org.example.service.DataImportService;
 import org.example.service.DataExportService;
 import org.example.service.FileStorageService;
+import org.example.service.ImportJob;
+import org.example.service.ImportJobService;
+import org.example.service.ReportBatch;
+import org.example.service.ReportsService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.http.MediaType;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +39,12 @@ public class AdminController {
     private final DataImportService dataImportService;
     private final DataExportService dataExportService;
     private final FileStorageService fileStorageService;
+    private final ChartService chartService;
+    private final ArtifactWriteBehind artifactWriter;
+    private final ArtifactRetentionService artifactRetention;
+    private final ReportsService reportsService;
+    private final CopyImportService copyImportService;
+    private final ImportJobService importJobService;
 
     private static final String CSV_DIR = "artifacts/exports/csv/";
     private static final String JSON_DIR = "artifacts/exports/json/";
@@ -43,11 +58,23 @@ public class AdminController {
     public AdminController(DevModeService devModeService,
                            DataImportService dataImportService,
                            DataExportService dataExportService,
-                           FileStorageService fileStorageService) {
+                           FileStorageService fileStorageService,
+                           ChartService chartService,
+                           ArtifactWriteBehind artifactWriter,
+                           ArtifactRetentionService artifactRetention,
+                           ReportsService reportsService,
+                           CopyImportService copyImportService,
+                           ImportJobService importJobService) {
         this.devModeService = devModeService;
         this.dataImportService = dataImportService;
         this.dataExportService = dataExportService;
         this.fileStorageService = fileStorageService;
+        this.chartService = chartService;
+        this.artifactWriter = artifactWriter;
+        this.artifactRetention = artifactRetention;
+        this.reportsService = reportsService;
+        this.copyImportService = copyImportService;
+        this.importJobService = importJobService;
     }
 
     @PostMapping("/seed/run")
@@ -93,57 +120,116 @@ public class AdminController {
         ));
     }
 
-    @GetMapping(value = "/export")
-    public ResponseEntity<?> exportFile(@RequestParam("format") String format) {
+    @GetMapping("/charts/stats")
+    public ResponseEntity<?> chartStats() {
+        return ResponseEntity.ok(chartService.renderStats());
+    }
+
+    @GetMapping("/artifacts/stats")
+    public ResponseEntity<?> artifactStats() {
+        return ResponseEntity.ok(artifactWriter.stats());
+    }
+
+    @PostMapping("/artifacts/maintenance")
+    public ResponseEntity<?> runArtifactMaintenance() {
+        return ResponseEntity.ok(artifactRetention.run());
+    }
+
+    @GetMapping("/reports/batch")
+    public ResponseEntity<?> reportBatchProgress() {
+        ReportBatch batch = reportsService.lastBatch();
+        if (batch == null) return ResponseEntity.ok(Map.of("status", "NONE"));
+        return ResponseEntity.ok(batch.toMap(false));
+    }
+
+    @PostMapping("/reports/batch")
+    public ResponseEntity<?> startReportBatch(@RequestParam(value = "period", defaultValue = "daily") String period) {
+        ReportBatch batch;
         try {
-            byte[] out;
-            String contentType;
-            String ext;
-            switch (format.toLowerCase(java.util.Locale.ROOT)) {
-                case "csv":
-                    out = dataExportService.exportCombinedCsv();
-                    contentType = "text/csv";
-                    ext = "csv";
-                    break;
-                case "json":
-                    out = dataExportService.exportCombinedJson();
-                    contentType = "application/json";
-                    ext = "json";
-                    break;
-                case "toon":
-                    out = dataExportService.exportCombinedToon();
-                    contentType = "text/plain";
-                    ext = "toon";
-                    break;
-                default:
-                    return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", "Unsupported format: " + format));
+            batch = reportsService.startBatch(period);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", e.getMessage()));
+        }
+        if (batch == null) {
+            return ResponseEntity.status(409).body(Map.of("status", "ERROR", "error", "A report batch is already running"));
+        }
+        return ResponseEntity.accepted().body(batch.toMap(false));
+    }
+
+    @GetMapping(value = "/export")
+    public ResponseEntity<?> exportFile(@RequestParam("format") String format,
+                                        @RequestParam(value = "since", required = false) String since,
+                                        HttpServletResponse response) {
+        String ext = format.toLowerCase(java.util.Locale.ROOT);
+        String contentType;
+        switch (ext) {
+            case "csv" -> contentType = "text/csv";
+            case "json" -> contentType = "application/json";
+            case "toon" -> contentType = "text/plain";
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", "Unsupported format: " + format));
+            }
+        }
+        DataExportService.Since from = null;
+        if (since != null) {
+            if ("json".equals(ext)) {
+                return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", "since is supported for csv and toon"));
             }
-            String fname = "data_combined_export-" + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm")) + "." + ext;
-            return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=" + fname)
-                .header("Content-Type", contentType)
-                .body(out);
+            try {
+                from = dataExportService.parseToken(since);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", e.getMessage()));
+            }
+            if (dataExportService.expired(from)) {
+                return ResponseEntity.status(410).body(Map.of("status", "ERROR", "error", "Token is older than the tombstone retention; run a full export"));
+            }
+        }
+        String fname = (from == null ? "data_combined_export-" : "data_delta_export-")
+                + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm")) + "." + ext;
+        try {
+            // Exports are streamed from database cursors into the response as they are written; the change
+            // token for the next delta goes in a header, set before the first byte
+            response.setHeader("Content-Disposition", "attachment; filename=" + fname);
+            response.setContentType(contentType);
+            java.util.function.Consumer<String> token = t -> response.setHeader("X-Export-Token", t);
+            java.io.OutputStream os = response.getOutputStream();
+            if ("json".equals(ext)) dataExportService.exportCombinedJson(os);
+            else if (from != null && "csv".equals(ext)) dataExportService.exportDeltaCsv(os, from, token);
+            else if (from != null) dataExportService.exportDeltaToon(os, from, token);
+            else if ("csv".equals(ext)) dataExportService.exportCombinedCsv(os, token);
+            else dataExportService.exportCombinedToon(os, token);
+            os.flush();
+            return null;
         } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("status", "ERROR", "error", e.getMessage()));
+            if (response.isCommitted()) {
+                // part of the file is already sent; fail the request so the client doesn't keep a truncated export
+                log.warn("Export ({}) failed after streaming started: {}", ext, e.getMessage());
+                throw new IllegalStateException("Export failed: " + e.getMessage(), e);
+            }
+            response.reset();
+            return ResponseEntity.status(500).body(Map.of("status", "ERROR", "error", String.valueOf(e.getMessage())));
         }
     }
 
     @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> importFile(@RequestParam("file") MultipartFile file,
-                                        @RequestParam("format") String format) {
+                                        @RequestParam("format") String format,
+                                        @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun) {
         try {
             Map<String, Object> result;
-            switch (format.toLowerCase(java.util.Locale.ROOT)) {
+            String fmt = format.toLowerCase(java.util.Locale.ROOT);
+            if (dryRun && java.util.Set.of("csv", "json", "toon").contains(fmt)) {
+                return ResponseEntity.ok(Map.of("status", "OK", "result", dataImportService.validateCombined(file, fmt)));
+            }
+            switch (fmt) {
                 case "csv":
                     result = dataImportService.importCombinedCsv(file);
                     break;
                 case "json":
-                    String json = new String(file.getBytes(), java.nio.charset.StandardCharsets.UTF_8);
-                    result = dataImportService.importCombinedJson(json);
+                    result = dataImportService.importCombinedJson(file);
                     break;
                 case "toon":
-                    String toon = new String(file.getBytes(), java.nio.charset.StandardCharsets.UTF_8);
-                    result = dataImportService.importCombinedToon(toon);
+                    result = dataImportService.importCombinedToon(file);
                     break;
                 default:
                     return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", "Unsupported format: " + format));
@@ -153,4 +239,66 @@ public class AdminController {
             return ResponseEntity.status(500).body(Map.of("status", "ERROR", "error", e.getMessage()));
         }
     }
+
+    @PostMapping(value = "/import/copy", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importCopy(@RequestParam("file") MultipartFile file,
+                                        @RequestParam("table") String table) {
+        try (java.io.InputStream in = file.getInputStream()) {
+            Map<String, Object> result;
+            switch (table.toLowerCase(java.util.Locale.ROOT)) {
+                case "recognitions":
+                    result = copyImportService.importRecognitionsCsv(in);
+                    break;
+                case "employees":
+                    result = copyImportService.importEmployeesCsv(in);
+                    break;
+                default:
+                    return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", "Unsupported table: " + table));
+            }
+            return ResponseEntity.ok(Map.of("status", "OK", "result", result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("COPY import of {} failed", table, e);
+            return ResponseEntity.status(500).body(Map.of("status", "ERROR", "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @PostMapping(value = "/import/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> startImportJob(@RequestParam("file") MultipartFile file,
+                                            @RequestParam("format") String format) {
+        try {
+            ImportJob job = importJobService.start(file, format);
+            return ResponseEntity.accepted().body(job.toMap());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("status", "ERROR", "error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Could not start import job", e);
+            return ResponseEntity.status(500).body(Map.of("status", "ERROR", "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/import/jobs")
+    public ResponseEntity<?> listImportJobs() {
+        java.util.List<Map<String, Object>> jobs = new java.util.ArrayList<>();
+        for (ImportJob j : importJobService.list()) jobs.add(j.toMap());
+        return ResponseEntity.ok(jobs);
+    }
+
+    @GetMapping("/import/jobs/{id}")
+    public ResponseEntity<?> getImportJob(@PathVariable String id) {
+        ImportJob job = importJobService.get(id);
+        if (job == null) return ResponseEntity.status(404).body(Map.of("status", "ERROR", "error", "Unknown import job: " + id));
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    @DeleteMapping("/import/jobs/{id}")
+    public ResponseEntity<?> cancelImportJob(@PathVariable String id) {
+        ImportJob job = importJobService.get(id);
+        if (job == null) return ResponseEntity.status(404).body(Map.of("status", "ERROR", "error", "Unknown import job: " + id));
+        if (!importJobService.cancel(job)) {
+            return ResponseEntity.status(409).body(Map.of("status", "ERROR", "error", "Import job already finished"));
+        }
+        return ResponseEntity.accepted().body(job.toMap());
+    }
 }
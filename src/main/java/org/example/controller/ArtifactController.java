@@ -0,0 +1,222 @@
+package org.example.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.service.ArtifactIndex;
+import org.example.service.FileStorageService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Serves stored reports, exports and graphs straight from disk, never loading a whole file into memory. With Tomcat's
+ * sendfile (when the connector supports it) the kernel copies the file to the socket. Otherwise FileChannel.transferTo
+ * writes into the servlet output stream, which copies the bytes through small heap buffers. Supports a single byte
+ * Range (with If-Range), ETag/Last-Modified and conditional GETs.
+ */
+@RestController
+@RequestMapping("/artifacts")
+public class ArtifactController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileStorageService fileStorageService;
+
+    public ArtifactController(FileStorageService fileStorageService) {
+        this.fileStorageService = fileStorageService;
+    }
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public List<Map<String, Object>> list(@RequestParam(required = false) String category,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        ArtifactIndex index = fileStorageService.getIndex();
+        List<ArtifactIndex.Entry> entries = new ArrayList<>();
+        for (String c : ArtifactIndex.CATEGORIES.keySet()) {
+            if (category == null || category.equalsIgnoreCase(c)) entries.addAll(index.inCategory(c));
+        }
+        entries.sort(Comparator.comparingLong((ArtifactIndex.Entry e) -> e.createdMillis).reversed());
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (ArtifactIndex.Entry e : entries.subList(0, Math.min(Math.max(limit, 0), entries.size()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("path", e.path);
+            row.put("category", e.category);
+            row.put("size", e.size);
+            row.put("createdAt", java.time.Instant.ofEpochMilli(e.createdMillis).toString());
+            out.add(row);
+        }
+        return out;
+    }
+
+    @RequestMapping(value = "/download", method = {RequestMethod.GET, RequestMethod.HEAD})
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public void download(@RequestParam String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path base = fileStorageService.getBase();
+        Path file = base.resolve(path).normalize();
+        String rel = file.startsWith(base) ? fileStorageService.getIndex().relative(file) : null;
+        if (rel == null || ArtifactIndex.categoryOf(rel) == null || file.getFileName().toString().startsWith(".")
+                || !Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Artifact not found");
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis() / 1000 * 1000; // HTTP dates have second precision
+        ArtifactIndex.Entry entry = fileStorageService.getIndex().get(rel);
+        // Content-addressed entries have a strong validator for free; others fall back to size + mtime
+        String etag = entry != null && entry.sha256 != null ? "\"" + entry.sha256 + "\"" : "W/\"" + length + "-" + lastModified + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=0, must-revalidate");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null ? matches(ifNoneMatch, etag, true) : notModifiedSince(request, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeHolds(request, etag, lastModified)) {
+            long[] r = parseRange(range, length);
+            if (r == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (r.length == 2) {
+                start = r[0];
+                end = r[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentType(contentType(file.getFileName().toString()));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+        response.setContentLengthLong(Math.max(count, 0));
+        fileStorageService.getIndex().recordAccess(file);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream os = response.getOutputStream();
+            WritableByteChannel out = Channels.newChannel(os);
+            long pos = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long n = in.transferTo(pos, remaining, out);
+                if (n <= 0) break;
+                pos += n;
+                remaining -= n;
+            }
+            os.flush();
+        }
+    }
+
+    /**
+     * Single range as {start, end}; an empty array means "ignore, send everything" (multiple or malformed ranges);
+     * null means unsatisfiable.
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return new long[0];
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return new long[0];
+        try {
+            String a = spec.substring(0, dash).trim();
+            String b = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (a.isEmpty()) {
+                if (b.isEmpty()) return new long[0];
+                long suffix = Long.parseLong(b);
+                if (suffix == 0) return null;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(a);
+                end = b.isEmpty() ? length - 1 : Math.min(Long.parseLong(b), length - 1);
+                if (end < start && !b.isEmpty()) return new long[0];
+            }
+            if (start >= length) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static boolean ifRangeHolds(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return !etag.startsWith("W/") && ifRange.trim().equals(etag);
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean notModifiedSince(HttpServletRequest request, long lastModified) {
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return since != -1 && lastModified <= since;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // If-None-Match uses weak comparison
+    private static boolean matches(String header, String etag, boolean weak) {
+        String tag = weak && etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : header.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (weak && c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(tag)) return true;
+        }
+        return false;
+    }
+
+    private static String contentType(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        if (n.endsWith(".gz")) return "application/gzip";
+        if (n.endsWith(".png")) return "image/png";
+        if (n.endsWith(".svg")) return "image/svg+xml";
+        if (n.endsWith(".csv")) return "text/csv";
+        if (n.endsWith(".json")) return "application/json";
+        if (n.endsWith(".pdf")) return "application/pdf";
+        if (n.endsWith(".toon") || n.endsWith(".txt")) return "text/plain; charset=UTF-8";
+        return "application/octet-stream";
+    }
+}
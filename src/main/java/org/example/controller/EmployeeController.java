@@ -5,6 +5,7 @@ import org.example.dto.EmployeeResponse;
 import org.example.dto.EmployeeUpdateRequest;
 import org.example.model.Employee;
 import org.example.repository.EmployeeRepository;
+import org.example.service.OrgHierarchyService;
 import org.example.util.EntityMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,9 +24,11 @@ import org.springframework.security.core.Authentication;
 public class EmployeeController {
 
     private final EmployeeRepository employeeRepository;
+    private final OrgHierarchyService orgHierarchyService;
 
-    public EmployeeController(EmployeeRepository employeeRepository) {
+    public EmployeeController(EmployeeRepository employeeRepository, OrgHierarchyService orgHierarchyService) {
         this.employeeRepository = employeeRepository;
+        this.orgHierarchyService = orgHierarchyService;
     }
 
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
@@ -39,7 +42,7 @@ public class EmployeeController {
         e.setEmail(req.email);
         if (req.joiningDate != null) e.setJoiningDate(java.time.LocalDate.parse(req.joiningDate));
         e.setRole(req.role == null ? "employee" : req.role);
-        Employee saved = employeeRepository.save(e);
+        Employee saved = orgHierarchyService.createEmployee(e);
         return ResponseEntity.status(201).body(EntityMapper.toEmployeeResponse(saved));
     }
 
@@ -103,6 +106,11 @@ public class EmployeeController {
         else if (uuid != null) opt = employeeRepository.findByUuid(uuid);
         if (opt.isEmpty()) return ResponseEntity.notFound().build();
         Employee e = opt.get();
+        Long previousManagerId = e.getManagerId();
+        if (req.managerId != null && orgHierarchyService.wouldCreateCycle(e.getId(), req.managerId)) {
+            // The new manager sits inside this employee's own subtree
+            return ResponseEntity.badRequest().build();
+        }
         if (req.firstName != null) e.setFirstName(req.firstName);
         if (req.lastName != null) e.setLastName(req.lastName);
         if (req.unitId != null) e.setUnitId(req.unitId);
@@ -110,7 +118,7 @@ public class EmployeeController {
         if (req.email != null) e.setEmail(req.email);
         if (req.joiningDate != null) e.setJoiningDate(java.time.LocalDate.parse(req.joiningDate));
         if (req.role != null) e.setRole(req.role);
-        Employee saved = employeeRepository.save(e);
+        Employee saved = orgHierarchyService.updateEmployee(e, previousManagerId);
         return ResponseEntity.ok(EntityMapper.toEmployeeResponse(saved));
     }
 
@@ -121,7 +129,7 @@ public class EmployeeController {
         if (id != null) opt = employeeRepository.findById(id);
         else if (uuid != null) opt = employeeRepository.findByUuid(uuid);
         if (opt.isEmpty()) return ResponseEntity.notFound().build();
-        employeeRepository.deleteById(opt.get().getId());
+        orgHierarchyService.deleteEmployee(opt.get());
         return ResponseEntity.noContent().build();
     }
 
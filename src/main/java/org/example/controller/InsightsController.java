@@ -1,12 +1,20 @@
 package org.example.controller;
 
+import org.example.dto.RecognitionGraphFilter;
+import org.example.dto.SeriesTable;
+import org.example.repository.RecognitionRepository;
 import org.example.service.ChartService;
-import org.example.service.FileStorageService;
+import org.example.service.ArtifactWriteBehind;
+import org.example.service.OrgHierarchyService;
+import org.example.service.OrgTreeIndex;
+import org.example.service.RecognitionAggregationService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 
@@ -19,11 +27,21 @@ import java.util.UUID;
 public class InsightsController {
 
     private final ChartService chartService;
-    private final FileStorageService fileStorageService;
+    private final ArtifactWriteBehind artifactWriter;
+    private final RecognitionRepository recognitionRepository;
+    private final OrgHierarchyService orgHierarchyService;
+    private final RecognitionAggregationService aggregationService;
 
-    public InsightsController(ChartService chartService, FileStorageService fileStorageService) {
+    public InsightsController(ChartService chartService,
+                              ArtifactWriteBehind artifactWriter,
+                              RecognitionRepository recognitionRepository,
+                              OrgHierarchyService orgHierarchyService,
+                              RecognitionAggregationService aggregationService) {
         this.chartService = chartService;
-        this.fileStorageService = fileStorageService;
+        this.artifactWriter = artifactWriter;
+        this.recognitionRepository = recognitionRepository;
+        this.orgHierarchyService = orgHierarchyService;
+        this.aggregationService = aggregationService;
     }
 
     // Helper method for 'all' check
@@ -58,7 +76,7 @@ public class InsightsController {
         return result;
     }
 
-    @GetMapping(value = "/graph.png", produces = MediaType.IMAGE_PNG_VALUE)
+    @GetMapping(value = "/graph.png", produces = {MediaType.IMAGE_PNG_VALUE, ChartService.IMAGE_SVG_VALUE})
     public ResponseEntity<byte[]> globalGraph(
             @RequestParam(required = false) Long id,
             @RequestParam(required = false) UUID uuid,
@@ -73,21 +91,57 @@ public class InsightsController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String type,
             @RequestParam(required = false) String timeframe, // days, weeks, months, years
-            @RequestParam(required = false) Integer iterations // e.g. 10 weeks
+            @RequestParam(required = false) Integer iterations, // e.g. 10 weeks
+            @RequestParam(required = false) String format, // png (default) or svg
+            @RequestParam(required = false) String breakdown, // status, type or role: one series each
+            @RequestParam(required = false, defaultValue = "true") boolean stacked,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
     ) throws Exception {
-        // 1. Query recognitions (simulate with empty data for now)
-        java.util.Map<String, Integer> timeSeries = new java.util.LinkedHashMap<>();
-        // TODO: Replace with real DB query and aggregation logic
-        // Example: timeSeries.put("2025-11-01", 5); timeSeries.put("2025-11-08", 8);
+        // 1. Bucketed counts aggregated in the database (daily rollup when the filters allow)
+        RecognitionGraphFilter filter = new RecognitionGraphFilter();
+        filter.id = id;
+        filter.uuid = uuid;
+        filter.name = name;
+        filter.unitId = unitId;
+        filter.role = role;
+        filter.sender = sender;
+        filter.receiver = receiver;
+        filter.manager = manager;
+        filter.category = category;
+        filter.points = points;
+        filter.status = status;
+        filter.type = type;
+        filter.timeframe = timeframe;
+        filter.iterations = iterations;
         // 2. Generate chart
-        String title = "Recognitions";
         String xLabel = timeframe == null ? "date" : timeframe;
         String yLabel = "count";
-        byte[] png = chartService.renderTimeSeriesChart(timeSeries, title, xLabel, yLabel);
-        // 3. Store the file
-        String fname = "recognition_graph-" + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm")) + ".png";
-        fileStorageService.storeGraph(fname, png);
-        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(png);
+        boolean svg = ChartService.wantsSvg(format, accept);
+        byte[] body;
+        if (breakdown != null && !breakdown.isBlank()) {
+            String dim = RecognitionAggregationService.dimensionOf(breakdown);
+            SeriesTable table = aggregationService.seriesBy(filter, dim);
+            String title = "Recognitions by " + dim;
+            body = svg ? chartService.renderSeriesSvg(table, stacked, title, xLabel, yLabel)
+                    : chartService.renderSeriesChart(table, stacked, "insights/graph" + filter.identity() + dim, title, xLabel, yLabel);
+        } else {
+            java.util.Map<String, Integer> timeSeries = aggregationService.timeSeries(filter);
+            String title = "Recognitions";
+            body = svg ? chartService.renderTimeSeriesSvg(timeSeries, title, xLabel, yLabel)
+                    : chartService.renderTimeSeriesChart(timeSeries, "insights/graph" + filter.identity(), title, xLabel, yLabel);
+        }
+        // 3. Store the file (written behind; the response doesn't wait for the disk)
+        String fname = "recognition_graph-" + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm")) + (svg ? ".svg" : ".png");
+        artifactWriter.storeGraph(fname, body);
+        return chartResponse(body, svg);
+    }
+
+    // Daily buckets over the last `days` days (30 by default)
+    private RecognitionGraphFilter dailyWindow(Long days) {
+        RecognitionGraphFilter filter = new RecognitionGraphFilter();
+        filter.timeframe = "days";
+        filter.iterations = (days == null || days <= 0) ? 30 : (int) Math.min(days, RecognitionAggregationService.MAX_ITERATIONS);
+        return filter;
     }
 
     @GetMapping("/employee/{employeeId}")
@@ -105,20 +159,67 @@ public class InsightsController {
         return java.util.Collections.emptyMap();
     }
 
-    @GetMapping(value = "/role/graph.png", produces = MediaType.IMAGE_PNG_VALUE)
-    public ResponseEntity<byte[]> graphByRole(@RequestParam String role, @RequestParam(required = false) Long days) throws Exception {
-        byte[] png = new byte[0];
-        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(png);
+    @GetMapping(value = "/role/graph.png", produces = {MediaType.IMAGE_PNG_VALUE, ChartService.IMAGE_SVG_VALUE})
+    public ResponseEntity<byte[]> graphByRole(@RequestParam String role, @RequestParam(required = false) Long days,
+                                              @RequestParam(required = false) String format,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws Exception {
+        RecognitionGraphFilter filter = dailyWindow(days);
+        filter.role = role;
+        return renderChart(filter, "Recognitions - " + role, format, accept);
     }
 
     @GetMapping("/manager/{managerId}")
     public Map<String, Object> insightsByManager(@PathVariable Long managerId, @RequestParam(required = false) Long days) {
-        return java.util.Collections.emptyMap();
+        Instant to = Instant.now();
+        Instant from = (days == null) ? Instant.EPOCH : to.minus(days, java.time.temporal.ChronoUnit.DAYS);
+        OrgTreeIndex org = orgHierarchyService.index();
+        // Aggregates cover the manager's whole reporting subtree via employee_closure, not only direct reports
+        Object[] received = firstRow(recognitionRepository.subtreeReceivedSummary(managerId, from, to));
+        Object[] sent = firstRow(recognitionRepository.subtreeSentSummary(managerId, from, to));
+        Map<String, Long> statuses = new java.util.LinkedHashMap<>();
+        for (Object[] row : recognitionRepository.subtreeStatusCounts(managerId, from, to)) {
+            statuses.put(row[0] == null ? "UNKNOWN" : row[0].toString(), ((Number) row[1]).longValue());
+        }
+        Map<String, Object> result = new java.util.LinkedHashMap<>();
+        result.put("managerId", managerId);
+        result.put("window", Map.of("from", from.toString(), "to", to.toString()));
+        result.put("teamSize", org.subtreeSize(managerId));
+        result.put("depth", org.depthOf(managerId));
+        result.put("received", Map.of("count", num(received[0]), "points", num(received[1]), "recipients", num(received[2])));
+        result.put("sent", Map.of("count", num(sent[0]), "points", num(sent[1]), "senders", num(sent[2])));
+        result.put("statuses", statuses);
+        return result;
+    }
+
+    private static Object[] firstRow(java.util.List<Object[]> rows) {
+        return rows == null || rows.isEmpty() ? new Object[]{0L, 0L, 0L} : rows.get(0);
+    }
+
+    private static long num(Object o) {
+        return o == null ? 0L : ((Number) o).longValue();
+    }
+
+    @GetMapping(value = "/manager/{managerId}/graph.png", produces = {MediaType.IMAGE_PNG_VALUE, ChartService.IMAGE_SVG_VALUE})
+    public ResponseEntity<byte[]> graphByManager(@PathVariable Long managerId, @RequestParam(required = false) Long days,
+                                                 @RequestParam(required = false) String format,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws Exception {
+        RecognitionGraphFilter filter = dailyWindow(days);
+        filter.managerId = managerId;
+        return renderChart(filter, "Recognitions - manager " + managerId, format, accept);
+    }
+
+    private ResponseEntity<byte[]> renderChart(RecognitionGraphFilter filter, String title, String format, String accept) throws Exception {
+        Map<String, Integer> series = aggregationService.timeSeries(filter);
+        boolean svg = ChartService.wantsSvg(format, accept);
+        byte[] body = svg ? chartService.renderTimeSeriesSvg(series, title, "date", "count")
+                : chartService.renderTimeSeriesChart(series, "insights" + filter.identity(), title, "date", "count");
+        return chartResponse(body, svg);
     }
 
-    @GetMapping(value = "/manager/{managerId}/graph.png", produces = MediaType.IMAGE_PNG_VALUE)
-    public ResponseEntity<byte[]> graphByManager(@PathVariable Long managerId, @RequestParam(required = false) Long days) throws Exception {
-        byte[] png = new byte[0];
-        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(png);
+    private static ResponseEntity<byte[]> chartResponse(byte[] body, boolean svg) {
+        return ResponseEntity.ok()
+                .contentType(svg ? MediaType.parseMediaType(ChartService.IMAGE_SVG_VALUE) : MediaType.IMAGE_PNG)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(body);
     }
 }
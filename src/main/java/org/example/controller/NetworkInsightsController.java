@@ -0,0 +1,61 @@
+package org.example.controller;
+
+import org.example.service.RecognitionGraph;
+import org.example.service.RecognitionNetworkService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/insights/network")
+public class NetworkInsightsController {
+
+    private static final int MAX_TOP = 500;
+
+    private final RecognitionNetworkService networkService;
+
+    public NetworkInsightsController(RecognitionNetworkService networkService) {
+        this.networkService = networkService;
+    }
+
+    @GetMapping
+    public Map<String, Object> summary(@RequestParam(defaultValue = "10") int top) {
+        return networkService.summary(clamp(top));
+    }
+
+    @GetMapping("/reciprocity")
+    public Map<String, Object> reciprocity() {
+        return networkService.reciprocity(networkService.graph());
+    }
+
+    @GetMapping("/bridges")
+    public Map<String, Object> bridges(@RequestParam(defaultValue = "10") int top) {
+        return networkService.bridges(networkService.graph(), clamp(top));
+    }
+
+    @GetMapping("/isolated")
+    public Map<String, Object> isolated(@RequestParam(defaultValue = "100") int limit) {
+        return networkService.isolated(networkService.graph(), clamp(limit));
+    }
+
+    @GetMapping("/influence")
+    public Map<String, Object> influence(@RequestParam(defaultValue = "10") int top) {
+        return networkService.influence(networkService.graph(), clamp(top));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild() {
+        RecognitionGraph g = networkService.rebuild();
+        return networkService.stats(g);
+    }
+
+    private static int clamp(int n) {
+        return Math.max(1, Math.min(n, MAX_TOP));
+    }
+}
@@ -4,13 +4,17 @@ import org.example.dto.RecognitionResponse;
 import org.example.dto.RecognitionCreateRequest;
 import org.example.model.Recognition;
 import org.example.model.Employee;
+import org.example.model.ReviewFlag;
 import org.example.repository.EmployeeRepository;
 import org.example.repository.RecognitionRepository;
 import org.example.repository.RecognitionTypeRepository;
+import org.example.repository.ReviewFlagRepository;
 import org.example.service.RecognitionCsvExporter;
 import org.example.service.RecognitionToonExporter;
 import org.example.service.ChartService;
-import org.example.service.FileStorageService;
+import org.example.service.ArtifactWriteBehind;
+import org.example.service.OrgHierarchyService;
+import org.example.service.RecognitionFraudDetector;
 import org.example.util.EntityMapper;
 import org.example.dto.RecognitionChartDTO;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +24,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -45,10 +50,11 @@ public class RecognitionController {
     private final RecognitionCsvExporter csvExporter;
     private final RecognitionToonExporter toonExporter;
     private final ChartService chartService;
-    private final FileStorageService fileStorageService;
+    private final ArtifactWriteBehind artifactWriter;
+    private final OrgHierarchyService orgHierarchyService;
+    private final RecognitionFraudDetector fraudDetector;
+    private final ReviewFlagRepository reviewFlagRepository;
 
-    private static final String CSV_DIR = "artifacts/exports/csv/";
-    private static final String JSON_DIR = "artifacts/exports/json/";
     private static final String GRAPHS_DIR = "artifacts/graphs/";
     private static String timestampedName(String base, String ext) {
         DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm");
@@ -62,14 +68,20 @@ public class RecognitionController {
                                  RecognitionCsvExporter csvExporter,
                                  RecognitionToonExporter toonExporter,
                                  ChartService chartService,
-                                 FileStorageService fileStorageService) {
+                                 ArtifactWriteBehind artifactWriter,
+                                 OrgHierarchyService orgHierarchyService,
+                                 RecognitionFraudDetector fraudDetector,
+                                 ReviewFlagRepository reviewFlagRepository) {
         this.recognitionRepository = recognitionRepository;
         this.recognitionTypeRepository = recognitionTypeRepository;
         this.employeeRepository = employeeRepository;
         this.csvExporter = csvExporter;
         this.toonExporter = toonExporter;
         this.chartService = chartService;
-        this.fileStorageService = fileStorageService;
+        this.artifactWriter = artifactWriter;
+        this.orgHierarchyService = orgHierarchyService;
+        this.fraudDetector = fraudDetector;
+        this.reviewFlagRepository = reviewFlagRepository;
     }
 
     // --- CRUD ---
@@ -99,6 +111,10 @@ public class RecognitionController {
             if (req.sentAt != null) r.setSentAt(Instant.parse(req.sentAt));
             r.setApprovalStatus("PENDING"); // always uppercase
             Recognition saved = recognitionRepository.save(r);
+            fraudDetector.submit(saved.getId(),
+                    saved.getSender() != null ? saved.getSender().getId() : null,
+                    saved.getRecipient() != null ? saved.getRecipient().getId() : null,
+                    saved.getAwardPoints());
             Recognition reloaded = recognitionRepository.findByIdWithRelations(saved.getId()).orElse(saved);
             return ResponseEntity.status(201).body(EntityMapper.toRecognitionResponse(reloaded));
         } catch (Exception e) {
@@ -123,7 +139,8 @@ public class RecognitionController {
             pageResult = new org.springframework.data.domain.PageImpl<>(all, p, all.size());
         } else if (role.equals("ROLE_TEAMLEAD")) {
             Long managerId = employeeRepository.findByEmail(email).map(Employee::getId).orElse(-1L);
-            all = all.stream().filter(r -> r.getRecipient() != null && managerId.equals(r.getRecipient().getManagerId())).toList();
+            // Whole reporting subtree, not just direct reports
+            all = all.stream().filter(r -> orgHierarchyService.isUnder(managerId, r.getRecipientId())).toList();
             pageResult = new org.springframework.data.domain.PageImpl<>(all, p, all.size());
         } else if (role.equals("ROLE_MANAGER")) {
             Long unitId = employeeRepository.findByEmail(email).map(Employee::getUnitId).orElse(-1L);
@@ -251,6 +268,39 @@ public class RecognitionController {
         return ResponseEntity.ok(EntityMapper.toRecognitionResponse(reloaded));
     }
 
+    // --- Review queue (recognitions flagged by the fraud detector) ---
+    @GetMapping("/review-queue")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'TEAMLEAD')")
+    public Page<ReviewFlag> reviewQueue(@RequestParam(defaultValue = "OPEN") String status,
+                                        @RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "20") int size) {
+        Pageable p = PageRequest.of(page, size);
+        if (status.equalsIgnoreCase("all")) return reviewFlagRepository.findAllByOrderByCreatedAtDesc(p);
+        return reviewFlagRepository.findAllByStatusOrderByCreatedAtDesc(status.toUpperCase(), p);
+    }
+
+    @PatchMapping("/review-queue/resolve")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'TEAMLEAD')")
+    public ResponseEntity<?> resolveFlag(@RequestParam Long id, @RequestParam String status, Authentication authentication) {
+        String s = status.toUpperCase();
+        if (!s.equals("CONFIRMED") && !s.equals("DISMISSED") && !s.equals("OPEN")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "status must be CONFIRMED, DISMISSED or OPEN"));
+        }
+        Optional<ReviewFlag> opt = reviewFlagRepository.findById(id);
+        if (opt.isEmpty()) return ResponseEntity.notFound().build();
+        ReviewFlag f = opt.get();
+        f.setStatus(s);
+        f.setResolvedBy(s.equals("OPEN") ? null : authentication.getName());
+        f.setResolvedAt(s.equals("OPEN") ? null : Instant.now());
+        return ResponseEntity.ok(reviewFlagRepository.save(f));
+    }
+
+    @GetMapping("/review-queue/stats")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'TEAMLEAD')")
+    public Map<String, Object> reviewQueueStats() {
+        return fraudDetector.stats();
+    }
+
     // --- Search ---
     @GetMapping("/search")
     public Page<RecognitionResponse> search(@RequestParam(required = false) Long id,
@@ -331,8 +381,7 @@ public class RecognitionController {
         String fname = timestampedName("recognitions_export", "csv");
         try {
             bytes = csvExporter.export(list);
-            Files.createDirectories(Paths.get(CSV_DIR));
-            Files.write(Paths.get(CSV_DIR, fname), bytes);
+            artifactWriter.storeExportCsv(fname, bytes);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(("CSV export failed: " + e.getMessage()).getBytes());
         }
@@ -381,10 +430,9 @@ public class RecognitionController {
         List<RecognitionResponse> resp = list.stream().map(EntityMapper::toRecognitionResponse).collect(Collectors.toList());
         // Store JSON in json folder
         try {
-            Files.createDirectories(Paths.get(JSON_DIR));
             String fname = timestampedName("recognitions_export", "json");
             String json = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(resp);
-            Files.write(Paths.get(JSON_DIR, fname), json.getBytes());
+            artifactWriter.storeExportJson(fname, json.getBytes());
         } catch (Exception e) {
             // Log or ignore
         }
@@ -434,8 +482,7 @@ public class RecognitionController {
         String fname = timestampedName("recognitions_export", "toon");
         try {
             bytes = toonExporter.export(list);
-            Files.createDirectories(Paths.get("artifacts/exports/toon/"));
-            Files.write(Paths.get("artifacts/exports/toon/", fname), bytes);
+            artifactWriter.storeExportToon(fname, bytes);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(("TOON export failed: " + e.getMessage()).getBytes());
         }
@@ -489,7 +536,7 @@ public class RecognitionController {
 }
 
     // --- Graph ---
-    @GetMapping(value = "/graph", produces = MediaType.IMAGE_PNG_VALUE)
+    @GetMapping(value = "/graph", produces = {MediaType.IMAGE_PNG_VALUE, ChartService.IMAGE_SVG_VALUE})
     public ResponseEntity<byte[]> graph(
             @RequestParam(required = false) Long id,
             @RequestParam(required = false) UUID uuid,
@@ -505,6 +552,8 @@ public class RecognitionController {
             @RequestParam(required = false) String type,
             @RequestParam(required = false, defaultValue = "days") String groupBy,
             @RequestParam(required = false, defaultValue = "10") Integer iterations,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
             HttpServletRequest request) throws Exception {
         List<Recognition> allRecognitions = recognitionRepository.findAllWithRelations(Pageable.unpaged()).getContent();
         // Filter by params
@@ -559,10 +608,20 @@ public class RecognitionController {
         }
         String title = "Recognitions";
         String yLabel = "count";
-        byte[] png = chartService.renderTimeSeriesChart(timeSeries, title, groupBy, yLabel);
-        String fname = "recognition_graph-" + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm")) + ".png";
-        fileStorageService.storeGraph(fname, png);
-        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(png);
+        boolean svg = ChartService.wantsSvg(format, accept);
+        byte[] body = svg ? chartService.renderTimeSeriesSvg(timeSeries, title, groupBy, yLabel)
+                : chartService.renderTimeSeriesChart(timeSeries, graphIdentity(id, unitId, role, points, status, groupBy, iterations), title, groupBy, yLabel);
+        String fname = "recognition_graph-" + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy-HH.mm")) + (svg ? ".svg" : ".png");
+        artifactWriter.storeGraph(fname, body);
+        return ResponseEntity.ok()
+                .contentType(svg ? MediaType.parseMediaType(ChartService.IMAGE_SVG_VALUE) : MediaType.IMAGE_PNG)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    // Everything that selects the /graph data, so the stale-image fallback never serves another filter's chart
+    private static String graphIdentity(Long id, Long unitId, String role, Integer points, String status, String groupBy, Integer iterations) {
+        return "recognitions/graph" + java.util.Arrays.asList(id, unitId, role, points, status, groupBy.toLowerCase(), iterations);
     }
 
     // Helper method for 'all' check
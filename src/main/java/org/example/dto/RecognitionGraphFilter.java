@@ -0,0 +1,31 @@
+package org.example.dto;
+
+import java.util.UUID;
+
+/**
+ * Filters accepted by the recognition graph endpoints. Employee filters (id/uuid/name/receiver) apply to the
+ * recipient; sender/receiver/manager accept an id, an email or part of a name.
+ */
+public class RecognitionGraphFilter {
+    public Long id;
+    public UUID uuid;
+    public String name;
+    public Long unitId;
+    public String role;
+    public String sender;
+    public String receiver;
+    public String manager;
+    public Long managerId;
+    public String category;
+    public Integer points;
+    public String status;
+    public String type;
+    public String timeframe; // days, weeks, months, years
+    public Integer iterations; // number of buckets, e.g. 10 weeks
+
+    /** Every field, so two filters that select different data never share a key (chart stale-image fallback). */
+    public String identity() {
+        return java.util.Arrays.asList(id, uuid, name, unitId, role, sender, receiver, manager, managerId, category,
+                points, status, type, timeframe, iterations).toString();
+    }
+}
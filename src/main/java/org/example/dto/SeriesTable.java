@@ -0,0 +1,19 @@
+package org.example.dto;
+
+/**
+ * Several series over the same buckets, stored column-wise: {@code values[s][i]} is series {@code names[s]}
+ * at bucket {@code labels[i]}.
+ */
+public class SeriesTable {
+    public String[] labels;
+    public String[] names;
+    public int[][] values;
+
+    public SeriesTable() {}
+
+    public SeriesTable(String[] labels, String[] names, int[][] values) {
+        this.labels = labels;
+        this.names = names;
+        this.values = values;
+    }
+}
@@ -75,6 +75,12 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.PAYLOAD_TOO_LARGE, "Uploaded file exceeds maximum allowed size", "FILE_TOO_LARGE", req, extra);
     }
 
+    @ExceptionHandler(java.util.concurrent.RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(java.util.concurrent.RejectedExecutionException ex, HttpServletRequest req) {
+        ResponseEntity<Map<String, Object>> resp = build(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), "BUSY", req, null);
+        return ResponseEntity.status(resp.getStatusCode()).header("Retry-After", "2").body(resp.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGeneric(Exception ex, HttpServletRequest req) {
         // Avoid leaking internals; provide simple message. Log stack trace separately via logger.
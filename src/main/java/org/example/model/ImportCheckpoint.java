@@ -0,0 +1,72 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+
+    @Id
+    @Column(name = "job_id")
+    private String jobId;
+
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    @Column(name = "format")
+    private String format;
+
+    @Column(name = "filename")
+    private String filename;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "row_number")
+    private long rowNumber;
+
+    @Column(name = "byte_offset")
+    private long byteOffset;
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "created_at")
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "updated_at")
+    private Instant updatedAt = Instant.now();
+
+    public ImportCheckpoint() {}
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public long getRowNumber() { return rowNumber; }
+    public void setRowNumber(long rowNumber) { this.rowNumber = rowNumber; }
+
+    public long getByteOffset() { return byteOffset; }
+    public void setByteOffset(long byteOffset) { this.byteOffset = byteOffset; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -1,6 +1,7 @@
 package org.example.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.UUID;
@@ -70,6 +71,10 @@ public class Recognition {
     public void setUuid(UUID uuid) { this.uuid = uuid; }
 
     public RecognitionType getRecognitionType() { return recognitionType; }
+
+    // exported in JSON in place of the ignored association (a proxy's id is read without loading it)
+    @JsonProperty("recognitionTypeId")
+    public Long getRecognitionTypeId() { return recognitionType == null ? null : recognitionType.getId(); }
     public void setRecognitionType(RecognitionType recognitionType) { this.recognitionType = recognitionType; }
 
     public String getCategory() { return category; }
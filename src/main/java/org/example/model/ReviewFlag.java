@@ -0,0 +1,84 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "recognition_review_flag")
+public class ReviewFlag {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recognition_id")
+    private Long recognitionId;
+
+    @Column(name = "sender_id")
+    private Long senderId;
+
+    @Column(name = "recipient_id")
+    private Long recipientId;
+
+    @Column(name = "rule")
+    private String rule;
+
+    @Column(name = "detail", columnDefinition = "TEXT")
+    private String detail;
+
+    @Column(name = "window_count")
+    private Integer windowCount;
+
+    @Column(name = "window_points")
+    private Integer windowPoints;
+
+    @Column(name = "status")
+    private String status = "OPEN";
+
+    @Column(name = "resolved_by")
+    private String resolvedBy;
+
+    @Column(name = "resolved_at")
+    private Instant resolvedAt;
+
+    @Column(name = "created_at")
+    private Instant createdAt = Instant.now();
+
+    public ReviewFlag() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getRecognitionId() { return recognitionId; }
+    public void setRecognitionId(Long recognitionId) { this.recognitionId = recognitionId; }
+
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+
+    public Long getRecipientId() { return recipientId; }
+    public void setRecipientId(Long recipientId) { this.recipientId = recipientId; }
+
+    public String getRule() { return rule; }
+    public void setRule(String rule) { this.rule = rule; }
+
+    public String getDetail() { return detail; }
+    public void setDetail(String detail) { this.detail = detail; }
+
+    public Integer getWindowCount() { return windowCount; }
+    public void setWindowCount(Integer windowCount) { this.windowCount = windowCount; }
+
+    public Integer getWindowPoints() { return windowPoints; }
+    public void setWindowPoints(Integer windowPoints) { this.windowPoints = windowPoints; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getResolvedBy() { return resolvedBy; }
+    public void setResolvedBy(String resolvedBy) { this.resolvedBy = resolvedBy; }
+
+    public Instant getResolvedAt() { return resolvedAt; }
+    public void setResolvedAt(Instant resolvedAt) { this.resolvedAt = resolvedAt; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
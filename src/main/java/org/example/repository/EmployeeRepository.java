@@ -4,11 +4,17 @@ import org.example.model.Employee;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
@@ -20,4 +26,84 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     List<Employee> findAllByUuidIn(List<UUID> uuids);
     Page<Employee> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(String firstName, String lastName, Pageable pageable);
     Page<Employee> findAllByUnitId(Long unitId, Pageable pageable);
+
+    // --- Org hierarchy (employee_closure) ---
+    @Query(value = "SELECT e.id, e.manager_id FROM employee e", nativeQuery = true)
+    List<Object[]> findAllManagerLinks();
+
+    @Query(value = "SELECT e.id, e.unit_id FROM employee e ORDER BY e.id", nativeQuery = true)
+    List<Object[]> findAllUnitLinks();
+
+    // Import foreign-key checks (ImportBatchWriter)
+    @Query(value = "SELECT e.id FROM employee e", nativeQuery = true)
+    List<Long> findAllIds();
+
+    // Report scopes (ReportsService batch)
+    @Query(value = "SELECT DISTINCT e.unit_id FROM employee e WHERE e.unit_id IS NOT NULL AND e.terminated_at IS NULL ORDER BY e.unit_id", nativeQuery = true)
+    List<Long> findActiveUnitIds();
+
+    @Query(value = "SELECT DISTINCT e.manager_id FROM employee e WHERE e.manager_id IS NOT NULL AND e.terminated_at IS NULL ORDER BY e.manager_id", nativeQuery = true)
+    List<Long> findActiveManagerIds();
+
+    @Query(value = "SELECT COUNT(*) FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.depth > 0", nativeQuery = true)
+    long countSubtree(@Param("managerId") Long managerId);
+
+    @Modifying
+    @Query(value = "INSERT INTO employee_closure (ancestor_id, descendant_id, depth) SELECT c.ancestor_id, :employeeId, c.depth + 1 FROM employee_closure c WHERE c.descendant_id = :managerId UNION ALL SELECT :employeeId, :employeeId, 0 ON CONFLICT (ancestor_id, descendant_id) DO NOTHING", nativeQuery = true)
+    int insertClosureForNewEmployee(@Param("employeeId") Long employeeId, @Param("managerId") Long managerId);
+
+    // Detach the subtree rooted at :employeeId from all of its current ancestors (internal subtree paths are kept)
+    @Modifying
+    @Query(value = "DELETE FROM employee_closure WHERE descendant_id IN (SELECT descendant_id FROM employee_closure WHERE ancestor_id = :employeeId) AND ancestor_id NOT IN (SELECT descendant_id FROM employee_closure WHERE ancestor_id = :employeeId)", nativeQuery = true)
+    int detachClosureSubtree(@Param("employeeId") Long employeeId);
+
+    // Attach the subtree rooted at :employeeId below :managerId
+    @Modifying
+    @Query(value = "INSERT INTO employee_closure (ancestor_id, descendant_id, depth) SELECT sup.ancestor_id, sub.descendant_id, sup.depth + sub.depth + 1 FROM employee_closure sup CROSS JOIN employee_closure sub WHERE sup.descendant_id = :managerId AND sub.ancestor_id = :employeeId ON CONFLICT (ancestor_id, descendant_id) DO NOTHING", nativeQuery = true)
+    int attachClosureSubtree(@Param("employeeId") Long employeeId, @Param("managerId") Long managerId);
+
+    // Paths that ran through :employeeId get one level shorter once its reports move up to its manager
+    @Modifying
+    @Query(value = "UPDATE employee_closure SET depth = depth - 1 WHERE descendant_id IN (SELECT descendant_id FROM employee_closure WHERE ancestor_id = :employeeId AND depth > 0) AND ancestor_id IN (SELECT ancestor_id FROM employee_closure WHERE descendant_id = :employeeId AND depth > 0)", nativeQuery = true)
+    int collapseClosureThrough(@Param("employeeId") Long employeeId);
+
+    @Modifying
+    @Query(value = "DELETE FROM employee_closure WHERE ancestor_id = :employeeId OR descendant_id = :employeeId", nativeQuery = true)
+    int deleteClosureFor(@Param("employeeId") Long employeeId);
+
+    @Modifying
+    @Query(value = "UPDATE employee SET manager_id = :newManagerId WHERE manager_id = :employeeId", nativeQuery = true)
+    int reassignDirectReports(@Param("employeeId") Long employeeId, @Param("newManagerId") Long newManagerId);
+
+    // Paths for employees that have none yet (not even the self row), walking up their manager_id chain; existing paths are untouched
+    @Modifying
+    @Query(value = "WITH RECURSIVE up(descendant_id, ancestor_id, depth, path) AS (SELECT e.id, e.id, 0, ARRAY[e.id] FROM employee e WHERE NOT EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = e.id AND c.descendant_id = e.id) UNION ALL SELECT u.descendant_id, m.manager_id, u.depth + 1, u.path || m.manager_id FROM up u JOIN employee m ON m.id = u.ancestor_id WHERE m.manager_id IS NOT NULL AND NOT m.manager_id = ANY(u.path)) INSERT INTO employee_closure (ancestor_id, descendant_id, depth) SELECT ancestor_id, descendant_id, depth FROM up ON CONFLICT (ancestor_id, descendant_id) DO NOTHING", nativeQuery = true)
+    int insertMissingClosurePaths();
+
+    @Modifying
+    @Query(value = "DELETE FROM employee_closure", nativeQuery = true)
+    int clearClosure();
+
+    @Modifying
+    @Query(value = "WITH RECURSIVE paths(ancestor_id, descendant_id, depth, path) AS (SELECT id, id, 0, ARRAY[id] FROM employee UNION ALL SELECT p.ancestor_id, e.id, p.depth + 1, p.path || e.id FROM paths p JOIN employee e ON e.manager_id = p.descendant_id WHERE NOT e.id = ANY(p.path)) INSERT INTO employee_closure (ancestor_id, descendant_id, depth) SELECT ancestor_id, descendant_id, depth FROM paths ON CONFLICT (ancestor_id, descendant_id) DO NOTHING", nativeQuery = true)
+    int fillClosureFromManagerLinks();
+
+    // --- Export (DataExportService); a forward-only cursor, columns in exportEmployeesCsv order, ending with the uuid and id the importer upserts by ---
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT e.first_name, e.last_name, e.unit_id, e.manager_id, e.email, e.joining_date, e.role, CAST(e.uuid AS text), e.id " +
+            "FROM employee e ORDER BY e.id", nativeQuery = true)
+    Stream<Object[]> streamExportRows();
+
+    // Delta export: rows stamped since the token's xmin (V14), with the uuid and id columns the importer upserts by.
+    // Also the employees the changed rows point at (recipients, senders, managers up the chain), unchanged or not:
+    // the importer resolves exported ids through the file only, so a delta has to carry every id it references.
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "WITH RECURSIVE refs(id) AS (" +
+            "SELECT id FROM employee WHERE change_txid >= :since " +
+            "UNION SELECT recipient_id FROM recognitions WHERE change_txid >= :since " +
+            "UNION SELECT sender_id FROM recognitions WHERE change_txid >= :since AND sender_id IS NOT NULL " +
+            "UNION SELECT m.manager_id FROM employee m JOIN refs r ON m.id = r.id WHERE m.manager_id IS NOT NULL) " +
+            "SELECT e.first_name, e.last_name, e.unit_id, e.manager_id, e.email, e.joining_date, e.role, CAST(e.uuid AS text), e.id " +
+            "FROM employee e WHERE e.id IN (SELECT id FROM refs) ORDER BY e.id", nativeQuery = true)
+    Stream<Object[]> streamExportRowsChangedSince(@Param("since") long since);
 }
@@ -0,0 +1,20 @@
+package org.example.repository;
+
+import org.example.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+    Optional<ImportCheckpoint> findFirstByContentHashAndFormatAndStatusInOrderByUpdatedAtDesc(String contentHash, String format, Collection<String> statuses);
+
+    // kind, source_id, target_id
+    @Query(value = "SELECT kind, source_id, target_id FROM import_checkpoint_id_map WHERE job_id = :jobId", nativeQuery = true)
+    List<Object[]> findIdMap(@Param("jobId") String jobId);
+}
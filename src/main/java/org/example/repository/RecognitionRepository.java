@@ -4,14 +4,18 @@ import org.example.model.Recognition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface RecognitionRepository extends JpaRepository<Recognition, Long> {
@@ -63,24 +67,183 @@ public interface RecognitionRepository extends JpaRepository<Recognition, Long>
     @Query(value = "SELECT r.recipient_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to GROUP BY r.recipient_id ORDER BY cnt DESC LIMIT :limit", nativeQuery = true)
     List<Object[]> topRecipientsNative(@Param("from") Instant from, @Param("to") Instant to, @Param("limit") int limit);
 
-    @Query(value = "SELECT r.sender_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.sender_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.manager_id = :managerId)) GROUP BY r.sender_id ORDER BY cnt DESC LIMIT :limit", nativeQuery = true)
+    @Query(value = "SELECT r.sender_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.sender_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.sender_id AND c.depth > 0)) GROUP BY r.sender_id ORDER BY cnt DESC LIMIT :limit", nativeQuery = true)
     List<Object[]> topSendersNativeFiltered(@Param("from") Instant from, @Param("to") Instant to, @Param("role") String role, @Param("unitId") Long unitId, @Param("managerId") Long managerId, @Param("limit") int limit);
 
-    @Query(value = "SELECT r.recipient_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.manager_id = :managerId)) GROUP BY r.recipient_id ORDER BY cnt DESC LIMIT :limit", nativeQuery = true)
+    @Query(value = "SELECT r.recipient_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.recipient_id AND c.depth > 0)) GROUP BY r.recipient_id ORDER BY cnt DESC LIMIT :limit", nativeQuery = true)
     List<Object[]> topRecipientsNativeFiltered(@Param("from") Instant from, @Param("to") Instant to, @Param("role") String role, @Param("unitId") Long unitId, @Param("managerId") Long managerId, @Param("limit") int limit);
 
-    @Query(value = "SELECT r.sender_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.sender_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.manager_id = :managerId)) GROUP BY r.sender_id ORDER BY cnt DESC LIMIT :size OFFSET :offset", nativeQuery = true)
+    @Query(value = "SELECT r.sender_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.sender_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.sender_id AND c.depth > 0)) GROUP BY r.sender_id ORDER BY cnt DESC LIMIT :size OFFSET :offset", nativeQuery = true)
     List<Object[]> topSendersNativePaged(@Param("from") Instant from, @Param("to") Instant to, @Param("role") String role, @Param("unitId") Long unitId, @Param("managerId") Long managerId, @Param("size") int size, @Param("offset") int offset);
 
-    @Query(value = "SELECT r.recipient_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.manager_id = :managerId)) GROUP BY r.recipient_id ORDER BY cnt DESC LIMIT :size OFFSET :offset", nativeQuery = true)
+    @Query(value = "SELECT r.recipient_id AS id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.recipient_id AND c.depth > 0)) GROUP BY r.recipient_id ORDER BY cnt DESC LIMIT :size OFFSET :offset", nativeQuery = true)
     List<Object[]> topRecipientsNativePaged(@Param("from") Instant from, @Param("to") Instant to, @Param("role") String role, @Param("unitId") Long unitId, @Param("managerId") Long managerId, @Param("size") int size, @Param("offset") int offset);
 
-    @Query(value = "SELECT COUNT(DISTINCT r.sender_id) FROM recognitions r WHERE r.sender_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.manager_id = :managerId))", nativeQuery = true)
+    @Query(value = "SELECT COUNT(DISTINCT r.sender_id) FROM recognitions r WHERE r.sender_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.sender_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.sender_id AND c.depth > 0))", nativeQuery = true)
     int countTopSendersNativeFiltered(@Param("from") Instant from, @Param("to") Instant to, @Param("role") String role, @Param("unitId") Long unitId, @Param("managerId") Long managerId);
 
-    @Query(value = "SELECT COUNT(DISTINCT r.recipient_id) FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.manager_id = :managerId))", nativeQuery = true)
+    @Query(value = "SELECT COUNT(DISTINCT r.recipient_id) FROM recognitions r WHERE r.recipient_id IS NOT NULL AND r.sent_at BETWEEN :from AND :to AND (:role IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.role = :role)) AND (:unitId IS NULL OR EXISTS (SELECT 1 FROM employee e WHERE e.id = r.recipient_id AND e.unit_id = :unitId)) AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.recipient_id AND c.depth > 0))", nativeQuery = true)
     int countTopRecipientsNativeFiltered(@Param("from") Instant from, @Param("to") Instant to, @Param("role") String role, @Param("unitId") Long unitId, @Param("managerId") Long managerId);
 
     @Query("SELECT r FROM Recognition r")
     List<Recognition> findAllRecognitions();
+
+    // --- Bucketed graph aggregates (RecognitionAggregationService) ---
+    // Points are compared as COALESCE(award_points, 0), like the rollup stores them (V9), so points=0 matches the same rows on both paths
+    @Query(value = "SELECT CAST(date_trunc(:unit, r.sent_at AT TIME ZONE 'UTC') AS date) AS bucket, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts " +
+            "FROM recognitions r LEFT JOIN employee rc ON rc.id = r.recipient_id LEFT JOIN employee sd ON sd.id = r.sender_id " +
+            "WHERE r.sent_at >= :from AND r.sent_at < :to " +
+            "AND (:recipientId IS NULL OR r.recipient_id = :recipientId) " +
+            "AND (:recipientName IS NULL OR LOWER(rc.first_name || ' ' || rc.last_name) LIKE :recipientName) " +
+            "AND (:senderId IS NULL OR r.sender_id = :senderId) " +
+            "AND (:senderName IS NULL OR LOWER(sd.first_name || ' ' || sd.last_name) LIKE :senderName) " +
+            "AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.recipient_id AND c.depth > 0)) " +
+            "AND (:unitId IS NULL OR rc.unit_id = :unitId) " +
+            "AND (:role IS NULL OR LOWER(rc.role) = LOWER(:role)) " +
+            "AND (:typeId IS NULL OR r.recognition_type_id = :typeId) " +
+            "AND (:status IS NULL OR UPPER(r.approval_status) = :status) " +
+            "AND (:points IS NULL OR COALESCE(r.award_points, 0) = :points) " +
+            "AND (:category IS NULL OR LOWER(r.category) LIKE :category) " +
+            "GROUP BY 1", nativeQuery = true)
+    List<Object[]> bucketedCounts(@Param("unit") String unit, @Param("from") Instant from, @Param("to") Instant to,
+                                  @Param("recipientId") Long recipientId, @Param("recipientName") String recipientName,
+                                  @Param("senderId") Long senderId, @Param("senderName") String senderName,
+                                  @Param("managerId") Long managerId, @Param("unitId") Long unitId, @Param("role") String role,
+                                  @Param("typeId") Long typeId, @Param("status") String status, @Param("points") Integer points,
+                                  @Param("category") String category);
+
+    // d.day is cast to timestamp (not timestamptz, which would use the session time zone) so buckets are plain UTC
+    // dates like the raw-row queries above
+    @Query(value = "SELECT CAST(date_trunc(:unit, CAST(d.day AS timestamp)) AS date) AS bucket, COALESCE(SUM(d.cnt),0) AS cnt, COALESCE(SUM(d.points),0) AS pts " +
+            "FROM recognition_daily_rollup d WHERE d.day >= :fromDay AND d.day <= :toDay " +
+            "AND (:typeId IS NULL OR d.type_id = :typeId) " +
+            "AND (:status IS NULL OR d.status = :status) " +
+            "AND (:points IS NULL OR d.award_points = :points) " +
+            "GROUP BY 1", nativeQuery = true)
+    List<Object[]> bucketedCountsFromRollup(@Param("unit") String unit, @Param("fromDay") java.time.LocalDate fromDay, @Param("toDay") java.time.LocalDate toDay,
+                                            @Param("typeId") Long typeId, @Param("status") String status, @Param("points") Integer points);
+
+    // Same filters as bucketedCounts, split by one dimension (status, type or recipient role) in a single pass
+    @Query(value = "SELECT CAST(date_trunc(:unit, r.sent_at AT TIME ZONE 'UTC') AS date) AS bucket, " +
+            "CASE :dimension WHEN 'type' THEN COALESCE(rt.type_name, '(none)') WHEN 'role' THEN COALESCE(rc.role, '(none)') " +
+            "ELSE COALESCE(UPPER(r.approval_status), '(none)') END AS series, COUNT(*) AS cnt " +
+            "FROM recognitions r LEFT JOIN employee rc ON rc.id = r.recipient_id LEFT JOIN employee sd ON sd.id = r.sender_id " +
+            "LEFT JOIN recognition_type rt ON rt.id = r.recognition_type_id " +
+            "WHERE r.sent_at >= :from AND r.sent_at < :to " +
+            "AND (:recipientId IS NULL OR r.recipient_id = :recipientId) " +
+            "AND (:recipientName IS NULL OR LOWER(rc.first_name || ' ' || rc.last_name) LIKE :recipientName) " +
+            "AND (:senderId IS NULL OR r.sender_id = :senderId) " +
+            "AND (:senderName IS NULL OR LOWER(sd.first_name || ' ' || sd.last_name) LIKE :senderName) " +
+            "AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.recipient_id AND c.depth > 0)) " +
+            "AND (:unitId IS NULL OR rc.unit_id = :unitId) " +
+            "AND (:role IS NULL OR LOWER(rc.role) = LOWER(:role)) " +
+            "AND (:typeId IS NULL OR r.recognition_type_id = :typeId) " +
+            "AND (:status IS NULL OR UPPER(r.approval_status) = :status) " +
+            "AND (:points IS NULL OR COALESCE(r.award_points, 0) = :points) " +
+            "AND (:category IS NULL OR LOWER(r.category) LIKE :category) " +
+            "GROUP BY 1, 2", nativeQuery = true)
+    List<Object[]> bucketedCountsBy(@Param("dimension") String dimension, @Param("unit") String unit,
+                                    @Param("from") Instant from, @Param("to") Instant to,
+                                    @Param("recipientId") Long recipientId, @Param("recipientName") String recipientName,
+                                    @Param("senderId") Long senderId, @Param("senderName") String senderName,
+                                    @Param("managerId") Long managerId, @Param("unitId") Long unitId, @Param("role") String role,
+                                    @Param("typeId") Long typeId, @Param("status") String status, @Param("points") Integer points,
+                                    @Param("category") String category);
+
+    // Status/type splits straight from the rollup; '' and 0 are the rollup's NULL sentinels
+    @Query(value = "SELECT CAST(date_trunc(:unit, CAST(d.day AS timestamp)) AS date) AS bucket, " +
+            "CASE :dimension WHEN 'type' THEN COALESCE(rt.type_name, '(none)') ELSE COALESCE(NULLIF(d.status, ''), '(none)') END AS series, " +
+            "COALESCE(SUM(d.cnt),0) AS cnt " +
+            "FROM recognition_daily_rollup d LEFT JOIN recognition_type rt ON rt.id = NULLIF(d.type_id, 0) " +
+            "WHERE d.day >= :fromDay AND d.day <= :toDay " +
+            "AND (:typeId IS NULL OR d.type_id = :typeId) " +
+            "AND (:status IS NULL OR d.status = :status) " +
+            "AND (:points IS NULL OR d.award_points = :points) " +
+            "GROUP BY 1, 2", nativeQuery = true)
+    List<Object[]> bucketedCountsByFromRollup(@Param("dimension") String dimension, @Param("unit") String unit,
+                                              @Param("fromDay") java.time.LocalDate fromDay, @Param("toDay") java.time.LocalDate toDay,
+                                              @Param("typeId") Long typeId, @Param("status") String status, @Param("points") Integer points);
+
+    // --- Manager subtree aggregates (employee_closure) ---
+    @Query(value = "SELECT COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts, COUNT(DISTINCT r.recipient_id) AS people FROM recognitions r JOIN employee_closure c ON c.descendant_id = r.recipient_id WHERE c.ancestor_id = :managerId AND c.depth > 0 AND r.sent_at BETWEEN :from AND :to", nativeQuery = true)
+    List<Object[]> subtreeReceivedSummary(@Param("managerId") Long managerId, @Param("from") Instant from, @Param("to") Instant to);
+
+    @Query(value = "SELECT COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts, COUNT(DISTINCT r.sender_id) AS people FROM recognitions r JOIN employee_closure c ON c.descendant_id = r.sender_id WHERE c.ancestor_id = :managerId AND c.depth > 0 AND r.sent_at BETWEEN :from AND :to", nativeQuery = true)
+    List<Object[]> subtreeSentSummary(@Param("managerId") Long managerId, @Param("from") Instant from, @Param("to") Instant to);
+
+    @Query(value = "SELECT r.approval_status AS status, COUNT(*) AS cnt FROM recognitions r JOIN employee_closure c ON c.descendant_id = r.recipient_id WHERE c.ancestor_id = :managerId AND c.depth > 0 AND r.sent_at BETWEEN :from AND :to GROUP BY r.approval_status", nativeQuery = true)
+    List<Object[]> subtreeStatusCounts(@Param("managerId") Long managerId, @Param("from") Instant from, @Param("to") Instant to);
+
+    // --- Recognition network (RecognitionNetworkService); rejected recognitions are not edges ---
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "10000"))
+    @Query(value = "SELECT r.sender_id, r.recipient_id, COUNT(*) AS cnt, COALESCE(SUM(r.award_points),0) AS pts FROM recognitions r " +
+            "WHERE r.sender_id IS NOT NULL AND r.recipient_id IS NOT NULL AND r.id > :afterId AND r.id <= :uptoId " +
+            "AND (r.approval_status IS NULL OR UPPER(r.approval_status) <> 'REJECTED') GROUP BY r.sender_id, r.recipient_id", nativeQuery = true)
+    Stream<Object[]> streamNetworkEdges(@Param("afterId") long afterId, @Param("uptoId") long uptoId);
+
+    @Query(value = "SELECT COALESCE(MAX(r.id),0) FROM recognitions r", nativeQuery = true)
+    long maxRecognitionId();
+
+    // --- Export (DataExportService); columns in exportRecognitionsCsv order, the type id read from the column ---
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT r.recognition_type_id, r.recipient_id, r.sender_id, r.sent_at, r.message, r.award_points, r.approval_status, " +
+            "CAST(r.uuid AS text) FROM recognitions r ORDER BY r.id", nativeQuery = true)
+    Stream<Object[]> streamExportRows();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT r.recognition_type_id, r.recipient_id, r.sender_id, r.sent_at, r.message, r.award_points, r.approval_status, " +
+            "CAST(r.uuid AS text) FROM recognitions r WHERE r.change_txid >= :since ORDER BY r.id", nativeQuery = true)
+    Stream<Object[]> streamExportRowsChangedSince(@Param("since") long since);
+
+    // Deletes from employee, recognition_type and recognitions (V14 tombstones), oldest first
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT d.table_name, CAST(d.row_uuid AS text) FROM export_tombstone d WHERE d.deleted_txid >= :since ORDER BY d.id", nativeQuery = true)
+    Stream<Object[]> streamTombstonesSince(@Param("since") long since);
+
+    @Modifying
+    @Query(value = "DELETE FROM export_tombstone WHERE deleted_at < :before", nativeQuery = true)
+    int deleteTombstonesBefore(@Param("before") Instant before);
+
+    // --- Reports (ReportsService); one forward-only pass, columns in ReportPipeline.Row order. Unit and manager
+    // reports cover recognitions received by the unit / the manager's subtree ---
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT r.id, CAST(r.uuid AS text), r.recognition_type_id, t.type_name, r.category, r.level, " +
+            "r.recipient_id, CAST(re.uuid AS text), re.first_name || ' ' || re.last_name, re.role, " +
+            "r.sender_id, CAST(se.uuid AS text), se.first_name || ' ' || se.last_name, se.role, " +
+            "r.sent_at, r.award_points, r.approval_status, r.rejection_reason, r.message, r.created_at " +
+            "FROM recognitions r LEFT JOIN recognition_type t ON t.id = r.recognition_type_id " +
+            "LEFT JOIN employee re ON re.id = r.recipient_id LEFT JOIN employee se ON se.id = r.sender_id " +
+            "WHERE r.sent_at >= :from AND r.sent_at < :to AND (:unitId IS NULL OR re.unit_id = :unitId) " +
+            "AND (:managerId IS NULL OR EXISTS (SELECT 1 FROM employee_closure c WHERE c.ancestor_id = :managerId AND c.descendant_id = r.recipient_id AND c.depth > 0)) " +
+            "ORDER BY r.sent_at, r.id", nativeQuery = true)
+    Stream<Object[]> streamReportRows(@Param("from") Instant from, @Param("to") Instant to,
+                                      @Param("unitId") Long unitId, @Param("managerId") Long managerId);
+
+    // --- Report partials (V11); a partial is stale once a transaction at or after its snapshot_xmin touched the day ---
+    @Query(value = "SELECT CAST(txid_snapshot_xmin(txid_current_snapshot()) AS bigint)", nativeQuery = true)
+    long currentSnapshotXmin();
+
+    @Query(value = "SELECT p.day, p.snapshot_xmin, p.payload FROM report_daily_partial p " +
+            "WHERE p.scope = :scope AND p.scope_id = :scopeId AND p.day >= :fromDay AND p.day < :toDay " +
+            "AND NOT EXISTS (SELECT 1 FROM recognition_day_change d WHERE d.day = p.day AND d.changed_txid >= p.snapshot_xmin) " +
+            "AND (p.scope = 'all' OR NOT EXISTS (SELECT 1 FROM report_org_change o WHERE o.changed_txid >= p.snapshot_xmin))", nativeQuery = true)
+    List<Object[]> findFreshReportPartials(@Param("scope") String scope, @Param("scopeId") long scopeId,
+                                           @Param("fromDay") java.time.LocalDate fromDay, @Param("toDay") java.time.LocalDate toDay);
+
+    // An older snapshot never replaces a newer one
+    @Modifying
+    @Query(value = "INSERT INTO report_daily_partial (scope, scope_id, day, snapshot_xmin, row_count, payload, computed_at) " +
+            "VALUES (:scope, :scopeId, :day, :xmin, :rows, :payload, now()) ON CONFLICT (scope, scope_id, day) DO UPDATE " +
+            "SET snapshot_xmin = EXCLUDED.snapshot_xmin, row_count = EXCLUDED.row_count, payload = EXCLUDED.payload, computed_at = now() " +
+            "WHERE report_daily_partial.snapshot_xmin <= EXCLUDED.snapshot_xmin", nativeQuery = true)
+    int upsertReportPartial(@Param("scope") String scope, @Param("scopeId") long scopeId, @Param("day") java.time.LocalDate day,
+                            @Param("xmin") long xmin, @Param("rows") long rows, @Param("payload") String payload);
+
+    @Modifying
+    @Query(value = "DELETE FROM report_daily_partial WHERE day < :before", nativeQuery = true)
+    int deleteReportPartialsBefore(@Param("before") java.time.LocalDate before);
+
+    @Modifying
+    @Query(value = "DELETE FROM recognition_day_change WHERE day < :before", nativeQuery = true)
+    int deleteDayChangesBefore(@Param("before") java.time.LocalDate before);
 }
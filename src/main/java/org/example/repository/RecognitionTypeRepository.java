@@ -2,10 +2,15 @@ package org.example.repository;
 
 import org.example.model.RecognitionType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RecognitionTypeRepository extends JpaRepository<RecognitionType, Long> {
@@ -13,4 +18,17 @@ public interface RecognitionTypeRepository extends JpaRepository<RecognitionType
     List<RecognitionType> findAllByUuidIn(List<java.util.UUID> uuids);
     List<RecognitionType> findByTypeNameContainingIgnoreCase(String name);
     org.springframework.data.domain.Page<RecognitionType> findByTypeNameContainingIgnoreCase(String name, org.springframework.data.domain.Pageable pageable);
+
+    @Query(value = "SELECT t.id FROM recognition_type t", nativeQuery = true)
+    List<Long> findAllIds();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query(value = "SELECT t.type_name, CAST(t.uuid AS text), t.id FROM recognition_type t ORDER BY t.id", nativeQuery = true)
+    Stream<Object[]> streamExportRows();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    // Changed types plus the types of changed recognitions, so a delta carries every type id it references
+    @Query(value = "SELECT t.type_name, CAST(t.uuid AS text), t.id FROM recognition_type t WHERE t.change_txid >= :since " +
+            "OR t.id IN (SELECT r.recognition_type_id FROM recognitions r WHERE r.change_txid >= :since) ORDER BY t.id", nativeQuery = true)
+    Stream<Object[]> streamExportRowsChangedSince(@Param("since") long since);
 }
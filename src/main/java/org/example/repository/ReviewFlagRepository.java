@@ -0,0 +1,13 @@
+package org.example.repository;
+
+import org.example.model.ReviewFlag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReviewFlagRepository extends JpaRepository<ReviewFlag, Long> {
+    Page<ReviewFlag> findAllByStatusOrderByCreatedAtDesc(String status, Pageable pageable);
+    Page<ReviewFlag> findAllByOrderByCreatedAtDesc(Pageable pageable);
+}
@@ -0,0 +1,209 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of stored artifacts (reports, exports, graphs), keyed by path relative to the storage base.
+ * FileStorageService records every write and the download endpoint records reads, so retention can work from
+ * the index instead of walking the tree. The index is saved as a TSV snapshot next to the artifacts and
+ * rebuilt by a single walk when the snapshot is missing, when a reconcile is requested, or at startup when an
+ * artifact folder changed after the snapshot was written (e.g. the process died before its next save).
+ */
+public class ArtifactIndex {
+    private static final Logger log = LoggerFactory.getLogger(ArtifactIndex.class);
+    private static final String SNAPSHOT = ".artifact-index.tsv";
+
+    /** Top-level folders (relative to the base) that hold artifacts, by category name. */
+    public static final Map<String, String> CATEGORIES = new java.util.LinkedHashMap<>(Map.of(
+            "reports", "reports",
+            "csv", "exports/csv",
+            "json", "exports/json",
+            "toon", "exports/toon",
+            "graphs", "exports/graphs"));
+
+    public static final class Entry {
+        public final String path;
+        public final String category;
+        public volatile long size;
+        public final long createdMillis;
+        public volatile long lastAccessMillis;
+        public volatile String sha256; // null once compressed (no longer linked to a blob)
+
+        Entry(String path, String category, long size, long createdMillis, long lastAccessMillis, String sha256) {
+            this.path = path;
+            this.category = category;
+            this.size = size;
+            this.createdMillis = createdMillis;
+            this.lastAccessMillis = lastAccessMillis;
+            this.sha256 = sha256;
+        }
+    }
+
+    private final Path base;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ArtifactIndex(Path base) {
+        this.base = base;
+    }
+
+    public static String categoryOf(String relPath) {
+        for (Map.Entry<String, String> c : CATEGORIES.entrySet()) {
+            if (relPath.startsWith(c.getValue() + "/")) return c.getKey();
+        }
+        return null;
+    }
+
+    public String relative(Path p) {
+        return base.relativize(p.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    public void recordWrite(Path file, long size, String sha256) {
+        String rel = relative(file);
+        String category = categoryOf(rel);
+        if (category == null) return;
+        long now = System.currentTimeMillis();
+        entries.put(rel, new Entry(rel, category, size, now, now, sha256));
+    }
+
+    public void recordAccess(Path file) {
+        Entry e = entries.get(relative(file));
+        if (e != null) e.lastAccessMillis = System.currentTimeMillis();
+    }
+
+    public Entry get(String relPath) {
+        return entries.get(relPath);
+    }
+
+    public void remove(String relPath) {
+        entries.remove(relPath);
+    }
+
+    public void put(Entry e) {
+        entries.put(e.path, e);
+    }
+
+    public List<Entry> inCategory(String category) {
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : entries.values()) if (e.category.equals(category)) out.add(e);
+        return out;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Loads the snapshot, or walks the artifact folders once if there is none or it is behind the folders. */
+    public void load() {
+        Path snap = base.resolve(SNAPSHOT);
+        if (Files.exists(snap)) {
+            try (BufferedReader r = Files.newBufferedReader(snap, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    String[] f = line.split("\t", -1);
+                    if (f.length < 6) continue;
+                    entries.put(f[0], new Entry(f[0], f[1], Long.parseLong(f[2]), Long.parseLong(f[3]), Long.parseLong(f[4]),
+                            f[5].isEmpty() ? null : f[5]));
+                }
+                log.info("Artifact index loaded: {} entries", entries.size());
+                long savedAt = Files.getLastModifiedTime(snap).toMillis();
+                if (lastFolderChange() <= savedAt) return;
+                log.info("Artifact folders changed after the index snapshot was saved, reconciling");
+            } catch (IOException | RuntimeException e) {
+                log.warn("Artifact index snapshot unreadable, rebuilding: {}", e.getMessage());
+                entries.clear();
+            }
+        }
+        reconcile();
+    }
+
+    // Artifacts are written (moved into place) directly in the dated folders, so a folder's mtime moves with every
+    // artifact added, compressed or deleted; only the category roots and their day folders are listed, not the files
+    private long lastFolderChange() {
+        long last = 0;
+        for (String dir : CATEGORIES.values()) {
+            Path root = base.resolve(dir);
+            if (!Files.isDirectory(root)) continue;
+            try (Stream<Path> days = Files.walk(root, 1)) {
+                for (Path d : (Iterable<Path>) days.filter(Files::isDirectory)::iterator) {
+                    last = Math.max(last, Files.getLastModifiedTime(d).toMillis());
+                }
+            } catch (IOException e) {
+                log.warn("Failed to list {}: {}", root, e.getMessage());
+                return Long.MAX_VALUE; // can't tell, so reconcile
+            }
+        }
+        return last;
+    }
+
+    /** Full walk: adds files the index doesn't know and drops entries whose file is gone. */
+    public int reconcile() {
+        Map<String, Entry> seen = new java.util.HashMap<>();
+        for (String dir : CATEGORIES.values()) {
+            Path root = base.resolve(dir);
+            if (!Files.isDirectory(root)) continue;
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(Files::isRegularFile)
+                        .filter(p -> !p.getFileName().toString().startsWith("."))
+                        .forEach(p -> {
+                            String rel = relative(p);
+                            Entry known = entries.get(rel);
+                            if (known != null) {
+                                seen.put(rel, known);
+                                return;
+                            }
+                            try {
+                                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                                long created = a.creationTime().toMillis();
+                                long access = Math.max(a.lastModifiedTime().toMillis(), a.lastAccessTime().toMillis());
+                                seen.put(rel, new Entry(rel, categoryOf(rel), a.size(), created, access, null));
+                            } catch (IOException ignored) {
+                                // removed while walking
+                            }
+                        });
+            } catch (IOException e) {
+                log.warn("Failed to walk {}: {}", root, e.getMessage());
+            }
+        }
+        int before = entries.size();
+        // Writes that landed during the walk are kept
+        entries.keySet().removeIf(k -> !seen.containsKey(k) && !Files.exists(base.resolve(k)));
+        seen.forEach(entries::putIfAbsent);
+        log.info("Artifact index reconciled: {} -> {} entries", before, entries.size());
+        return entries.size();
+    }
+
+    public void save() {
+        Path snap = base.resolve(SNAPSHOT);
+        Path tmp = base.resolve(SNAPSHOT + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Entry e : entries.values()) {
+                w.write(e.path + "\t" + e.category + "\t" + e.size + "\t" + e.createdMillis + "\t" + e.lastAccessMillis
+                        + "\t" + (e.sha256 == null ? "" : e.sha256));
+                w.newLine();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write artifact index: {}", e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, snap, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to replace artifact index: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Nightly artifact maintenance driven by {@link ArtifactIndex}, per category (reports, csv, json, toon, graphs):
+ * delete files older than max-age-days, gzip files older than gzip-after-days, then evict least recently
+ * accessed files until the category is under max-bytes. A value of 0 disables that rule.
+ * Sizes are per entry, so deduplicated entries are counted once per name; the budget errs on the side of deleting.
+ * Blobs left with no entries linking to them are removed as entries go. Deletions hold the storage's retention lock,
+ * so a write never loses its blob or directory between creating and linking it.
+ */
+@Service
+public class ArtifactRetentionService {
+    private static final Logger log = LoggerFactory.getLogger(ArtifactRetentionService.class);
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long ORPHAN_GRACE_MS = TimeUnit.HOURS.toMillis(1); // blobs this new may still be linking
+
+    private final FileStorageService storage;
+    private final Environment env;
+    private final boolean enabled;
+
+    public ArtifactRetentionService(FileStorageService storage, Environment env,
+                                    @Value("${app.artifacts.retention.enabled:true}") boolean enabled) {
+        this.storage = storage;
+        this.env = env;
+        this.enabled = enabled;
+    }
+
+    record Policy(int maxAgeDays, int gzipAfterDays, long maxBytes) {}
+
+    Policy policy(String category) {
+        String p = "app.artifacts.retention." + category + ".";
+        return new Policy(env.getProperty(p + "max-age-days", Integer.class, 0),
+                env.getProperty(p + "gzip-after-days", Integer.class, 0),
+                env.getProperty(p + "max-bytes", Long.class, 0L));
+    }
+
+    @Scheduled(cron = "${app.artifacts.retention.cron:0 15 2 * * *}")
+    public void scheduledRun() {
+        if (enabled) run();
+    }
+
+    /** Full walk to pick up files written outside FileStorageService and drop orphaned blobs. */
+    @Scheduled(cron = "${app.artifacts.retention.reconcile-cron:0 45 2 * * SUN}")
+    public void scheduledReconcile() {
+        if (!enabled) return;
+        storage.getIndex().reconcile();
+        pruneOrphanBlobs();
+        storage.getIndex().save();
+    }
+
+    public synchronized Map<String, Object> run() {
+        long start = System.currentTimeMillis();
+        ArtifactIndex index = storage.getIndex();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (String category : ArtifactIndex.CATEGORIES.keySet()) {
+            Policy policy = policy(category);
+            int expired = 0, compressed = 0, evicted = 0;
+            long bytes = 0;
+            List<ArtifactIndex.Entry> entries = index.inCategory(category);
+            for (ArtifactIndex.Entry e : entries) {
+                long ageDays = (start - e.createdMillis) / DAY_MS;
+                if (policy.maxAgeDays() > 0 && ageDays >= policy.maxAgeDays()) {
+                    if (delete(e)) expired++;
+                    continue;
+                }
+                if (policy.gzipAfterDays() > 0 && ageDays >= policy.gzipAfterDays() && !e.path.endsWith(".gz")) {
+                    if (gzip(e)) compressed++;
+                }
+            }
+            if (policy.maxBytes() > 0) {
+                entries = index.inCategory(category);
+                for (ArtifactIndex.Entry e : entries) bytes += e.size;
+                entries.sort(Comparator.comparingLong(e -> e.lastAccessMillis));
+                for (ArtifactIndex.Entry e : entries) {
+                    if (bytes <= policy.maxBytes()) break;
+                    if (delete(e)) {
+                        bytes -= e.size;
+                        evicted++;
+                    }
+                }
+            } else {
+                for (ArtifactIndex.Entry e : index.inCategory(category)) bytes += e.size;
+            }
+            summary.put(category, Map.of("expired", expired, "compressed", compressed, "evicted", evicted, "bytes", bytes));
+        }
+        index.save();
+        summary.put("entries", index.size());
+        summary.put("tookMs", System.currentTimeMillis() - start);
+        log.info("Artifact retention finished: {}", summary);
+        return summary;
+    }
+
+    private boolean delete(ArtifactIndex.Entry e) {
+        Path file = storage.getBase().resolve(e.path);
+        Lock lock = storage.retentionLock();
+        lock.lock();
+        try {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                log.warn("Failed to delete artifact {}: {}", e.path, ex.getMessage());
+                return false;
+            }
+            storage.getIndex().remove(e.path);
+            releaseBlob(e.sha256);
+            deleteIfEmpty(file.getParent());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean gzip(ArtifactIndex.Entry e) {
+        Path file = storage.getBase().resolve(e.path);
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        Path tmp = file.resolveSibling("." + file.getFileName() + ".gz.tmp");
+        try {
+            try (InputStream in = Files.newInputStream(file);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                in.transferTo(out);
+            }
+            Files.move(tmp, gz, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(file);
+            long size = Files.size(gz);
+            ArtifactIndex index = storage.getIndex();
+            index.remove(e.path);
+            index.put(new ArtifactIndex.Entry(storage.getIndex().relative(gz), e.category, size, e.createdMillis, e.lastAccessMillis, null));
+            Lock lock = storage.retentionLock();
+            lock.lock();
+            try {
+                releaseBlob(e.sha256);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        } catch (IOException ex) {
+            log.warn("Failed to compress artifact {}: {}", e.path, ex.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // best effort
+            }
+            return false;
+        }
+    }
+
+    // The blob's only remaining link is its own name once no entry points at it; callers hold the retention lock
+    private void releaseBlob(String sha256) {
+        if (sha256 == null) return;
+        Path blob = storage.blobPath(sha256);
+        try {
+            if (Files.exists(blob) && linkCount(blob) <= 1) {
+                Files.deleteIfExists(blob);
+                deleteIfEmpty(blob.getParent());
+            }
+        } catch (IOException | UnsupportedOperationException ex) {
+            log.debug("Failed to release blob {}: {}", sha256, ex.getMessage());
+        }
+    }
+
+    private void pruneOrphanBlobs() {
+        Path blobs = storage.getBlobsDir();
+        if (!Files.isDirectory(blobs)) return;
+        int pruned = 0;
+        long youngest = System.currentTimeMillis() - ORPHAN_GRACE_MS;
+        Lock lock = storage.retentionLock();
+        try (Stream<Path> files = Files.walk(blobs, 2)) {
+            for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (p.getFileName().toString().endsWith(".tmp")) continue;
+                lock.lock();
+                try {
+                    if (Files.getLastModifiedTime(p).toMillis() < youngest && linkCount(p) <= 1) {
+                        Files.deleteIfExists(p);
+                        pruned++;
+                    }
+                } catch (java.nio.file.NoSuchFileException ex) {
+                    // released meanwhile
+                } catch (IOException | UnsupportedOperationException ex) {
+                    return; // no link counts on this filesystem; blobs are plain copies there
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to prune blobs: {}", e.getMessage());
+        }
+        log.info("Pruned {} orphaned artifact blobs", pruned);
+    }
+
+    private static int linkCount(Path p) throws IOException {
+        return ((Number) Files.getAttribute(p, "unix:nlink")).intValue();
+    }
+
+    private void deleteIfEmpty(Path dir) {
+        if (dir == null || dir.equals(storage.getBase())) return;
+        try {
+            Files.deleteIfExists(dir);
+        } catch (DirectoryNotEmptyException ignored) {
+            // still in use
+        } catch (IOException e) {
+            log.debug("Failed to remove directory {}: {}", dir, e.getMessage());
+        }
+    }
+}
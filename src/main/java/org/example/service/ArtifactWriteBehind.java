@@ -0,0 +1,225 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists graph/export artifacts off the request thread. Requests hand over the bytes and return; a single
+ * writer thread drains the queue in batches through {@link FileStorageService}. The queue is bounded by entry
+ * count and total bytes; when either is exceeded the caller writes synchronously, so nothing is dropped, and a
+ * failed synchronous write is thrown to the caller. Failures on the writer thread are logged and counted.
+ * On shutdown the queue is drained before the context closes.
+ * fsync: {@code none} leaves flushing to the OS, {@code batch} forces every file of a batch once it is written,
+ * {@code each} forces each file before the next write.
+ */
+@Service
+public class ArtifactWriteBehind {
+    private static final Logger log = LoggerFactory.getLogger(ArtifactWriteBehind.class);
+
+    public enum Fsync { NONE, BATCH, EACH }
+
+    private record Pending(Path dir, String filename, byte[] bytes, long enqueuedNanos) {}
+
+    private final FileStorageService storage;
+    private final boolean enabled;
+    private final int capacity;
+    private final long maxBytes;
+    private final int batchSize;
+    private final Fsync fsync;
+    private final long drainTimeoutMs;
+    private final LinkedBlockingQueue<Pending> queue;
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong synchronousWrites = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writeNanosTotal = new AtomicLong();
+    private final AtomicLong writeNanosMax = new AtomicLong();
+    private final AtomicLong lagNanosMax = new AtomicLong();
+
+    private volatile boolean accepting;
+    private Thread worker;
+
+    public ArtifactWriteBehind(FileStorageService storage,
+                               @Value("${app.artifacts.write-behind.enabled:true}") boolean enabled,
+                               @Value("${app.artifacts.write-behind.queue-capacity:1000}") int capacity,
+                               @Value("${app.artifacts.write-behind.max-bytes:67108864}") long maxBytes,
+                               @Value("${app.artifacts.write-behind.batch-size:32}") int batchSize,
+                               @Value("${app.artifacts.write-behind.fsync:batch}") String fsync,
+                               @Value("${app.artifacts.write-behind.drain-timeout-ms:30000}") long drainTimeoutMs) {
+        this.storage = storage;
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+        this.maxBytes = maxBytes;
+        this.batchSize = Math.max(1, batchSize);
+        this.fsync = Fsync.valueOf(fsync.trim().toUpperCase(Locale.ROOT));
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.queue = new LinkedBlockingQueue<>(this.capacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        accepting = true;
+        worker = new Thread(this::run, "artifact-write-behind");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void drain() {
+        accepting = false;
+        if (worker == null) return;
+        try {
+            worker.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the worker didn't get to (timeout) is written here
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) writeBatch(rest);
+        log.info("Artifact write-behind drained: {} written, {} failed", written.get(), failed.get());
+    }
+
+    public void storeGraph(String filename, byte[] bytes) throws IOException {
+        submit(storage.getGraphsDirForToday(), filename, bytes);
+    }
+
+    public void storeReport(String filename, byte[] bytes) throws IOException {
+        submit(storage.getReportsDirForToday(), filename, bytes);
+    }
+
+    public void storeExportCsv(String filename, byte[] bytes) throws IOException {
+        submit(storage.getExportsCsvDirForToday(), filename, bytes);
+    }
+
+    public void storeExportJson(String filename, byte[] bytes) throws IOException {
+        submit(storage.getExportsJsonDirForToday(), filename, bytes);
+    }
+
+    public void storeExportToon(String filename, byte[] bytes) throws IOException {
+        submit(storage.getExportsToonDirForToday(), filename, bytes);
+    }
+
+    /** Callers must not modify {@code bytes} afterwards. Throws only when the write happens on the caller's thread and fails. */
+    private void submit(Path dir, String filename, byte[] bytes) throws IOException {
+        Pending p = new Pending(dir, filename, bytes, System.nanoTime());
+        if (accepting) {
+            if (queuedBytes.addAndGet(bytes.length) <= maxBytes && queue.offer(p)) return;
+            queuedBytes.addAndGet(-bytes.length);
+        }
+        // Disabled, shutting down, or over the byte/count budget: back-pressure on the caller instead of dropping
+        synchronousWrites.incrementAndGet();
+        try {
+            write(p);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        }
+    }
+
+    // Not interrupted on shutdown (an interrupt would close the file channel mid-write); it exits once
+    // accepting is off and the queue is empty
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!accepting) return;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        List<Path> toForce = fsync == Fsync.BATCH ? new ArrayList<>(batch.size()) : null;
+        for (Pending p : batch) {
+            queuedBytes.addAndGet(-p.bytes().length);
+            Path target = writeOne(p);
+            if (toForce != null && target != null) toForce.add(target);
+        }
+        if (toForce != null) toForce.forEach(ArtifactWriteBehind::force);
+        batches.incrementAndGet();
+    }
+
+    // Queued writes have no caller left to report to
+    private Path writeOne(Pending p) {
+        try {
+            return write(p);
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to persist artifact {}/{}: {}", p.dir(), p.filename(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Path write(Pending p) throws IOException {
+        long start = System.nanoTime();
+        Path target = storage.store(p.dir(), p.filename(), p.bytes());
+        if (fsync == Fsync.EACH) force(target);
+        long end = System.nanoTime();
+        long took = end - start;
+        written.incrementAndGet();
+        writtenBytes.addAndGet(p.bytes().length);
+        writeNanosTotal.addAndGet(took);
+        writeNanosMax.accumulateAndGet(took, Math::max);
+        lagNanosMax.accumulateAndGet(end - p.enqueuedNanos(), Math::max);
+        return target;
+    }
+
+    private static void force(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        } catch (IOException e) {
+            log.warn("fsync failed for {}: {}", file, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long n = written.get();
+        out.put("enabled", enabled);
+        out.put("fsync", fsync.name().toLowerCase(Locale.ROOT));
+        out.put("queueDepth", queue.size());
+        out.put("queueCapacity", capacity);
+        out.put("queuedBytes", queuedBytes.get());
+        out.put("written", n);
+        out.put("writtenBytes", writtenBytes.get());
+        out.put("failed", failed.get());
+        out.put("synchronousWrites", synchronousWrites.get());
+        out.put("batches", batches.get());
+        out.put("avgWriteMs", n == 0 ? 0.0 : writeNanosTotal.get() / 1e6 / n);
+        out.put("maxWriteMs", writeNanosMax.get() / 1e6);
+        out.put("maxQueueLagMs", lagNanosMax.get() / 1e6);
+        return out;
+    }
+}
@@ -0,0 +1,252 @@
+package org.example.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache for rendered chart images, keyed by a SHA-256 of everything that affects the pixels.
+ * The heap tier is an access-ordered LRU bounded by total bytes; the disk tier lives under
+ * {@code <storage>/cache/charts} and is bounded the same way, with its LRU order kept in memory
+ * (seeded from file modification times at startup) so eviction never walks the directory.
+ */
+@Service
+public class ChartRenderCache {
+    private static final Logger log = LoggerFactory.getLogger(ChartRenderCache.class);
+
+    private final long memoryBudget;
+    private final long diskBudget;
+    private final Path dir;
+
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private long diskBytes;
+
+    // Chart identity (title/labels/size, no data) -> key of its most recent render, for stale fallback
+    private final LinkedHashMap<String, String> latest = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > 1024;
+        }
+    };
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+
+    public ChartRenderCache(FileStorageService storage,
+                            @Value("${app.charts.cache.memory-bytes:33554432}") long memoryBudget,
+                            @Value("${app.charts.cache.disk-bytes:268435456}") long diskBudget) {
+        this.memoryBudget = memoryBudget;
+        this.diskBudget = diskBudget;
+        this.dir = storage.getBase().resolve("cache").resolve("charts");
+        loadDiskIndex();
+    }
+
+    /** Builds a cache key; parts are length-prefixed so ("ab","c") and ("a","bc") differ. */
+    public static String key(String kind, int width, int height, String title, String xLabel, String yLabel,
+                             Iterable<String> labels, int[] values) {
+        MessageDigest md = sha256();
+        update(md, kind);
+        update(md, width + "x" + height);
+        update(md, title);
+        update(md, xLabel);
+        update(md, yLabel);
+        for (String l : labels) update(md, l);
+        update(md, "|");
+        for (int v : values) {
+            md.update((byte) (v >>> 24));
+            md.update((byte) (v >>> 16));
+            md.update((byte) (v >>> 8));
+            md.update((byte) v);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public byte[] get(String key) {
+        synchronized (memory) {
+            byte[] b = memory.get(key);
+            if (b != null) {
+                hits++;
+                return b;
+            }
+        }
+        byte[] b = readDisk(key);
+        synchronized (memory) {
+            if (b != null) {
+                diskHits++;
+                putMemory(key, b);
+            } else {
+                misses++;
+            }
+        }
+        return b;
+    }
+
+    public void put(String key, byte[] bytes) {
+        if (bytes == null) return;
+        synchronized (memory) {
+            putMemory(key, bytes);
+        }
+        writeDisk(key, bytes);
+    }
+
+    public void putLatest(String identityKey, String key) {
+        synchronized (latest) {
+            latest.put(identityKey, key);
+        }
+    }
+
+    /** Most recent image rendered for the chart identity, if still cached. */
+    public byte[] latest(String identityKey) {
+        String key;
+        synchronized (latest) {
+            key = latest.get(identityKey);
+        }
+        return key == null ? null : get(key);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (memory) {
+            out.put("memoryEntries", memory.size());
+            out.put("memoryBytes", memoryBytes);
+            out.put("hits", hits);
+            out.put("diskHits", diskHits);
+            out.put("misses", misses);
+        }
+        synchronized (disk) {
+            out.put("diskEntries", disk.size());
+            out.put("diskBytes", diskBytes);
+        }
+        return out;
+    }
+
+    private void putMemory(String key, byte[] bytes) {
+        if (bytes.length > memoryBudget) return;
+        byte[] prev = memory.put(key, bytes);
+        if (prev != null) memoryBytes -= prev.length;
+        memoryBytes += bytes.length;
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudget && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            memoryBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    private Path fileFor(String key) {
+        // Two-character fan-out keeps directories small
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".bin");
+    }
+
+    private byte[] readDisk(String key) {
+        synchronized (disk) {
+            if (disk.get(key) == null) return null;
+        }
+        try {
+            return Files.readAllBytes(fileFor(key));
+        } catch (IOException e) {
+            synchronized (disk) {
+                Long size = disk.remove(key);
+                if (size != null) diskBytes -= size;
+            }
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, byte[] bytes) {
+        if (diskBudget <= 0 || bytes.length > diskBudget) return;
+        synchronized (disk) {
+            if (disk.containsKey(key)) return;
+        }
+        Path target = fileFor(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write chart cache entry {}: {}", key, e.getMessage());
+            return;
+        }
+        synchronized (disk) {
+            Long prev = disk.put(key, (long) bytes.length);
+            if (prev != null) diskBytes -= prev;
+            diskBytes += bytes.length;
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskBytes > diskBudget && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                diskBytes -= eldest.getValue();
+                it.remove();
+                try {
+                    Files.deleteIfExists(fileFor(eldest.getKey()));
+                } catch (IOException e) {
+                    log.debug("Failed to delete evicted chart cache entry {}: {}", eldest.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void loadDiskIndex() {
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> files = Files.walk(dir, 2)) {
+            files.filter(p -> p.getFileName().toString().endsWith(".bin"))
+                    .map(p -> {
+                        try {
+                            return Map.entry(p, Files.getLastModifiedTime(p).toMillis());
+                        } catch (IOException e) {
+                            return Map.entry(p, 0L);
+                        }
+                    })
+                    .sorted(Map.Entry.comparingByValue())
+                    .forEach(e -> {
+                        String name = e.getKey().getFileName().toString();
+                        try {
+                            long size = Files.size(e.getKey());
+                            disk.put(name.substring(0, name.length() - 4), size);
+                            diskBytes += size;
+                        } catch (IOException ignored) {
+                            // vanished while loading
+                        }
+                    });
+            log.info("Chart cache: {} entries ({} bytes) on disk", disk.size(), diskBytes);
+        } catch (IOException e) {
+            log.warn("Failed to index chart cache at {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        byte[] b = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        int n = s == null ? -1 : b.length;
+        md.update((byte) (n >>> 24));
+        md.update((byte) (n >>> 16));
+        md.update((byte) (n >>> 8));
+        md.update((byte) n);
+        md.update(b);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
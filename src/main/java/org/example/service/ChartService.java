@@ -1,38 +1,304 @@
 package org.example.service;
 
-import org.knowm.xchart.BitmapEncoder;
+import jakarta.annotation.PreDestroy;
 import org.knowm.xchart.CategoryChart;
 import org.knowm.xchart.CategoryChartBuilder;
+import org.example.dto.SeriesTable;
 import org.knowm.xchart.style.Styler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * PNG rendering runs on a small dedicated pool with a bounded queue so a burst of graph requests can't take
+ * every core from the API. When the queue is full a request gets the last image rendered for the same chart
+ * (stale, but usually only by one refresh), or a {@link RejectedExecutionException} (503) if there is none.
+ * "The same chart" is the caller's {@code identity}: everything that selects the data (filters, breakdown,
+ * buckets), since titles are shared between filters. Without an identity there is no fallback.
+ * Each render thread keeps its own image buffer and PNG writer.
+ */
 @Service
 public class ChartService {
-    public byte[] renderTimeSeriesChart(Map<String, Integer> timeSeries, String title, String xLabel, String yLabel) throws Exception {
+    private static final Logger log = LoggerFactory.getLogger(ChartService.class);
+    static final int WIDTH = 1000;
+    static final int HEIGHT = 400;
+    public static final String IMAGE_SVG_VALUE = "image/svg+xml";
+
+    private final ChartRenderCache renderCache;
+    private final ThreadPoolExecutor renderPool;
+    private final ThreadLocal<RenderBuffers> buffers = ThreadLocal.withInitial(RenderBuffers::new);
+
+    public ChartService(ChartRenderCache renderCache,
+                        @Value("${app.charts.render-threads:0}") int renderThreads,
+                        @Value("${app.charts.render-queue:32}") int renderQueue) {
+        this.renderCache = renderCache;
+        int threads = renderThreads > 0 ? renderThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, renderQueue)),
+                r -> {
+                    Thread t = new Thread(r, "chart-render-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderPool.shutdown();
+    }
+
+    /** One chart of a {@link #renderTimeSeriesCharts} batch. */
+    public record TimeSeriesChart(Map<String, Integer> series, String title, String xLabel, String yLabel) {}
+
+    public byte[] renderTimeSeriesChart(Map<String, Integer> timeSeries, String identity, String title, String xLabel, String yLabel) throws Exception {
+        return renderPrepared(prepare(timeSeries, identity, title, xLabel, yLabel));
+    }
+
+    /** Multi-series chart from one columnar table; {@code stacked} stacks the series, otherwise bars are grouped. */
+    public byte[] renderSeriesChart(SeriesTable table, boolean stacked, String identity, String title, String xLabel, String yLabel) throws Exception {
+        if (table.names.length == 0) return renderTimeSeriesChart(zeroSeries(table.labels), identity, title, xLabel, yLabel);
+        return renderPrepared(prepare("series.png", table.labels, table.names, table.values, stacked, identity, title, xLabel, yLabel));
+    }
+
+    /**
+     * {@link #renderSeriesChart} for background jobs (reports): never substitutes a stale image, and renders on the
+     * calling thread when the pool is saturated.
+     */
+    public byte[] renderSeriesChartNow(SeriesTable table, boolean stacked, String title, String xLabel, String yLabel) throws Exception {
+        Prepared p = table.names.length == 0 ? prepare(zeroSeries(table.labels), null, title, xLabel, yLabel)
+                : prepare("series.png", table.labels, table.names, table.values, stacked, null, title, xLabel, yLabel);
+        byte[] cached = renderCache.get(p.cacheKey);
+        if (cached != null) return cached;
+        try {
+            return unwrap(renderPool.submit(() -> render(p)));
+        } catch (RejectedExecutionException e) {
+            return render(p);
+        }
+    }
+
+    public byte[] renderSeriesSvg(SeriesTable table, boolean stacked, String title, String xLabel, String yLabel) throws java.io.IOException {
+        if (table.names.length == 0) return renderTimeSeriesSvg(zeroSeries(table.labels), title, xLabel, yLabel);
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream(8192);
+        java.io.Writer w = new java.io.BufferedWriter(new java.io.OutputStreamWriter(baos, java.nio.charset.StandardCharsets.UTF_8));
+        SvgChartWriter.write(w, WIDTH, HEIGHT, title == null ? "Recognitions" : title, xLabel == null ? "time" : xLabel,
+                yLabel == null ? "count" : yLabel, table.labels, table.names, table.values, stacked);
+        return baos.toByteArray();
+    }
+
+    private static Map<String, Integer> zeroSeries(String[] labels) {
+        Map<String, Integer> m = new java.util.LinkedHashMap<>();
+        for (String l : labels) m.put(l, 0);
+        return m;
+    }
+
+    private byte[] renderPrepared(Prepared p) throws Exception {
+        byte[] cached = renderCache.get(p.cacheKey);
+        if (cached != null) return cached;
+        Future<byte[]> future;
+        try {
+            future = renderPool.submit(() -> render(p));
+        } catch (RejectedExecutionException e) {
+            byte[] stale = p.identityKey == null ? null : renderCache.latest(p.identityKey);
+            if (stale != null) {
+                log.debug("Render queue full, serving previous image for '{}'", p.title);
+                return stale;
+            }
+            throw new RejectedExecutionException("Chart rendering is busy, retry shortly");
+        }
+        return unwrap(future);
+    }
+
+    /**
+     * Renders a batch (e.g. one chart per unit for a report) across the render pool, results in input order.
+     * Batches are background work, so when the queue is full the remaining charts render on the calling thread
+     * instead of failing.
+     */
+    public List<byte[]> renderTimeSeriesCharts(List<TimeSeriesChart> charts) throws Exception {
+        List<Prepared> prepared = new ArrayList<>(charts.size());
+        List<Future<byte[]>> futures = new ArrayList<>(charts.size());
+        for (TimeSeriesChart c : charts) {
+            Prepared p = prepare(c.series(), null, c.title(), c.xLabel(), c.yLabel());
+            prepared.add(p);
+            if (renderCache.get(p.cacheKey) != null) {
+                futures.add(null);
+                continue;
+            }
+            try {
+                futures.add(renderPool.submit(() -> render(p)));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+        List<byte[]> out = new ArrayList<>(charts.size());
+        for (int i = 0; i < prepared.size(); i++) {
+            Future<byte[]> f = futures.get(i);
+            if (f != null) {
+                out.add(unwrap(f));
+                continue;
+            }
+            byte[] cached = renderCache.get(prepared.get(i).cacheKey);
+            out.add(cached != null ? cached : render(prepared.get(i)));
+        }
+        return out;
+    }
+
+    public Map<String, Object> renderStats() {
+        Map<String, Object> out = new java.util.LinkedHashMap<>();
+        out.put("threads", renderPool.getPoolSize());
+        out.put("active", renderPool.getActiveCount());
+        out.put("queued", renderPool.getQueue().size());
+        out.put("completed", renderPool.getCompletedTaskCount());
+        out.put("cache", renderCache.stats());
+        return out;
+    }
+
+    private record Prepared(List<String> keys, String[] names, List<List<Integer>> series, boolean stacked,
+                            String title, String xLabel, String yLabel, String cacheKey, String identityKey) {}
+
+    private static Prepared prepare(Map<String, Integer> timeSeries, String identity, String title, String xLabel, String yLabel) {
         if (timeSeries == null || timeSeries.isEmpty()) {
             timeSeries = new java.util.LinkedHashMap<>();
             timeSeries.put(java.time.LocalDate.now().toString(), 0);
         }
-        List<String> keys = new java.util.ArrayList<>(timeSeries.keySet());
-        List<Integer> values = new java.util.ArrayList<>(keys.size());
-        for (String k : keys) {
-            Integer v = timeSeries.get(k);
-            values.add(v == null ? 0 : v);
+        String[] labels = timeSeries.keySet().toArray(new String[0]);
+        int[] raw = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            Integer v = timeSeries.get(labels[i]);
+            raw[i] = v == null ? 0 : v;
+        }
+        return prepare("timeseries.png", labels, new String[]{"count"}, new int[][]{raw}, false, identity, title, xLabel, yLabel);
+    }
+
+    private static Prepared prepare(String kind, String[] labels, String[] names, int[][] values, boolean stacked,
+                                    String identity, String title, String xLabel, String yLabel) {
+        title = title == null ? "Recognitions" : title;
+        xLabel = xLabel == null ? "time" : xLabel;
+        yLabel = yLabel == null ? "count" : yLabel;
+        List<String> keys = java.util.Arrays.asList(labels);
+        List<List<Integer>> series = new ArrayList<>(values.length);
+        int[] flat = new int[values.length * labels.length];
+        for (int s = 0; s < values.length; s++) {
+            List<Integer> col = new ArrayList<>(labels.length);
+            for (int i = 0; i < labels.length; i++) {
+                col.add(values[s][i]);
+                flat[s * labels.length + i] = values[s][i];
+            }
+            series.add(col);
         }
-        CategoryChart chart = new CategoryChartBuilder().width(1000).height(400)
-                .title(title == null ? "Recognitions" : title)
-                .xAxisTitle(xLabel == null ? "time" : xLabel)
-                .yAxisTitle(yLabel == null ? "count" : yLabel)
+        List<String> keyParts = new ArrayList<>(keys);
+        keyParts.add(stacked ? "stacked" : "grouped");
+        keyParts.addAll(java.util.Arrays.asList(names));
+        // Identical series (e.g. dashboard auto-refresh) reuse the previous PNG
+        String cacheKey = ChartRenderCache.key(kind, WIDTH, HEIGHT, title, xLabel, yLabel, keyParts, flat);
+        // Same chart regardless of data; used to find a stale image when rendering is saturated
+        String identityKey = identity == null ? null
+                : ChartRenderCache.key(kind, WIDTH, HEIGHT, title, xLabel, yLabel, List.of(identity, String.valueOf(stacked)), new int[0]);
+        return new Prepared(keys, names, series, stacked, title, xLabel, yLabel, cacheKey, identityKey);
+    }
+
+    private byte[] render(Prepared p) throws java.io.IOException {
+        CategoryChart chart = new CategoryChartBuilder().width(WIDTH).height(HEIGHT)
+                .title(p.title)
+                .xAxisTitle(p.xLabel)
+                .yAxisTitle(p.yLabel)
                 .build();
-        chart.getStyler().setLegendVisible(false);
+        chart.getStyler().setLegendVisible(p.names.length > 1);
+        chart.getStyler().setLegendPosition(Styler.LegendPosition.InsideNW);
+        chart.getStyler().setStacked(p.stacked);
         chart.getStyler().setXAxisLabelRotation(45);
-        chart.addSeries("count", keys, values);
-        java.awt.image.BufferedImage img = BitmapEncoder.getBufferedImage(chart);
-        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-        javax.imageio.ImageIO.write(img, "png", baos);
+        for (int s = 0; s < p.names.length; s++) chart.addSeries(p.names[s], p.keys, p.series.get(s));
+        byte[] png = buffers.get().encode(chart);
+        renderCache.put(p.cacheKey, png);
+        if (p.identityKey != null) renderCache.putLatest(p.identityKey, p.cacheKey);
+        return png;
+    }
+
+    private static byte[] unwrap(Future<byte[]> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ex ? ex : e;
+        }
+    }
+
+    /** Per-thread image, PNG writer and output buffer, reused across renders of the fixed chart size. */
+    private static final class RenderBuffers {
+        private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        private final java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream(64 * 1024);
+
+        byte[] encode(CategoryChart chart) throws java.io.IOException {
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, WIDTH, HEIGHT);
+                chart.paint(g, WIDTH, HEIGHT);
+            } finally {
+                g.dispose();
+            }
+            out.reset();
+            try (MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+                writer.setOutput(ios);
+                writer.write(image);
+            } finally {
+                writer.reset();
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /** Same chart as {@link #renderTimeSeriesChart} as SVG; written directly from the series, no AWT involved. */
+    public byte[] renderTimeSeriesSvg(Map<String, Integer> timeSeries, String title, String xLabel, String yLabel) throws java.io.IOException {
+        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream(8192);
+        writeTimeSeriesSvg(timeSeries, title, xLabel, yLabel, baos);
         return baos.toByteArray();
     }
+
+    public void writeTimeSeriesSvg(Map<String, Integer> timeSeries, String title, String xLabel, String yLabel,
+                                   java.io.OutputStream out) throws java.io.IOException {
+        int n = timeSeries == null ? 0 : timeSeries.size();
+        String[] labels = new String[n];
+        int[] values = new int[n];
+        if (n > 0) {
+            int i = 0;
+            for (Map.Entry<String, Integer> e : timeSeries.entrySet()) {
+                labels[i] = e.getKey();
+                values[i++] = e.getValue() == null ? 0 : e.getValue();
+            }
+        }
+        java.io.Writer w = new java.io.BufferedWriter(new java.io.OutputStreamWriter(out, java.nio.charset.StandardCharsets.UTF_8));
+        SvgChartWriter.write(w, WIDTH, HEIGHT, title == null ? "Recognitions" : title, xLabel == null ? "time" : xLabel,
+                yLabel == null ? "count" : yLabel, labels, null, new int[][]{values}, false);
+    }
+
+    /** format=svg|png wins; otherwise SVG only when the Accept header ranks it ahead of PNG. */
+    public static boolean wantsSvg(String format, String accept) {
+        if (format != null && !format.isBlank()) return format.trim().equalsIgnoreCase("svg");
+        if (accept == null) return false;
+        String a = accept.toLowerCase(java.util.Locale.ROOT);
+        int svg = a.indexOf(IMAGE_SVG_VALUE);
+        if (svg < 0) return false;
+        int png = a.indexOf("image/png");
+        return png < 0 || svg < png;
+    }
 }
@@ -0,0 +1,142 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the {@code exportCombinedJson} layout ({@code {"employees":[...],"recognition_types":[...],"recognitions":[...]}})
+ * token by token, one record at a time, so memory does not depend on the file size. Each object becomes a row in the
+ * combined CSV column layout ({@code table,...,uuid,id}) so it goes through the same parsing and validation as CSV.
+ * Unknown fields and arrays are skipped. Dates may be ISO strings or Jackson's default numeric forms
+ * ({@code [y,m,d]} dates, decimal epoch-second instants).
+ */
+final class CombinedJsonSource implements ImportPipeline.Source {
+    private static final Map<String, Map<String, Integer>> COLUMNS = Map.of(
+            "employees", Map.of("firstName", 1, "lastName", 2, "unitId", 3, "managerId", 4, "email", 5,
+                    "joiningDate", 6, "role", 7, "uuid", 8, "id", 9),
+            "recognition_types", Map.of("typeName", 1, "uuid", 2, "id", 3),
+            "recognitions", Map.of("recognitionTypeId", 1, "recipientId", 2, "senderId", 3, "sentAt", 4, "message", 5,
+                    "awardPoints", 6, "approvalStatus", 7, "uuid", 8, "id", 9));
+    private static final Map<String, Integer> WIDTH = Map.of("employees", 10, "recognition_types", 4, "recognitions", 10);
+
+    private final JsonParser parser;
+    private String table; // array being read, null between arrays
+    private boolean started;
+
+    CombinedJsonSource(JsonFactory factory, InputStream in) throws IOException {
+        this.parser = factory.createParser(in);
+    }
+
+    @Override
+    public boolean read(List<Object> out, int max) throws IOException {
+        if (!started) {
+            started = true;
+            if (parser.nextToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("JSON import expects an object with employees, recognition_types and recognitions arrays");
+        }
+        while (out.size() < max) {
+            if (table == null && !nextArray()) return false;
+            JsonToken t = parser.nextToken();
+            if (t == JsonToken.END_ARRAY) {
+                table = null;
+            } else if (t == JsonToken.START_OBJECT) {
+                out.add(readRecord());
+            } else if (t == null) {
+                return false;
+            } else {
+                parser.skipChildren(); // not a record
+            }
+        }
+        return true;
+    }
+
+    // Moves to the next known top-level array, skipping other fields; false at the end of the document.
+    private boolean nextArray() throws IOException {
+        while (true) {
+            JsonToken t = parser.nextToken();
+            if (t == null || t == JsonToken.END_OBJECT) return false;
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && COLUMNS.containsKey(name)) {
+                table = name;
+                return true;
+            }
+            parser.skipChildren();
+        }
+    }
+
+    private String[] readRecord() throws IOException {
+        Map<String, Integer> columns = COLUMNS.get(table);
+        String[] cols = new String[WIDTH.get(table)];
+        cols[0] = table;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken t = parser.nextToken();
+            Integer idx = columns.get(field);
+            if (idx == null) {
+                parser.skipChildren();
+                continue;
+            }
+            cols[idx] = value(field, t);
+        }
+        return cols;
+    }
+
+    private String value(String field, JsonToken t) throws IOException {
+        switch (t) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return "sentAt".equals(field) ? epochToIso(parser.getDecimalValue()) : parser.getText();
+            case START_ARRAY:
+                if (!"joiningDate".equals(field)) {
+                    parser.skipChildren();
+                    return null;
+                }
+                // [year, month, day]; anything else is passed on as text so the row is rejected, not the file
+                StringBuilder raw = new StringBuilder("[");
+                int[] ymd = new int[3];
+                int ints = 0;
+                boolean other = false;
+                for (JsonToken e; (e = parser.nextToken()) != JsonToken.END_ARRAY; ) {
+                    if (e == JsonToken.VALUE_NUMBER_INT && ints < 3) ymd[ints] = parser.getIntValue();
+                    else other = true;
+                    if (e == JsonToken.VALUE_NUMBER_INT) ints++;
+                    parser.skipChildren();
+                    raw.append(raw.length() > 1 ? "," : "").append(parser.getText());
+                }
+                if (other || ints != 3) return raw.append(']').toString();
+                try {
+                    return LocalDate.of(ymd[0], ymd[1], ymd[2]).toString();
+                } catch (java.time.DateTimeException e) {
+                    return raw.append(']').toString();
+                }
+            case START_OBJECT:
+                parser.skipChildren();
+                return null;
+            default:
+                return parser.getText();
+        }
+    }
+
+    // Jackson writes Instants as decimal epoch seconds by default; plain integers this large are epoch millis
+    private static String epochToIso(BigDecimal v) {
+        if (v.scale() <= 0 && v.abs().compareTo(BigDecimal.valueOf(100_000_000_000L)) >= 0) {
+            return Instant.ofEpochMilli(v.longValue()).toString();
+        }
+        long seconds = v.longValue();
+        int nanos = v.subtract(BigDecimal.valueOf(seconds)).movePointRight(9).intValue();
+        return Instant.ofEpochSecond(seconds, nanos).toString();
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streaming reader for the TOON files we export, working on a byte buffer: only the values that are kept become
+ * Strings, lines never do. Two shapes are understood, and can be mixed:
+ * <ul>
+ *   <li>{@code exportCombinedToon}: {@code # Employees}, {@code # Recognition Types} and {@code # Recognitions}
+ *   sections (and a delta export's {@code # Deleted}, {@code table:employee | uuid:...}) with one record per line,
+ *   fields separated by {@code " | "} ({@code First Last | unit:1 | manager:2 | ...}, a bare type name,
+ *   {@code type:1 | recipient:2 | ...}). A {@code " | "} only separates fields when a known key follows, so messages
+ *   may contain pipes; line breaks in messages are escaped as {@code \n} (and a backslash as {@code \\}).</li>
+ *   <li>{@code RecognitionToonExporter}: {@code key:value;} lines, one record per blank-line separated block; values
+ *   may span lines. Outside any section these are recognitions.</li>
+ * </ul>
+ * Records come out in the combined CSV column layout ({@code table,...,uuid,id}), like {@link CombinedJsonSource}.
+ * The literal {@code null} (as written by the combined export) is read as empty.
+ */
+final class CombinedToonSource implements ImportPipeline.Source {
+    private static final byte[] NULL = bytes("null");
+
+    private enum Table {
+        EMPLOYEES("employees", 10, new String[][]{
+                {"firstName", "1"}, {"lastName", "2"}, {"unit", "3"}, {"unitId", "3"}, {"manager", "4"}, {"managerId", "4"},
+                {"email", "5"}, {"joined", "6"}, {"joiningDate", "6"}, {"role", "7"}, {"uuid", "8"}, {"id", "9"}}),
+        TYPES("recognition_types", 4, new String[][]{{"typeName", "1"}, {"name", "1"}, {"uuid", "2"}, {"id", "3"}}),
+        RECOGNITIONS("recognitions", 10, new String[][]{
+                {"type", "1"}, {"recognitionTypeId", "1"}, {"recipient", "2"}, {"recipientId", "2"}, {"sender", "3"},
+                {"senderId", "3"}, {"sentAt", "4"}, {"message", "5"}, {"points", "6"}, {"awardPoints", "6"},
+                {"status", "7"}, {"approvalStatus", "7"}, {"uuid", "8"}, {"id", "9"}}),
+        DELETED("deleted", 3, new String[][]{{"table", "1"}, {"uuid", "2"}});
+
+        final String name;
+        final int width;
+        final byte[][] keys;
+        final int[] columns;
+
+        Table(String name, int width, String[][] keys) {
+            this.name = name;
+            this.width = width;
+            this.keys = new byte[keys.length][];
+            this.columns = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                this.keys[i] = bytes(keys[i][0]);
+                this.columns[i] = Integer.parseInt(keys[i][1]);
+            }
+        }
+    }
+
+    private final InputStream in;
+    private byte[] buf = new byte[64 * 1024];
+    private int pos;
+    private int lim;
+    private boolean eof;
+    private Table section; // null before the first '#' header
+    private boolean skipSection; // inside an unknown section
+
+    CombinedToonSource(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public boolean read(List<Object> out, int max) throws IOException {
+        while (out.size() < max) {
+            int end = lineEnd(0);
+            if (end < 0) return false;
+            int len = trimmedLength(0, end);
+            if (len == 0 || at(0) == '#') {
+                if (len > 0) section(1, len);
+                pos += end + 1;
+                continue;
+            }
+            if (skipSection) {
+                pos += end + 1;
+                continue;
+            }
+            if (at(len - 1) == ';') {
+                out.add(keyValueRecord());
+            } else {
+                out.add(pipeRecord(len));
+                pos += end + 1;
+            }
+        }
+        return true;
+    }
+
+    private void section(int from, int to) {
+        String name = text(from, to).trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("_", "");
+        switch (name) {
+            case "employees" -> section = Table.EMPLOYEES;
+            case "recognitiontypes", "types" -> section = Table.TYPES;
+            case "recognitions" -> section = Table.RECOGNITIONS;
+            case "deleted" -> section = Table.DELETED;
+            default -> {
+                skipSection = true;
+                return;
+            }
+        }
+        skipSection = false;
+    }
+
+    // One line of "a | key:value | key:value"; the first field may be bare (employee name, type name).
+    private String[] pipeRecord(int len) {
+        Table t = section == null ? Table.RECOGNITIONS : section;
+        String[] cols = row(t);
+        int start = 0;
+        while (start < len) {
+            int sep = nextSeparator(t, start, len);
+            int fieldEnd = sep < 0 ? len : sep;
+            if (!field(t, cols, start, fieldEnd) && start == 0) {
+                bare(t, cols, start, fieldEnd);
+            }
+            start = sep < 0 ? len : sep + 3;
+        }
+        if (t == Table.RECOGNITIONS && cols[5] != null) cols[5] = unescape(cols[5]);
+        return cols;
+    }
+
+    // Reverses the export's escaping of messages: \n, \r and \\; other backslashes are kept.
+    static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            char next = i + 1 < s.length() ? s.charAt(i + 1) : 0;
+            if (c == '\\' && (next == 'n' || next == 'r' || next == '\\')) {
+                sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : '\\');
+                i++;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void bare(Table t, String[] cols, int from, int to) {
+        if (t == Table.TYPES) {
+            cols[1] = value(from, to);
+        } else if (t == Table.EMPLOYEES) {
+            String name = value(from, to);
+            if (name == null) return;
+            int space = name.indexOf(' ');
+            cols[1] = space < 0 ? name : name.substring(0, space);
+            cols[2] = space < 0 ? null : name.substring(space + 1).trim();
+        }
+    }
+
+    private int nextSeparator(Table t, int from, int len) {
+        for (int i = from; i + 2 < len; i++) {
+            if (at(i) == ' ' && at(i + 1) == '|' && at(i + 2) == ' ' && keyAt(t, i + 3, len) >= 0) return i;
+        }
+        return -1;
+    }
+
+    // "key:value;" lines up to a blank line or the end of the input; a value ends at ';' + end of line.
+    private String[] keyValueRecord() throws IOException {
+        Table t = section == null ? Table.RECOGNITIONS : section;
+        String[] cols = row(t);
+        int lineStart = 0;
+        int fieldStart = 0;
+        while (true) {
+            int end = lineEnd(lineStart);
+            if (end < 0) { // end of input, no newline
+                if (fieldStart < lim - pos) field(t, cols, fieldStart, trimValueEnd(fieldStart, lim - pos));
+                pos = lim;
+                return cols;
+            }
+            int len = trimmedLength(lineStart, end);
+            if (len == lineStart) { // blank line ends the record
+                if (fieldStart < lineStart) field(t, cols, fieldStart, trimValueEnd(fieldStart, lineStart));
+                pos += end + 1;
+                return cols;
+            }
+            if (at(len - 1) == ';') {
+                field(t, cols, fieldStart, len - 1);
+                fieldStart = end + 1;
+            }
+            lineStart = end + 1;
+        }
+    }
+
+    private int trimValueEnd(int from, int to) {
+        while (to > from && (at(to - 1) == '\n' || at(to - 1) == '\r' || at(to - 1) == ';')) to--;
+        return to;
+    }
+
+    // Stores "key:value" if the key is known for the table; false otherwise.
+    private boolean field(Table t, String[] cols, int from, int to) {
+        while (from < to && (at(from) == ' ' || at(from) == '\t')) from++;
+        int k = keyAt(t, from, to);
+        if (k < 0) return false;
+        cols[t.columns[k]] = value(from + t.keys[k].length + 1, to);
+        return true;
+    }
+
+    // Index of the key that starts at 'from' and is followed by ':', or -1.
+    private int keyAt(Table t, int from, int to) {
+        for (int k = 0; k < t.keys.length; k++) {
+            byte[] key = t.keys[k];
+            int end = from + key.length;
+            if (end < to && buf[pos + end] == ':' && Arrays.equals(buf, pos + from, pos + end, key, 0, key.length)) return k;
+        }
+        return -1;
+    }
+
+    private String value(int from, int to) {
+        while (from < to && (at(from) == ' ' || at(from) == '\t')) from++;
+        while (to > from && (at(to - 1) == ' ' || at(to - 1) == '\t' || at(to - 1) == '\r')) to--;
+        if (from == to) return null;
+        if (to - from == NULL.length && Arrays.equals(buf, pos + from, pos + to, NULL, 0, NULL.length)) return null;
+        return text(from, to);
+    }
+
+    private static String[] row(Table t) {
+        String[] cols = new String[t.width];
+        cols[0] = t.name;
+        return cols;
+    }
+
+    /** Offset (from pos) of the '\n' ending the line that starts at {@code from}, reading more as needed; -1 at end of input with nothing left. */
+    private int lineEnd(int from) throws IOException {
+        int scanned = from;
+        while (true) {
+            for (int i = pos + scanned; i < lim; i++) {
+                if (buf[i] == '\n') return i - pos;
+            }
+            scanned = lim - pos;
+            if (eof) {
+                if (scanned > from) { // last line without a newline: pretend there is one
+                    ensureRoom();
+                    buf[lim++] = '\n';
+                    return lim - 1 - pos;
+                }
+                return -1;
+            }
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        ensureRoom();
+        int n = in.read(buf, lim, buf.length - lim);
+        if (n < 0) eof = true;
+        else lim += n;
+    }
+
+    // Compacts, and grows the buffer when a single record fills it.
+    private void ensureRoom() {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, lim - pos);
+            lim -= pos;
+            pos = 0;
+        }
+        if (lim == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+    }
+
+    private int trimmedLength(int from, int end) {
+        while (end > from && (at(end - 1) == '\r' || at(end - 1) == ' ' || at(end - 1) == '\t')) end--;
+        return end;
+    }
+
+    private byte at(int offset) {
+        return buf[pos + offset];
+    }
+
+    private String text(int from, int to) {
+        return new String(buf, pos + from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,234 @@
+package org.example.service;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk CSV import through PostgreSQL COPY. The upload is streamed as-is into a temporary all-text staging table,
+ * every row is validated with a handful of set-based statements (formats, lengths, foreign keys), and the valid
+ * rows are merged with a single {@code INSERT ... SELECT}. Rejected rows are reported by their data row number
+ * (1-based, header excluded) and never block the rest of the file. Everything runs in one transaction on one
+ * connection, so a failure leaves nothing behind; the staging table is dropped on commit.
+ * Accepts the same headers as the per-row import ({@code exportEmployeesCsv} / {@code exportRecognitionsCsv}).
+ * COPY maps columns by position, so the header row is read and checked against the expected columns first. The
+ * trailing {@code uuid} (and for employees {@code id}) columns the exports write are optional: a given uuid is kept,
+ * and a row whose uuid already exists is rejected, since COPY only inserts. The employee {@code id} is not used.
+ */
+@Service
+public class CopyImportService {
+    private static final Logger log = LoggerFactory.getLogger(CopyImportService.class);
+
+    private static final String ID = "'^[0-9]{1,18}$'";
+    private static final String INT = "'^-?[0-9]{1,9}$'";
+    private static final String UUID = "'^[0-9A-Fa-f]{8}-[0-9A-Fa-f]{4}-[0-9A-Fa-f]{4}-[0-9A-Fa-f]{4}-[0-9A-Fa-f]{12}$'";
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    // Header names and the staging columns they load into, in file order; columns after REQUIRED may be left out
+    private static final int REQUIRED = 7;
+    private static final List<String> RECOGNITION_HEADER = List.of("recognitionTypeId", "recipientId", "senderId", "sentAt",
+            "message", "awardPoints", "approvalStatus", "uuid");
+    private static final List<String> RECOGNITION_STAGE = List.of("recognition_type_id", "recipient_id", "sender_id", "sent_at",
+            "message", "award_points", "approval_status", "uuid");
+    private static final List<String> EMPLOYEE_HEADER = List.of("firstName", "lastName", "unitId", "managerId", "email",
+            "joiningDate", "role", "uuid", "id");
+    private static final List<String> EMPLOYEE_STAGE = List.of("first_name", "last_name", "unit_id", "manager_id", "email",
+            "joining_date", "role", "uuid", "source_id");
+
+    private final DataSource dataSource;
+    private final OrgHierarchyService orgHierarchyService;
+    private final int maxErrors;
+
+    public CopyImportService(DataSource dataSource,
+                             OrgHierarchyService orgHierarchyService,
+                             @Value("${app.imports.max-errors:1000}") int maxErrors) {
+        this.dataSource = dataSource;
+        this.orgHierarchyService = orgHierarchyService;
+        this.maxErrors = maxErrors;
+    }
+
+    public Map<String, Object> importRecognitionsCsv(InputStream in) throws IOException, SQLException {
+        return run("recognitions", "import_recognitions_stage", RECOGNITION_HEADER, RECOGNITION_STAGE, in,
+                "CREATE TEMP TABLE import_recognitions_stage (line_no BIGSERIAL, recognition_type_id TEXT, recipient_id TEXT, "
+                        + "sender_id TEXT, sent_at TEXT, message TEXT, award_points TEXT, approval_status TEXT, uuid TEXT, error TEXT) ON COMMIT DROP",
+                List.of(
+                        "UPDATE import_recognitions_stage SET error = CASE"
+                                + " WHEN recognition_type_id IS NOT NULL AND recognition_type_id !~ " + ID + " THEN 'recognitionTypeId is not a valid id'"
+                                + " WHEN recipient_id IS NULL THEN 'recipientId is required'"
+                                + " WHEN recipient_id !~ " + ID + " THEN 'recipientId is not a valid id'"
+                                + " WHEN sender_id IS NOT NULL AND sender_id !~ " + ID + " THEN 'senderId is not a valid id'"
+                                + " WHEN award_points IS NOT NULL AND award_points !~ " + INT + " THEN 'awardPoints is not an integer'"
+                                + " WHEN length(approval_status) > 50 THEN 'approvalStatus is longer than 50 characters'"
+                                + " WHEN sent_at IS NOT NULL AND import_try_timestamptz(sent_at) IS NULL THEN 'sentAt is not a valid timestamp'"
+                                + " END",
+                        "UPDATE import_recognitions_stage s SET error = 'unknown recognitionTypeId ' || s.recognition_type_id"
+                                + " WHERE s.error IS NULL AND s.recognition_type_id IS NOT NULL"
+                                + " AND NOT EXISTS (SELECT 1 FROM recognition_type t WHERE t.id = " + id("s.recognition_type_id") + ")",
+                        "UPDATE import_recognitions_stage s SET error = 'unknown recipientId ' || s.recipient_id"
+                                + " WHERE s.error IS NULL AND NOT EXISTS (SELECT 1 FROM employee e WHERE e.id = " + id("s.recipient_id") + ")",
+                        "UPDATE import_recognitions_stage s SET error = 'unknown senderId ' || s.sender_id"
+                                + " WHERE s.error IS NULL AND s.sender_id IS NOT NULL"
+                                + " AND NOT EXISTS (SELECT 1 FROM employee e WHERE e.id = " + id("s.sender_id") + ")"),
+                "INSERT INTO recognitions (uuid, recognition_type_id, recipient_id, sender_id, sent_at, message, award_points, approval_status)"
+                        + " SELECT COALESCE(uuid::uuid, gen_random_uuid()), recognition_type_id::bigint, recipient_id::bigint, sender_id::bigint,"
+                        + " sent_at::timestamptz, message, COALESCE(award_points::int, 0), COALESCE(approval_status, 'PENDING')"
+                        + " FROM import_recognitions_stage WHERE error IS NULL ORDER BY line_no");
+    }
+
+    public Map<String, Object> importEmployeesCsv(InputStream in) throws IOException, SQLException {
+        Map<String, Object> result = run("employee", "import_employee_stage", EMPLOYEE_HEADER, EMPLOYEE_STAGE, in,
+                "CREATE TEMP TABLE import_employee_stage (line_no BIGSERIAL, first_name TEXT, last_name TEXT, unit_id TEXT, "
+                        + "manager_id TEXT, email TEXT, joining_date TEXT, role TEXT, uuid TEXT, source_id TEXT, error TEXT) ON COMMIT DROP",
+                List.of(
+                        "UPDATE import_employee_stage SET error = CASE"
+                                + " WHEN first_name IS NULL OR btrim(first_name) = '' THEN 'firstName is required'"
+                                + " WHEN last_name IS NULL OR btrim(last_name) = '' THEN 'lastName is required'"
+                                + " WHEN length(first_name) > 100 THEN 'firstName is longer than 100 characters'"
+                                + " WHEN length(last_name) > 100 THEN 'lastName is longer than 100 characters'"
+                                + " WHEN unit_id IS NOT NULL AND unit_id !~ " + ID + " THEN 'unitId is not a valid id'"
+                                + " WHEN manager_id IS NOT NULL AND manager_id !~ " + ID + " THEN 'managerId is not a valid id'"
+                                + " WHEN length(email) > 255 THEN 'email is longer than 255 characters'"
+                                + " WHEN length(role) > 50 THEN 'role is longer than 50 characters'"
+                                + " WHEN joining_date IS NOT NULL AND import_try_date(joining_date) IS NULL THEN 'joiningDate is not a valid date'"
+                                + " END",
+                        "UPDATE import_employee_stage s SET error = 'unknown managerId ' || s.manager_id"
+                                + " WHERE s.error IS NULL AND s.manager_id IS NOT NULL"
+                                + " AND NOT EXISTS (SELECT 1 FROM employee e WHERE e.id = " + id("s.manager_id") + ")"),
+                "INSERT INTO employee (uuid, first_name, last_name, unit_id, manager_id, email, joining_date, role)"
+                        + " SELECT COALESCE(uuid::uuid, gen_random_uuid()), first_name, last_name, unit_id::bigint, manager_id::bigint,"
+                        + " email, joining_date::date, role"
+                        + " FROM import_employee_stage WHERE error IS NULL ORDER BY line_no");
+        if (((Number) result.get("inserted")).longValue() > 0) orgHierarchyService.addNewEmployees(); // COPY only inserts
+        return result;
+    }
+
+    // The header line only (up to the first LF); the rest of the stream is left for COPY
+    private static String readHeader(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b; (b = in.read()) != '\n'; ) {
+            if (b < 0) break;
+            if (line.size() >= MAX_HEADER_BYTES) throw new IllegalArgumentException("CSV header row is longer than " + MAX_HEADER_BYTES + " bytes");
+            line.write(b);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        if (text.startsWith("\uFEFF")) text = text.substring(1);
+        if (text.endsWith("\r")) text = text.substring(0, text.length() - 1);
+        return text;
+    }
+
+    // Names are compared case-insensitively, ignoring surrounding spaces and quotes; returns the number of columns
+    private static int checkHeader(String line, List<String> expected) {
+        String required = String.join(",", expected.subList(0, REQUIRED));
+        String optional = String.join(",", expected.subList(REQUIRED, expected.size()));
+        if (line.isBlank()) throw new IllegalArgumentException("CSV is empty; expected header: " + required);
+        String[] names = line.split(",", -1);
+        boolean matches = names.length >= REQUIRED && names.length <= expected.size();
+        for (int i = 0; matches && i < names.length; i++) {
+            String name = names[i].strip();
+            if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) name = name.substring(1, name.length() - 1).strip();
+            matches = name.equalsIgnoreCase(expected.get(i));
+        }
+        if (!matches) {
+            throw new IllegalArgumentException("CSV header does not match; expected " + required + " (optionally followed by "
+                    + optional + ") but got " + line);
+        }
+        return names.length;
+    }
+
+    // A given uuid must be well-formed, new, and only used once in the file (the first valid row keeps it)
+    private static List<String> uuidChecks(String table, String stage) {
+        return List.of(
+                "UPDATE " + stage + " SET error = 'uuid is not a valid uuid' WHERE error IS NULL AND uuid IS NOT NULL AND uuid !~ " + UUID,
+                "UPDATE " + stage + " s SET error = 'uuid already exists ' || s.uuid"
+                        + " WHERE s.error IS NULL AND s.uuid IS NOT NULL AND EXISTS (SELECT 1 FROM " + table + " t WHERE t.uuid = " + uuid("s.uuid") + ")",
+                "UPDATE " + stage + " s SET error = 'duplicate uuid ' || s.uuid"
+                        + " WHERE s.error IS NULL AND s.uuid IS NOT NULL AND EXISTS (SELECT 1 FROM " + stage + " d"
+                        + " WHERE d.error IS NULL AND lower(d.uuid) = lower(s.uuid) AND d.line_no < s.line_no)");
+    }
+
+    // guarded cast: the planner may evaluate a condition before "error IS NULL", so never cast unchecked text
+    private static String id(String column) {
+        return "(CASE WHEN " + column + " ~ " + ID + " THEN " + column + "::bigint END)";
+    }
+
+    private static String uuid(String column) {
+        return "(CASE WHEN " + column + " ~ " + UUID + " THEN " + column + "::uuid END)";
+    }
+
+    private Map<String, Object> run(String table, String stage, List<String> header, List<String> stageColumns, InputStream raw,
+                                    String createStage, List<String> validations, String merge) throws IOException, SQLException {
+        long started = System.nanoTime();
+        InputStream in = new BufferedInputStream(raw);
+        int width = checkHeader(readHeader(in), header);
+        String copy = "COPY " + stage + " (" + String.join(", ", stageColumns.subList(0, width)) + ") FROM STDIN WITH (FORMAT csv)";
+        try (Connection c = dataSource.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                long staged;
+                long inserted;
+                long rejected;
+                List<Map<String, Object>> errors = new ArrayList<>();
+                try (Statement st = c.createStatement()) {
+                    st.execute(createStage);
+                    try {
+                        staged = c.unwrap(PGConnection.class).getCopyAPI().copyIn(copy, in);
+                    } catch (SQLException e) {
+                        // malformed CSV (column count, unterminated quote); the server message names the line
+                        throw new IllegalArgumentException("CSV could not be loaded: " + e.getMessage(), e);
+                    }
+                    st.execute("ANALYZE " + stage); // temp tables are never auto-analyzed
+                    for (String v : validations) st.executeUpdate(v);
+                    for (String v : uuidChecks(table, stage)) st.executeUpdate(v);
+                    inserted = st.executeUpdate(merge);
+                }
+                try (PreparedStatement ps = c.prepareStatement(
+                        "SELECT line_no, error, count(*) OVER () FROM " + stage + " WHERE error IS NOT NULL ORDER BY line_no LIMIT ?")) {
+                    ps.setInt(1, maxErrors);
+                    rejected = 0;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            errors.add(Map.of("row", rs.getLong(1), "error", rs.getString(2)));
+                            rejected = rs.getLong(3);
+                        }
+                    }
+                }
+                c.commit();
+                long tookMs = (System.nanoTime() - started) / 1_000_000;
+                log.info("COPY import into {}: {} staged, {} inserted, {} rejected in {} ms", table, staged, inserted, rejected, tookMs);
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("table", table);
+                out.put("staged", staged);
+                out.put("inserted", inserted);
+                out.put("rejected", rejected);
+                out.put("errors", errors);
+                out.put("errorsTruncated", rejected > errors.size());
+                out.put("tookMs", tookMs);
+                return out;
+            } catch (IOException | SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -1,157 +1,326 @@
 package org.example.service;
 
-import org.example.model.Employee;
-import org.example.model.Recognition;
-import org.example.model.RecognitionType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.example.repository.EmployeeRepository;
 import org.example.repository.RecognitionRepository;
 import org.example.repository.RecognitionTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * CSV, TOON and JSON exports are written row by row from read-only cursors ({@code streamExport*} native queries, so no
+ * entities are loaded) into the artifact file and, when given, the caller's stream, so memory use does not depend
+ * on the table sizes. All tables of one export are read in a single repeatable-read transaction and see the same
+ * snapshot. Every row ends with its uuid (and for employees and types its id), so re-importing an export updates
+ * the same rows and references between them can be mapped.
+ * <p>
+ * Each streamed export hands out a change token: the xmin of its snapshot and the time it was issued. A delta export
+ * with that token contains the tombstones and rows that V14's triggers stamped with a transaction id at or after that
+ * xmin, i.e. everything the earlier export may not have seen; a row can therefore appear in two consecutive deltas,
+ * never in neither. Tokens older than the tombstone retention are refused, since deletes may have been pruned.
+ */
 @Service
 public class DataExportService {
     private final EmployeeRepository employeeRepo;
     private final RecognitionRepository recognitionRepo;
     private final RecognitionTypeRepository typeRepo;
     private final FileStorageService storage;
+    private static final Logger log = LoggerFactory.getLogger(DataExportService.class);
 
-    public DataExportService(EmployeeRepository employeeRepo, RecognitionRepository recognitionRepo, RecognitionTypeRepository typeRepo, FileStorageService storage) {
+    private static final JsonFactory JSON = new JsonFactory();
+    // JSON field names for the streamExport* columns, in column order
+    private static final String[] EMPLOYEE_FIELDS = {"firstName", "lastName", "unitId", "managerId", "email", "joiningDate", "role", "uuid", "id"};
+    private static final String[] TYPE_FIELDS = {"typeName", "uuid", "id"};
+    private static final String[] RECOGNITION_FIELDS = {"recognitionTypeId", "recipientId", "senderId", "sentAt", "message", "awardPoints",
+            "approvalStatus", "uuid"};
+
+    private final TransactionTemplate snapshotTx;
+    private final TransactionTemplate writeTx;
+    private final int tombstoneRetentionDays;
+
+    /** A parsed change token. */
+    public record Since(long xmin, Instant issuedAt) {}
+
+    public DataExportService(EmployeeRepository employeeRepo, RecognitionRepository recognitionRepo, RecognitionTypeRepository typeRepo, FileStorageService storage,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.exports.tombstone-retention-days:35}") int tombstoneRetentionDays) {
         this.employeeRepo = employeeRepo;
         this.recognitionRepo = recognitionRepo;
         this.typeRepo = typeRepo;
         this.storage = storage;
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.snapshotTx.setReadOnly(true);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.tombstoneRetentionDays = Math.max(1, tombstoneRetentionDays);
     }
 
-    public byte[] exportCombinedCsv() throws java.io.IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("table,fields...\n");
-        for (Employee e : employeeRepo.findAll()) {
-            sb.append("employees,")
-              .append(n(e.getFirstName())).append(',')
-              .append(n(e.getLastName())).append(',')
-              .append(n(e.getUnitId())).append(',')
-              .append(n(e.getManagerId())).append(',')
-              .append(n(e.getEmail())).append(',')
-              .append(n(e.getJoiningDate())).append(',')
-              .append(n(e.getRole()))
-              .append('\n');
-        }
-        for (RecognitionType t : typeRepo.findAll()) {
-            sb.append("recognition_types,")
-              .append(n(t.getTypeName()))
-              .append('\n');
+    /** Parses a token from an earlier export; {@link IllegalArgumentException} when it isn't one. */
+    public Since parseToken(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        try {
+            if (dot > 0) return new Since(Long.parseLong(token.substring(0, dot)), Instant.ofEpochSecond(Long.parseLong(token.substring(dot + 1))));
+        } catch (NumberFormatException e) {
+            // fall through
         }
-        for (Recognition r : recognitionRepo.findAll()) {
-            sb.append("recognitions,")
-              .append(n(r.getRecognitionType()==null?null:r.getRecognitionType().getId())).append(',')
-              .append(n(r.getRecipientId())).append(',')
-              .append(n(r.getSenderId())).append(',')
-              .append(n(r.getSentAt())).append(',')
-              .append(n(r.getMessage())).append(',')
-              .append(n(r.getAwardPoints())).append(',')
-              .append(n(r.getApprovalStatus()))
-              .append('\n');
+        throw new IllegalArgumentException("Not an export token: " + token);
+    }
+
+    /** True when deletes since the token may already be pruned; the caller needs a full export. */
+    public boolean expired(Since since) {
+        return since.issuedAt().isBefore(Instant.now().minus(Duration.ofDays(tombstoneRetentionDays)));
+    }
+
+    // Tombstones are kept a day longer than tokens are accepted: a transaction that started before the token was
+    // issued stamps deleted_at with its start time.
+    @Scheduled(cron = "${app.exports.tombstone-prune-cron:0 20 2 * * *}")
+    public void pruneTombstones() {
+        Instant before = Instant.now().minus(Duration.ofDays(tombstoneRetentionDays + 1L));
+        try {
+            Integer removed = writeTx.execute(status -> recognitionRepo.deleteTombstonesBefore(before));
+            if (removed != null && removed > 0) log.info("Removed {} export tombstones before {}", removed, before);
+        } catch (RuntimeException e) {
+            log.warn("Failed to prune export tombstones: {}", e.getMessage());
         }
-        byte[] out = sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams the combined CSV to {@code out} (may be null) and stores it under exports/csv; returns the artifact.
+     * {@code onToken} (may be null) gets the change token before the first byte is written.
+     */
+    public Path exportCombinedCsv(OutputStream out, Consumer<String> onToken) throws IOException {
         // store in exports/csv with timestamped name using storage timestamp
         String filename = "data_combined_" + storage.nowTimestamp() + ".csv";
-        storage.storeExportCsv(filename, out);
-        return out;
-    }
-
-    public byte[] exportEmployeesCsv() throws java.io.IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("firstName,lastName,unitId,managerId,email,joiningDate,role\n");
-        for (Employee e : employeeRepo.findAll()) {
-            sb.append(n(e.getFirstName())).append(',')
-              .append(n(e.getLastName())).append(',')
-              .append(n(e.getUnitId())).append(',')
-              .append(n(e.getManagerId())).append(',')
-              .append(n(e.getEmail())).append(',')
-              .append(n(e.getJoiningDate())).append(',')
-              .append(n(e.getRole()))
-              .append('\n');
-        }
-        byte[] out = sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        return storage.storeExportCsv(filename, out, os -> inSnapshot(os, onToken, w -> {
+            w.write("table,fields...\n");
+            each(employeeRepo.streamExportRows(), row -> {
+                w.write("employees,");
+                employeeCsv(w, row);
+            });
+            each(typeRepo.streamExportRows(), row -> {
+                w.write("recognition_types,");
+                typeCsv(w, row);
+            });
+            each(recognitionRepo.streamExportRows(), row -> {
+                w.write("recognitions,");
+                recognitionCsv(w, row);
+            });
+        }));
+    }
+
+    public Path exportEmployeesCsv(OutputStream out) throws IOException {
         String filename = "employees_" + storage.nowTimestamp() + ".csv";
-        storage.storeExportCsv(filename, out);
-        return out;
+        return storage.storeExportCsv(filename, out, os -> inSnapshot(os, null, w -> {
+            w.write("firstName,lastName,unitId,managerId,email,joiningDate,role,uuid,id\n");
+            each(employeeRepo.streamExportRows(), row -> employeeCsv(w, row));
+        }));
     }
 
-    public byte[] exportRecognitionTypesCsv() throws java.io.IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("typeName\n");
-        for (RecognitionType t : typeRepo.findAll()) {
-            sb.append(n(t.getTypeName())).append('\n');
-        }
-        byte[] out = sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    public Path exportRecognitionTypesCsv(OutputStream out) throws IOException {
         String filename = "recognition_types_" + storage.nowTimestamp() + ".csv";
-        storage.storeExportCsv(filename, out);
-        return out;
-    }
-
-    public byte[] exportRecognitionsCsv() throws java.io.IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("recognitionTypeId,recipientId,senderId,sentAt,message,awardPoints,approvalStatus\n");
-        for (Recognition r : recognitionRepo.findAll()) {
-            sb.append(n(r.getRecognitionType()==null?null:r.getRecognitionType().getId())).append(',')
-              .append(n(r.getRecipientId())).append(',')
-              .append(n(r.getSenderId())).append(',')
-              .append(n(r.getSentAt())).append(',')
-              .append(n(r.getMessage())).append(',')
-              .append(n(r.getAwardPoints())).append(',')
-              .append(n(r.getApprovalStatus()))
-              .append('\n');
-        }
-        byte[] out = sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        return storage.storeExportCsv(filename, out, os -> inSnapshot(os, null, w -> {
+            w.write("typeName,uuid,id\n");
+            each(typeRepo.streamExportRows(), row -> typeCsv(w, row));
+        }));
+    }
+
+    public Path exportRecognitionsCsv(OutputStream out) throws IOException {
         String filename = "recognitions_" + storage.nowTimestamp() + ".csv";
-        storage.storeExportCsv(filename, out);
-        return out;
-    }
-
-    public byte[] exportCombinedJson() throws java.io.IOException {
-        // Export all data as a single JSON object
-        java.util.Map<String, Object> data = new java.util.LinkedHashMap<>();
-        data.put("employees", employeeRepo.findAll());
-        data.put("recognition_types", typeRepo.findAll());
-        data.put("recognitions", recognitionRepo.findAll());
-        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-        mapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
-        byte[] out = mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(data);
+        return storage.storeExportCsv(filename, out, os -> inSnapshot(os, null, w -> {
+            w.write("recognitionTypeId,recipientId,senderId,sentAt,message,awardPoints,approvalStatus,uuid\n");
+            each(recognitionRepo.streamExportRows(), row -> recognitionCsv(w, row));
+        }));
+    }
+
+    /**
+     * JSON counterpart of {@link #exportCombinedCsv}, written with a {@link JsonGenerator} from the same cursors and
+     * stored under exports/json: {@code employees}, {@code recognition_types} and {@code recognitions} arrays of
+     * objects with the CSV columns as fields (the layout {@link CombinedJsonSource} reads).
+     */
+    public Path exportCombinedJson(OutputStream out) throws IOException {
         String filename = "data_combined_" + storage.nowTimestamp() + ".json";
-        storage.storeExportJson(filename, out);
-        return out;
+        return storage.storeExportJson(filename, out, os -> inSnapshot(os, null, w -> {
+            JsonGenerator g = JSON.createGenerator(w).useDefaultPrettyPrinter();
+            g.writeStartObject();
+            g.writeArrayFieldStart("employees");
+            each(employeeRepo.streamExportRows(), e -> jsonObject(g, EMPLOYEE_FIELDS, e));
+            g.writeEndArray();
+            g.writeArrayFieldStart("recognition_types");
+            each(typeRepo.streamExportRows(), t -> jsonObject(g, TYPE_FIELDS, t));
+            g.writeEndArray();
+            g.writeArrayFieldStart("recognitions");
+            each(recognitionRepo.streamExportRows(), r -> jsonObject(g, RECOGNITION_FIELDS, r));
+            g.writeEndArray();
+            g.writeEndObject();
+            g.flush();
+        }));
+    }
+
+    /** TOON counterpart of {@link #exportCombinedCsv}, stored under exports/toon. */
+    public Path exportCombinedToon(OutputStream out, Consumer<String> onToken) throws IOException {
+        String filename = "data_combined_" + storage.nowTimestamp() + ".toon";
+        return storage.storeExportToon(filename, out, os -> inSnapshot(os, onToken, w -> {
+            w.write("# Employees\n");
+            each(employeeRepo.streamExportRows(), e -> employeeToon(w, e));
+            w.write("\n# Recognition Types\n");
+            each(typeRepo.streamExportRows(), t -> typeToon(w, t));
+            w.write("\n# Recognitions\n");
+            each(recognitionRepo.streamExportRows(), r -> recognitionToon(w, r));
+        }));
+    }
+
+    /**
+     * Rows changed and deleted since {@code since}, in the combined CSV layout: {@code deleted,<table>,<uuid>} rows
+     * first, then the changed rows, which end with their {@code uuid} (and {@code id}) like in the full export.
+     * {@code onToken} gets the token for the next delta. {@code /admin/import} applies a delta, deletes included.
+     */
+    public Path exportDeltaCsv(OutputStream out, Since since, Consumer<String> onToken) throws IOException {
+        String filename = "data_delta_" + storage.nowTimestamp() + ".csv";
+        return storage.storeExportCsv(filename, out, os -> inSnapshot(os, onToken, w -> {
+            w.write("table,fields...\n");
+            each(recognitionRepo.streamTombstonesSince(since.xmin()), row -> w.write("deleted," + n(row[0]) + ',' + n(row[1]) + '\n'));
+            each(employeeRepo.streamExportRowsChangedSince(since.xmin()), row -> {
+                w.write("employees,");
+                employeeCsv(w, row);
+            });
+            each(typeRepo.streamExportRowsChangedSince(since.xmin()), row -> {
+                w.write("recognition_types,");
+                typeCsv(w, row);
+            });
+            each(recognitionRepo.streamExportRowsChangedSince(since.xmin()), row -> {
+                w.write("recognitions,");
+                recognitionCsv(w, row);
+            });
+        }));
+    }
+
+    /** TOON counterpart of {@link #exportDeltaCsv}; deletes are listed in a {@code # Deleted} section. */
+    public Path exportDeltaToon(OutputStream out, Since since, Consumer<String> onToken) throws IOException {
+        String filename = "data_delta_" + storage.nowTimestamp() + ".toon";
+        return storage.storeExportToon(filename, out, os -> inSnapshot(os, onToken, w -> {
+            w.write("# Deleted\n");
+            each(recognitionRepo.streamTombstonesSince(since.xmin()), row -> w.write("table:" + row[0] + " | uuid:" + row[1] + "\n"));
+            w.write("\n# Employees\n");
+            each(employeeRepo.streamExportRowsChangedSince(since.xmin()), e -> employeeToon(w, e));
+            w.write("\n# Recognition Types\n");
+            each(typeRepo.streamExportRowsChangedSince(since.xmin()), t -> typeToon(w, t));
+            w.write("\n# Recognitions\n");
+            each(recognitionRepo.streamExportRowsChangedSince(since.xmin()), r -> recognitionToon(w, r));
+        }));
     }
 
-    public byte[] exportCombinedToon() throws java.io.IOException {
-        // Export all data as a TOON (custom text) format
-        StringBuilder sb = new StringBuilder();
-        sb.append("# Employees\n");
-        for (Employee e : employeeRepo.findAll()) {
-            sb.append(e.getFirstName()).append(' ').append(e.getLastName()).append(" | unit:").append(e.getUnitId()).append(" | manager:").append(e.getManagerId()).append(" | email:").append(e.getEmail()).append(" | joined:").append(e.getJoiningDate()).append(" | role:").append(e.getRole()).append('\n');
+    private interface Body {
+        void write(Writer w) throws IOException;
+    }
+
+    private interface RowWriter {
+        void write(Object[] row) throws IOException;
+    }
+
+    // Runs body in the export's read-only snapshot with a buffered UTF-8 writer over out; flushes, never closes out.
+    // The token is taken inside the snapshot and handed out before anything is written (e.g. as a response header).
+    private void inSnapshot(OutputStream out, Consumer<String> onToken, Body body) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            snapshotTx.executeWithoutResult(status -> {
+                if (onToken != null) onToken.accept(recognitionRepo.currentSnapshotXmin() + "." + Instant.now().getEpochSecond());
+                try {
+                    body.write(w);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        sb.append("\n# Recognition Types\n");
-        for (RecognitionType t : typeRepo.findAll()) {
-            sb.append(t.getTypeName()).append('\n');
+        w.flush();
+    }
+
+    private static void each(Stream<Object[]> cursor, RowWriter writer) throws IOException {
+        try (cursor) {
+            for (Iterator<Object[]> it = cursor.iterator(); it.hasNext(); ) writer.write(it.next());
         }
-        sb.append("\n# Recognitions\n");
-        for (Recognition r : recognitionRepo.findAll()) {
-            sb.append("type:").append(r.getRecognitionType()==null?null:r.getRecognitionType().getId())
-              .append(" | recipient:").append(r.getRecipientId())
-              .append(" | sender:").append(r.getSenderId())
-              .append(" | sentAt:").append(r.getSentAt())
-              .append(" | message:").append(r.getMessage())
-              .append(" | points:").append(r.getAwardPoints())
-              .append(" | status:").append(r.getApprovalStatus())
-              .append('\n');
+    }
+
+    // Rows end with the uuid (and for employees and types the id) that /admin/import upserts by and maps references with.
+    private static void employeeCsv(Writer w, Object[] e) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        line.append(n(e[0])).append(',').append(n(e[1])).append(',').append(n(e[2])).append(',').append(n(e[3])).append(',')
+            .append(n(e[4])).append(',').append(n(date(e[5]))).append(',').append(n(e[6])).append(',').append(n(e[7])).append(',').append(n(e[8]));
+        w.write(line.append('\n').toString());
+    }
+
+    private static void typeCsv(Writer w, Object[] t) throws IOException {
+        w.write(n(t[0]) + ',' + n(t[1]) + ',' + n(t[2]) + '\n');
+    }
+
+    private static void recognitionCsv(Writer w, Object[] r) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        line.append(n(r[0])).append(',').append(n(r[1])).append(',').append(n(r[2])).append(',').append(n(ReportPipeline.toInstant(r[3]))).append(',')
+            .append(n(r[4])).append(',').append(n(r[5])).append(',').append(n(r[6])).append(',').append(n(r[7]));
+        w.write(line.append('\n').toString());
+    }
+
+    // Numbers stay numbers; dates and timestamps are written as ISO strings
+    private static void jsonObject(JsonGenerator g, String[] fields, Object[] row) throws IOException {
+        g.writeStartObject();
+        for (int i = 0; i < fields.length; i++) {
+            Instant at = ReportPipeline.toInstant(row[i]);
+            Object v = at != null ? at : date(row[i]);
+            g.writeFieldName(fields[i]);
+            if (v == null) g.writeNull();
+            else if (v instanceof Number num) g.writeNumber(num.toString());
+            else g.writeString(String.valueOf(v));
         }
-        byte[] out = sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        String filename = "data_combined_" + storage.nowTimestamp() + ".toon";
-        storage.storeExportToon(filename, out);
-        return out;
+        g.writeEndObject();
+    }
+
+    private static void employeeToon(Writer w, Object[] e) throws IOException {
+        w.write(e[0] + " " + e[1] + " | unit:" + e[2] + " | manager:" + e[3] + " | email:" + e[4]
+                + " | joined:" + date(e[5]) + " | role:" + e[6] + " | uuid:" + e[7] + " | id:" + e[8] + "\n");
+    }
+
+    private static void typeToon(Writer w, Object[] t) throws IOException {
+        w.write(t[0] + " | uuid:" + t[1] + " | id:" + t[2] + "\n");
+    }
+
+    private static void recognitionToon(Writer w, Object[] r) throws IOException {
+        w.write("type:" + r[0] + " | recipient:" + r[1] + " | sender:" + r[2] + " | sentAt:" + ReportPipeline.toInstant(r[3])
+                + " | message:" + toonText(r[4]) + " | points:" + r[5] + " | status:" + r[6] + " | uuid:" + r[7] + "\n");
+    }
+
+    // Pipe-format TOON is one record per line, so line breaks in messages are written as \n (a backslash as \\);
+    // CombinedToonSource reverses this
+    private static String toonText(Object o) {
+        String s = String.valueOf(o);
+        if (s.indexOf('\\') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return s.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    // DATE columns may come back as java.sql.Date; print them like the entity's LocalDate
+    private static Object date(Object o) {
+        return o instanceof java.sql.Date d ? d.toLocalDate() : o;
     }
 
     private static String n(Object o) {
@@ -1,202 +1,381 @@
 package org.example.service;
 
-import org.example.model.Employee;
-import org.example.model.Recognition;
-import org.example.model.RecognitionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.example.model.ImportCheckpoint;
 import org.example.repository.EmployeeRepository;
-import org.example.repository.RecognitionRepository;
+import org.example.repository.ImportCheckpointRepository;
 import org.example.repository.RecognitionTypeRepository;
+import org.example.util.CsvReader;
+import org.example.util.CsvRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Per-row imports through JPA. Input runs through an {@link ImportPipeline}: records are parsed in parallel into
+ * {@link ImportBatchWriter} rows and written in order in chunked transactions; bad rows are reported by data row
+ * number (header excluded) and skipped. Long imports run as jobs ({@link ImportJobService}). For very large CSVs
+ * of a single table, {@link CopyImportService} is faster.
+ */
 @Service
 public class DataImportService {
+    private static final Logger log = LoggerFactory.getLogger(DataImportService.class);
+
     private final EmployeeRepository employeeRepo;
-    private final RecognitionRepository recognitionRepo;
     private final RecognitionTypeRepository typeRepo;
+    private final ImportCheckpointRepository checkpointRepo;
+    private final OrgHierarchyService orgHierarchyService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final FileStorageService storage;
+    private final TransactionTemplate writeTx;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final ImportPipeline pipeline;
 
-    public DataImportService(EmployeeRepository employeeRepo, RecognitionRepository recognitionRepo, RecognitionTypeRepository typeRepo) {
+    public DataImportService(EmployeeRepository employeeRepo, RecognitionTypeRepository typeRepo, ImportCheckpointRepository checkpointRepo,
+                             OrgHierarchyService orgHierarchyService,
+                             EntityManager entityManager,
+                             ObjectMapper objectMapper,
+                             FileStorageService storage,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.imports.chunk-size:1000}") int chunkSize,
+                             @Value("${app.imports.max-errors:1000}") int maxErrors,
+                             @Value("${app.imports.parse-threads:0}") int parseThreads,
+                             @Value("${app.imports.queue-depth:8}") int queueDepth) {
         this.employeeRepo = employeeRepo;
-        this.recognitionRepo = recognitionRepo;
         this.typeRepo = typeRepo;
+        this.checkpointRepo = checkpointRepo;
+        this.orgHierarchyService = orgHierarchyService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.storage = storage;
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = maxErrors;
+        int workers = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
+        this.pipeline = new ImportPipeline(this.chunkSize, workers, queueDepth);
+    }
+
+    ImportBatchWriter newWriter(ImportProgress progress, String uuidSeed, ImportCheckpoint resume) {
+        return new ImportBatchWriter(employeeRepo, typeRepo, checkpointRepo, entityManager, writeTx, chunkSize, progress, uuidSeed, resume);
+    }
+
+    ImportProgress newProgress() {
+        return new ImportProgress(maxErrors);
+    }
+
+    /**
+     * Brings the org closure up to date with what the import committed: new employees only get their own paths
+     * added; a full rebuild is only needed when existing employees got another manager or were deleted. Runs even when the import
+     * failed part-way, since committed chunks stay. A resumed job can't tell what its earlier attempt changed, so it
+     * always rebuilds.
+     */
+    void syncOrgClosure(ImportProgress progress, boolean resumed) {
+        if (resumed || progress.managerChanged() > 0 || progress.deletedEmployees() > 0) orgHierarchyService.rebuildClosure();
+        else if (progress.insertedEmployees() > 0) orgHierarchyService.addNewEmployees();
+    }
+
+    /** Returns the import summary. */
+    Map<String, Object> complete(ImportProgress progress) {
+        progress.finish();
+        Map<String, Object> out = progress.toMap();
+        log.info("Import finished: {} rows read, {} employees, {} types, {} recognitions inserted, {} rejected in {} chunks",
+                out.get("rowsRead"), out.get("insertedEmployees"), out.get("insertedTypes"), out.get("insertedRecognitions"),
+                out.get("rejected"), out.get("chunks"));
+        return out;
     }
 
     public Map<String,Object> importCombinedCsv(MultipartFile file) throws Exception {
         // Combined CSV format: first column 'table' with values employees|recognitions|recognition_types
         // followed by headers specific to that table
-        int insertedEmp=0, insertedRec=0, insertedType=0;
-        List<Map<String,String>> errors = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String header = br.readLine();
-            if (header == null) throw new IllegalArgumentException("Empty CSV");
-            // Expect 'table,...'
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] cols = parseCsvLine(line);
-                if (cols.length == 0) continue;
-                String table = cols[0].trim().toLowerCase(Locale.ROOT);
-                try {
-                    switch (table) {
-                        case "employees": {
-                            // columns: table,firstName,lastName,unitId,managerId,email,joiningDate,role,uuid
-                            Employee e = new Employee();
-                            e.setFirstName(safe(cols,1));
-                            e.setLastName(safe(cols,2));
-                            e.setUnitId(parseLong(safe(cols,3)));
-                            e.setManagerId(parseLong(safe(cols,4)));
-                            e.setEmail(safe(cols,5));
-                            String jd = safe(cols,6);
-                            if (jd!=null && !jd.isBlank()) e.setJoiningDate(java.time.LocalDate.parse(jd));
-                            e.setRole(safe(cols,7));
-                            // uuid optional; if provided, set via EntityMapper after save (assuming model has uuid)
-                            employeeRepo.save(e);
-                            insertedEmp++;
-                            break;
-                        }
-                        case "recognition_types": {
-                            // columns: table,typeName,uuid
-                            RecognitionType t = new RecognitionType();
-                            t.setTypeName(safe(cols,1));
-                            typeRepo.save(t);
-                            insertedType++;
-                            break;
-                        }
-                        case "recognitions": {
-                            // columns: table,recognitionTypeId,recipientId,senderId,sentAtISO,message,awardPoints,approvalStatus
-                            Recognition r = new Recognition();
-                            Long typeId = parseLong(safe(cols,1));
-                            if (typeId != null) typeRepo.findById(typeId).ifPresent(r::setRecognitionType);
-                            Long recipientId = parseLong(safe(cols,2));
-                            if (recipientId != null) employeeRepo.findById(recipientId).ifPresent(r::setRecipient);
-                            Long senderId = parseLong(safe(cols,3));
-                            if (senderId != null) employeeRepo.findById(senderId).ifPresent(r::setSender);
-                            String sent = safe(cols,4);
-                            if (sent!=null && !sent.isBlank()) r.setSentAt(Instant.parse(sent));
-                            r.setMessage(safe(cols,5));
-                            Integer pts = parseInt(safe(cols,6));
-                            r.setAwardPoints(pts==null?0:pts);
-                            String status = safe(cols,7);
-                            r.setApprovalStatus(status==null?"PENDING":status);
-                            recognitionRepo.save(r);
-                            insertedRec++;
-                            break;
-                        }
-                        default:
-                            errors.add(Map.of("row", line, "error", "Unknown table: "+table));
-                    }
-                } catch (Exception ex) {
-                    errors.add(Map.of("row", line, "error", ex.getMessage()==null?ex.getClass().getSimpleName():ex.getMessage()));
-                }
-            }
+        String hash = contentHash(file);
+        try (InputStream in = file.getInputStream()) {
+            return importCombined("csv", in, newProgress(), () -> false, hash, null);
         }
-        return Map.of(
-                "insertedEmployees", insertedEmp,
-                "insertedRecognitions", insertedRec,
-                "insertedTypes", insertedType,
-                "errors", errors
-        );
     }
 
     public Map<String,Object> importEmployeesCsv(MultipartFile file) throws Exception {
-        int inserted=0; List<Map<String,String>> errors=new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String header = br.readLine();
-            String line;
-            while ((line = br.readLine()) != null) {
-                try {
-                    String[] c = parseCsvLine(line);
-                    Employee e = new Employee();
-                    e.setFirstName(safe(c,0));
-                    e.setLastName(safe(c,1));
-                    e.setUnitId(parseLong(safe(c,2)));
-                    e.setManagerId(parseLong(safe(c,3)));
-                    e.setEmail(safe(c,4));
-                    String jd = safe(c,5);
-                    if (jd!=null && !jd.isBlank()) e.setJoiningDate(java.time.LocalDate.parse(jd));
-                    e.setRole(safe(c,6));
-                    employeeRepo.save(e); inserted++;
-                } catch (Exception ex) { errors.add(Map.of("row", line, "error", ex.getMessage())); }
-            }
-        }
-        return Map.of("inserted", inserted, "errors", errors);
+        return importCsv(file, (row, c) -> employeeRow(row, c, 0));
     }
 
     public Map<String,Object> importRecognitionTypesCsv(MultipartFile file) throws Exception {
-        int inserted=0; List<Map<String,String>> errors=new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String header = br.readLine(); String line;
-            while ((line = br.readLine()) != null) {
-                try {
-                    String[] c = parseCsvLine(line);
-                    RecognitionType t = new RecognitionType();
-                    t.setTypeName(safe(c,0));
-                    typeRepo.save(t); inserted++;
-                } catch (Exception ex) { errors.add(Map.of("row", line, "error", ex.getMessage())); }
+        return importCsv(file, (row, c) -> typeRow(row, c, 0));
+    }
+
+    public Map<String,Object> importRecognitionsCsv(MultipartFile file) throws Exception {
+        return importCsv(file, (row, c) -> recognitionRow(row, c, 0));
+    }
+
+    /**
+     * Combined import of {@code format} from {@code in}, shared by {@code /admin/import} and import jobs. The caller
+     * closes {@code in}. {@code contentHash} seeds the uuids of rows without one (see {@link ImportBatchWriter});
+     * {@code resume} is the job's checkpoint (null outside jobs): CSV continues at its byte offset, JSON and TOON
+     * re-read and skip the rows up to it.
+     */
+    Map<String, Object> importCombined(String format, InputStream in, ImportProgress progress, BooleanSupplier cancelled,
+                                       String contentHash, ImportCheckpoint resume) throws Exception {
+        try {
+            run(format, in, this::combinedRow, newWriter(progress, contentHash, resume), resume, cancelled);
+        } finally {
+            syncOrgClosure(progress, resume != null);
+        }
+        return complete(progress);
+    }
+
+    private Map<String, Object> importCsv(MultipartFile file, BiFunction<Long, Columns, Object> parser) throws Exception {
+        String hash = contentHash(file);
+        ImportProgress progress = newProgress();
+        try (InputStream in = file.getInputStream()) {
+            run("csv", in, parser, newWriter(progress, hash, null), null, () -> false);
+        } finally {
+            syncOrgClosure(progress, false);
+        }
+        return complete(progress);
+    }
+
+    /**
+     * Dry run of a combined import: the same parsing and checks in parallel chunks, rejecting what the import would
+     * reject and warning about suspicious values (see {@link ImportValidator}), without writing anything. The report
+     * (counts, errors and warnings per kind and the first {@code max-errors} of each) is returned and stored as a
+     * report artifact.
+     */
+    public Map<String, Object> validateCombined(MultipartFile file, String format) throws Exception {
+        ImportProgress progress = newProgress();
+        ImportValidator validator = new ImportValidator(employeeRepo, typeRepo, progress);
+        try (InputStream in = file.getInputStream()) {
+            run(format, in, (row, c) -> ImportValidator.checkValues(combinedRow(row, c)), validator, null, () -> false);
+        }
+        progress.finish();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("dryRun", true);
+        report.put("filename", file.getOriginalFilename());
+        report.put("format", format);
+        report.put("valid", validator.validCounts());
+        Map<String, Object> counts = progress.toMap();
+        counts.keySet().removeAll(List.of("insertedEmployees", "insertedTypes", "insertedRecognitions", "updated", "unchanged", "managerChanged", "deleted", "chunks"));
+        report.putAll(counts);
+        java.nio.file.Path stored = storage.storeReport("import-validation-" + storage.nowTimestamp() + ".json",
+                objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(report));
+        report.put("report", storage.getIndex().relative(stored));
+        log.info("Import dry run of {}: {} rows read, {} rejected in {} ms", file.getOriginalFilename(), report.get("rowsRead"),
+                report.get("rejected"), report.get("elapsedMs"));
+        return report;
+    }
+
+    private void run(String format, InputStream in, BiFunction<Long, Columns, Object> parser, ImportPipeline.Sink sink,
+                     ImportCheckpoint resume, BooleanSupplier cancelled) throws Exception {
+        long skipThrough = resume == null ? 0 : resume.getRowNumber();
+        switch (format) {
+            case "csv":
+                runCsv(in, parser, sink, resume, cancelled);
+                break;
+            case "json":
+                pipeline.run(new CombinedJsonSource(objectMapper.getFactory(), in), 1, skipThrough,
+                        (row, raw) -> parser.apply(row, columns((String[]) raw)), sink, cancelled);
+                break;
+            case "toon":
+                pipeline.run(new CombinedToonSource(in), 1, skipThrough,
+                        (row, raw) -> parser.apply(row, columns((String[]) raw)), sink, cancelled);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+    }
+
+    // The reader thread only splits records (see CsvReader); fields are decoded by the parse workers.
+    private void runCsv(InputStream in, BiFunction<Long, Columns, Object> parser, ImportPipeline.Sink sink,
+                        ImportCheckpoint resume, BooleanSupplier cancelled) throws Exception {
+        CsvReader reader = new CsvReader(in);
+        if (reader.next() == null) throw new IllegalArgumentException("Empty CSV");
+        long firstRow = 1;
+        long skipThrough = 0;
+        if (resume != null && resume.getByteOffset() > reader.byteOffset()) {
+            reader.skip(resume.getByteOffset() - reader.byteOffset());
+            firstRow = resume.getRowNumber() + 1;
+        } else if (resume != null) {
+            skipThrough = resume.getRowNumber();
+        }
+        pipeline.run(new ImportPipeline.Source() {
+            @Override
+            public boolean read(List<Object> out, int max) throws IOException {
+                CsvRecord record = null;
+                while (out.size() < max && (record = reader.next()) != null) out.add(record);
+                return record != null;
+            }
+
+            @Override
+            public long offset() {
+                return reader.byteOffset();
             }
+        }, firstRow, skipThrough, (row, raw) -> parser.apply(row, columns((CsvRecord) raw)), sink, cancelled);
+    }
+
+    Object combinedRow(long row, Columns cols) {
+        String table = cols.text(0) == null ? "" : cols.text(0).trim().toLowerCase(Locale.ROOT);
+        switch (table) {
+            case "employees":
+                // columns: table,firstName,lastName,unitId,managerId,email,joiningDate,role,uuid,id
+                return employeeRow(row, cols, 1);
+            case "recognition_types":
+                // columns: table,typeName,uuid,id
+                return typeRow(row, cols, 1);
+            case "recognitions":
+                // columns: table,recognitionTypeId,recipientId,senderId,sentAtISO,message,awardPoints,approvalStatus,uuid
+                return recognitionRow(row, cols, 1);
+            case "deleted":
+                // columns: deleted,<table>,uuid (delta export tombstones)
+                return deletedRow(row, cols, 1);
+            default:
+                throw new IllegalArgumentException("Unknown table: " + table);
         }
-        return Map.of("inserted", inserted, "errors", errors);
     }
 
-    public Map<String,Object> importRecognitionsCsv(MultipartFile file) throws Exception {
-        int inserted=0; List<Map<String,String>> errors=new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String header = br.readLine(); String line;
-            while ((line = br.readLine()) != null) {
-                try {
-                    String[] c = parseCsvLine(line);
-                    Recognition r = new Recognition();
-                    Long typeId = parseLong(safe(c,0));
-                    if (typeId != null) typeRepo.findById(typeId).ifPresent(r::setRecognitionType);
-                    Long recipientId = parseLong(safe(c,1));
-                    if (recipientId != null) employeeRepo.findById(recipientId).ifPresent(r::setRecipient);
-                    Long senderId = parseLong(safe(c,2));
-                    if (senderId != null) employeeRepo.findById(senderId).ifPresent(r::setSender);
-                    String sent = safe(c,3);
-                    if (sent!=null && !sent.isBlank()) r.setSentAt(Instant.parse(sent));
-                    r.setMessage(safe(c,4));
-                    Integer pts = parseInt(safe(c,5));
-                    r.setAwardPoints(pts==null?0:pts);
-                    String status = safe(c,6);
-                    r.setApprovalStatus(status==null?"PENDING":status);
-                    recognitionRepo.save(r); inserted++;
-                } catch (Exception ex) { errors.add(Map.of("row", line, "error", ex.getMessage())); }
+    static ImportBatchWriter.EmployeeRow employeeRow(long row, Columns c, int o) {
+        return new ImportBatchWriter.EmployeeRow(row, c.uuid(o + 7), c.longValue(o + 8, "id"), c.text(o), c.text(o + 1),
+                c.longValue(o + 2, "unitId"), c.longValue(o + 3, "managerId"),
+                c.text(o + 4), c.date(o + 5, "joiningDate"), c.text(o + 6));
+    }
+
+    static ImportBatchWriter.TypeRow typeRow(long row, Columns c, int o) {
+        return new ImportBatchWriter.TypeRow(row, c.uuid(o + 1), c.longValue(o + 2, "id"), c.text(o));
+    }
+
+    static ImportBatchWriter.DeletedRow deletedRow(long row, Columns c, int o) {
+        String table = c.text(o) == null ? "" : c.text(o).trim().toLowerCase(Locale.ROOT);
+        String name = switch (table) {
+            case "employee", "employees" -> "employee";
+            case "recognition_type", "recognition_types" -> "recognition_type";
+            case "recognitions" -> "recognitions";
+            default -> throw new IllegalArgumentException("Unknown table to delete from: " + table);
+        };
+        UUID uuid = c.uuid(o + 1);
+        if (uuid == null) throw new IllegalArgumentException("uuid is required to delete a row");
+        return new ImportBatchWriter.DeletedRow(row, name, uuid);
+    }
+
+    static ImportBatchWriter.RecognitionRow recognitionRow(long row, Columns c, int o) {
+        return new ImportBatchWriter.RecognitionRow(row, c.uuid(o + 7), c.longValue(o, "recognitionTypeId"),
+                c.longValue(o + 1, "recipientId"), c.longValue(o + 2, "senderId"),
+                c.instant(o + 3, "sentAt"), c.text(o + 4), c.intValue(o + 5, "awardPoints"), c.text(o + 6));
+    }
+
+    /** Column access for the row parsers: String[] rows (JSON, TOON) or CSV records decoded straight from bytes. */
+    interface Columns {
+        /** Column {@code i}, null when missing or blank. */
+        String text(int i);
+
+        default Long longValue(int i, String field) { return parseLong(text(i), field); }
+
+        default Integer intValue(int i, String field) { return parseInt(text(i), field); }
+
+        default LocalDate date(int i, String field) { return parseDate(text(i), field); }
+
+        default Instant instant(int i, String field) { return parseInstant(text(i), field); }
+
+        default UUID uuid(int i) { return parseUuid(text(i)); }
+    }
+
+    static Columns columns(String[] c) {
+        return i -> safe(c, i);
+    }
+
+    // Same results and messages as the String parsers, without building Strings for well-formed values
+    static Columns columns(CsvRecord r) {
+        return new Columns() {
+            @Override public String text(int i) { return r.string(i); }
+
+            @Override public Long longValue(int i, String field) {
+                try { return r.getLong(i); } catch (NumberFormatException e) { return parseLong(text(i), field); }
+            }
+
+            @Override public Integer intValue(int i, String field) {
+                try { return r.getInt(i); } catch (NumberFormatException e) { return parseInt(text(i), field); }
+            }
+
+            @Override public LocalDate date(int i, String field) {
+                try { return r.getDate(i); } catch (DateTimeParseException e) { return parseDate(text(i), field); }
             }
+
+            @Override public Instant instant(int i, String field) {
+                try { return r.getInstant(i); } catch (DateTimeParseException e) { return parseInstant(text(i), field); }
+            }
+        };
+    }
+
+    /** Streams the {@code exportCombinedJson} layout straight from the upload; see {@link CombinedJsonSource}. */
+    public Map<String, Object> importCombinedJson(MultipartFile file) throws Exception {
+        String hash = contentHash(file);
+        try (InputStream in = file.getInputStream()) {
+            return importCombined("json", in, newProgress(), () -> false, hash, null);
+        }
+    }
+
+    /** Streams TOON as written by {@code exportCombinedToon} or {@code RecognitionToonExporter}; see {@link CombinedToonSource}. */
+    public Map<String, Object> importCombinedToon(MultipartFile file) throws Exception {
+        String hash = contentHash(file);
+        try (InputStream in = file.getInputStream()) {
+            return importCombined("toon", in, newProgress(), () -> false, hash, null);
         }
-        return Map.of("inserted", inserted, "errors", errors);
     }
 
-    public Map<String, Object> importCombinedJson(String json) {
-        // TODO: Implement actual JSON import logic
-        return java.util.Map.of("message", "JSON import not implemented");
+    /** SHA-256 of the upload, hex. */
+    static String contentHash(MultipartFile file) throws IOException {
+        java.security.MessageDigest sha = sha256();
+        try (InputStream in = file.getInputStream()) {
+            byte[] buf = new byte[64 * 1024];
+            for (int n; (n = in.read(buf)) > 0; ) sha.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(sha.digest());
     }
 
-    public Map<String, Object> importCombinedToon(String toon) {
-        // TODO: Implement actual TOON import logic
-        return java.util.Map.of("message", "TOON import not implemented");
+    static java.security.MessageDigest sha256() {
+        try {
+            return java.security.MessageDigest.getInstance("SHA-256");
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     private static String safe(String[] arr, int idx) { return idx < arr.length ? emptyToNull(arr[idx]) : null; }
     private static String emptyToNull(String s) { return (s==null || s.isBlank())?null:s; }
-    private static Long parseLong(String s) { try { return s==null?null:Long.parseLong(s); } catch (Exception e) { return null; } }
-    private static Integer parseInt(String s) { try { return s==null?null:Integer.parseInt(s); } catch (Exception e) { return null; } }
-
-    private static String[] parseCsvLine(String line) {
-        // Minimal CSV split honoring quoted values
-        List<String> out = new ArrayList<>();
-        boolean inQ=false; StringBuilder sb=new StringBuilder();
-        for (int i=0;i<line.length();i++) {
-            char ch=line.charAt(i);
-            if (ch=='"') { inQ=!inQ; continue; }
-            if (ch==',' && !inQ) { out.add(sb.toString()); sb.setLength(0); }
-            else sb.append(ch);
-        }
-        out.add(sb.toString());
-        return out.toArray(new String[0]);
+
+    static Long parseLong(String s, String field) {
+        if (s == null) return null;
+        try { return Long.parseLong(s.trim()); } catch (NumberFormatException e) { throw new IllegalArgumentException(field + " is not a number: " + s); }
+    }
+
+    static Integer parseInt(String s, String field) {
+        if (s == null) return null;
+        try { return Integer.parseInt(s.trim()); } catch (NumberFormatException e) { throw new IllegalArgumentException(field + " is not an integer: " + s); }
+    }
+
+    static LocalDate parseDate(String s, String field) {
+        if (s == null) return null;
+        try { return LocalDate.parse(s.trim()); } catch (DateTimeParseException e) { throw new IllegalArgumentException(field + " is not a date: " + s); }
+    }
+
+    static UUID parseUuid(String s) {
+        if (s == null) return null;
+        try { return UUID.fromString(s.trim()); } catch (IllegalArgumentException e) { throw new IllegalArgumentException("uuid is not a UUID: " + s); }
+    }
+
+    static Instant parseInstant(String s, String field) {
+        if (s == null) return null;
+        try { return Instant.parse(s.trim()); } catch (DateTimeParseException e) { throw new IllegalArgumentException(field + " is not an ISO-8601 instant: " + s); }
     }
 }
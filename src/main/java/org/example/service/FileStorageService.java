@@ -1,21 +1,37 @@
 package org.example.service;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Service
 public class FileStorageService {
     private final Path base;
+    private final ArtifactIndex index;
     private final DateTimeFormatter dayFmt = DateTimeFormatter.ofPattern("MM-dd-yyyy");
     private final DateTimeFormatter tsFmt = DateTimeFormatter.ofPattern("MM-dd-yyyy-HH.mm.ss");
+    // Shared by writes from the blob through its link, exclusive for retention deleting blobs and empty directories:
+    // a blob has one link (its own name) until the entry is linked and would otherwise look orphaned.
+    private final ReadWriteLock blobLock = new ReentrantReadWriteLock();
 
     public FileStorageService(@Value("${app.storage.path:./artifacts}") String basePath) {
         this.base = Path.of(basePath).toAbsolutePath().normalize();
@@ -24,6 +40,17 @@ public class FileStorageService {
         } catch (IOException e) {
             throw new RuntimeException("Failed to create storage base path: " + base, e);
         }
+        this.index = new ArtifactIndex(base);
+        index.load();
+    }
+
+    public ArtifactIndex getIndex() {
+        return index;
+    }
+
+    @PreDestroy
+    void saveIndex() {
+        index.save();
     }
 
     public Path getBase() {
@@ -51,45 +78,195 @@ public class FileStorageService {
     }
 
     public Path storeReport(String filename, byte[] bytes) throws IOException {
-        Path dir = getReportsDirForToday();
-        Files.createDirectories(dir);
-        Path target = dir.resolve(filename);
-        Files.write(target, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        return target;
+        return store(getReportsDirForToday(), filename, bytes);
     }
 
     public Path storeGraph(String filename, byte[] bytes) throws IOException {
-        Path dir = getGraphsDirForToday();
-        Files.createDirectories(dir);
-        Path target = dir.resolve(filename);
-        Files.write(target, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        return target;
+        return store(getGraphsDirForToday(), filename, bytes);
     }
 
     public Path storeExportCsv(String filename, byte[] bytes) throws IOException {
-        Path dir = getExportsCsvDirForToday();
-        Files.createDirectories(dir);
-        Path target = dir.resolve(filename);
-        Files.write(target, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        return target;
+        return store(getExportsCsvDirForToday(), filename, bytes);
     }
 
     public Path storeExportJson(String filename, byte[] bytes) throws IOException {
-        Path dir = getExportsJsonDirForToday();
-        Files.createDirectories(dir);
-        Path target = dir.resolve(filename);
-        Files.write(target, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        return target;
+        return store(getExportsJsonDirForToday(), filename, bytes);
     }
 
     public Path storeExportToon(String filename, byte[] bytes) throws IOException {
-        Path dir = getExportsToonDirForToday();
-        Files.createDirectories(dir);
+        return store(getExportsToonDirForToday(), filename, bytes);
+    }
+
+    public Path storeReport(String filename, OutputStream copyTo, Content content) throws IOException {
+        return store(getReportsDirForToday(), filename, copyTo, content);
+    }
+
+    public Path storeExportCsv(String filename, OutputStream copyTo, Content content) throws IOException {
+        return store(getExportsCsvDirForToday(), filename, copyTo, content);
+    }
+
+    public Path storeExportJson(String filename, OutputStream copyTo, Content content) throws IOException {
+        return store(getExportsJsonDirForToday(), filename, copyTo, content);
+    }
+
+    public Path storeExportToon(String filename, OutputStream copyTo, Content content) throws IOException {
+        return store(getExportsToonDirForToday(), filename, copyTo, content);
+    }
+
+    /** Writes an artifact that is too large to build in memory. */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /** Held by {@link ArtifactRetentionService} while it deletes blobs, entries and empty directories. */
+    Lock retentionLock() {
+        return blobLock.writeLock();
+    }
+
+    public Path getBlobsDir() {
+        return base.resolve("blobs");
+    }
+
+    public Path blobPath(String sha256) {
+        return getBlobsDir().resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    /**
+     * Content-addressed write: the bytes are stored once under blobs/ab/<sha256> and the dated entry is a hard link
+     * to the blob, so identical graphs/exports take no extra space. Both the blob and the entry are written under a
+     * temporary name and moved into place, so readers never see a partial file.
+     * Falls back to an atomic copy where hard links aren't supported.
+     */
+    Path store(Path dir, String filename, byte[] bytes) throws IOException {
+        blobLock.readLock().lock();
+        try {
+            Files.createDirectories(dir);
+            return link(dir, filename, storeBlob(bytes), bytes.length);
+        } finally {
+            blobLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streamed {@link #store(Path, String, byte[])}: the content goes to a temporary file under blobs/ while its
+     * SHA-256 is computed, then becomes the blob (or is dropped if that blob exists) and is linked like any other
+     * entry. Every byte is also written to {@code copyTo} when it isn't null, e.g. an HTTP response, so the artifact
+     * and the download come from one pass. Nothing is stored if the content or the copy fails.
+     */
+    Path store(Path dir, String filename, OutputStream copyTo, Content content) throws IOException {
+        Files.createDirectories(getBlobsDir());
+        Path tmp = getBlobsDir().resolve("stream." + UUID.randomUUID() + ".tmp");
+        try {
+            TeeOutputStream out = new TeeOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), copyTo);
+            try (out) {
+                content.writeTo(out);
+                out.flush();
+            }
+            String hash = HexFormat.of().formatHex(out.digest.digest());
+            Path blob = blobPath(hash);
+            // the lock only covers the moves, not the (long) content write
+            blobLock.readLock().lock();
+            try {
+                Files.createDirectories(dir);
+                if (!Files.exists(blob)) {
+                    Files.createDirectories(blob.getParent());
+                    moveIntoPlace(tmp, blob);
+                }
+                return link(dir, filename, blob, out.size);
+            } finally {
+                blobLock.readLock().unlock();
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path link(Path dir, String filename, Path blob, long size) throws IOException {
         Path target = dir.resolve(filename);
-        Files.write(target, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        Path tmp = dir.resolve("." + filename + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createLink(tmp, blob);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(blob, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        moveIntoPlace(tmp, target);
+        index.recordWrite(target, size, blob.getFileName().toString());
         return target;
     }
 
+    // Writes the blob for these bytes if it doesn't exist yet and returns its path; callers hold the read lock.
+    private Path storeBlob(byte[] bytes) throws IOException {
+        String hash = sha256Hex(bytes);
+        Path blob = blobPath(hash);
+        if (Files.exists(blob)) return blob;
+        Files.createDirectories(blob.getParent());
+        Path tmp = blob.resolveSibling(hash + "." + UUID.randomUUID() + ".tmp");
+        Files.write(tmp, bytes, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        moveIntoPlace(tmp, blob);
+        return blob;
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static String sha256Hex(byte[] bytes) {
+        return HexFormat.of().formatHex(sha256().digest(bytes));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Buffered file output that hashes and counts what it writes and copies it to a second stream; closing it
+    // closes the file only.
+    private static final class TeeOutputStream extends OutputStream {
+        private final OutputStream file;
+        private final OutputStream copy;
+        private final MessageDigest digest = sha256();
+        private long size;
+
+        TeeOutputStream(OutputStream file, OutputStream copy) {
+            this.file = new BufferedOutputStream(file, 64 * 1024);
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            file.write(b, off, len);
+            digest.update(b, off, len);
+            size += len;
+            if (copy != null) copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            file.flush();
+            if (copy != null) copy.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
     public String nowTimestamp() {
         return LocalDateTime.now().format(tsFmt);
     }
@@ -0,0 +1,515 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.model.ImportCheckpoint;
+import org.example.repository.EmployeeRepository;
+import org.example.repository.ImportCheckpointRepository;
+import org.example.repository.RecognitionTypeRepository;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongPredicate;
+
+/**
+ * Chunked writer for imports. Parsed rows are buffered and written {@code chunkSize} at a time as one multi-row
+ * {@code INSERT ... ON CONFLICT (uuid) DO UPDATE} in one transaction, so memory stays flat however long the file
+ * is, and importing the same rows again updates them instead of adding duplicates (rows whose values did not change
+ * are not touched at all). Rows without a uuid get one derived from {@code uuidSeed} (the file's content hash) and
+ * the row number, so a retried file maps onto the rows of the first attempt. Foreign keys are checked against id
+ * sets loaded once per import (and grown as employees/types are written), so no row costs a lookup. Rows are
+ * written in arrival order; a chunk only holds one kind of row, so recognitions can reference employees written
+ * earlier in the same file. When employee (or type) rows carry the ids they were exported with, references to those
+ * ids are rewritten to the ids the rows got here, strictly: an exported id means nothing in this database, so a
+ * reference to an id that no row of the file got (rejected, or never in the file) rejects the row. A manager that
+ * comes later in the file is filled in once all rows are written; until then the employee keeps its current manager
+ * (none when new). If a chunk fails, it is retried row by row to isolate the bad rows.
+ * Delete rows (the tombstones of a delta export) delete by uuid; a deleted employee's direct reports move up to its
+ * manager, as when an employee is deleted through the API.
+ * <p>
+ * For import jobs, the last position passed to {@link #mark} is stored as the job's checkpoint in the same
+ * transaction as the rows, together with the id mapping, so every row before the checkpoint is committed. Marks
+ * only arrive at pipeline chunk boundaries, so a chunk usually also commits rows past the checkpoint: a resumed job
+ * may replay up to one chunk, which the uuid upsert turns into updates (or no-ops) rather than duplicates.
+ * One writer per import, used from a single thread.
+ */
+public final class ImportBatchWriter implements ImportPipeline.Sink {
+    private static final Logger log = LoggerFactory.getLogger(ImportBatchWriter.class);
+
+    /** {@code sourceId} is the id the row had where it was exported from, if the file carries one. */
+    public record EmployeeRow(long row, UUID uuid, Long sourceId, String firstName, String lastName, Long unitId, Long managerId,
+                              String email, LocalDate joiningDate, String role) {}
+
+    public record TypeRow(long row, UUID uuid, Long sourceId, String typeName) {}
+
+    public record RecognitionRow(long row, UUID uuid, Long typeId, Long recipientId, Long senderId, Instant sentAt,
+                                 String message, Integer points, String status) {}
+
+    /** A tombstone from a delta export; {@code table} is the database table ({@code employee}, {@code recognition_type}, {@code recognitions}). */
+    public record DeletedRow(long row, String table, UUID uuid) {}
+
+    private record Saved(List<Long> ids, int inserted, int updated, int managerChanged) {}
+
+    // An employee whose manager (by exported id) had not been written yet
+    private static final class PendingManager {
+        final long row;
+        final long sourceManagerId;
+        boolean existed; // the employee was in the database before this import
+
+        PendingManager(long row, long sourceManagerId) {
+            this.row = row;
+            this.sourceManagerId = sourceManagerId;
+        }
+    }
+
+    private static final String[] EMPLOYEE_COLUMNS = {"first_name", "last_name", "unit_id", "manager_id", "email", "joining_date", "role"};
+    private static final int[] EMPLOYEE_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.DATE, Types.VARCHAR};
+    private static final String[] TYPE_COLUMNS = {"type_name"};
+    private static final int[] TYPE_TYPES = {Types.VARCHAR};
+    private static final String[] RECOGNITION_COLUMNS = {"recognition_type_id", "recipient_id", "sender_id", "sent_at", "message",
+            "award_points", "approval_status"};
+    private static final int[] RECOGNITION_TYPES = {Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP_WITH_TIMEZONE,
+            Types.VARCHAR, Types.INTEGER, Types.VARCHAR};
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final ImportProgress progress;
+    private final String uuidSeed;
+    private final String checkpointJob; // null: no checkpoints
+    private final Set<Long> employeeIds;
+    private final Set<Long> typeIds;
+    private final Map<Long, Long> employeeIdMap = new HashMap<>();
+    private final Map<Long, Long> typeIdMap = new HashMap<>();
+    private boolean fileEmployeeIds; // employee rows carry exported ids: references go through employeeIdMap only
+    private boolean fileTypeIds;
+    private final Map<UUID, PendingManager> pendingManagers = new LinkedHashMap<>();
+    private final List<Object> buffer = new ArrayList<>();
+    private long markRow;
+    private long markOffset;
+
+    /**
+     * {@code uuidSeed} derives uuids for rows that have none (random when null); {@code resume} is the job's
+     * checkpoint, or null when the import is not a job.
+     */
+    ImportBatchWriter(EmployeeRepository employeeRepo, RecognitionTypeRepository typeRepo, ImportCheckpointRepository checkpointRepo,
+                      EntityManager entityManager, TransactionTemplate tx, int chunkSize, ImportProgress progress,
+                      String uuidSeed, ImportCheckpoint resume) {
+        this.entityManager = entityManager;
+        this.tx = tx;
+        this.chunkSize = chunkSize;
+        this.progress = progress;
+        this.uuidSeed = uuidSeed != null ? uuidSeed : UUID.randomUUID().toString();
+        this.employeeIds = new HashSet<>(employeeRepo.findAllIds());
+        this.typeIds = new HashSet<>(typeRepo.findAllIds());
+        this.checkpointJob = resume == null ? null : resume.getJobId();
+        if (resume != null) {
+            markRow = resume.getRowNumber();
+            markOffset = resume.getByteOffset();
+            for (Object[] m : checkpointRepo.findIdMap(checkpointJob)) {
+                Map<Long, Long> map = "E".equals(String.valueOf(m[0]).trim()) ? employeeIdMap : typeIdMap;
+                map.put(((Number) m[1]).longValue(), ((Number) m[2]).longValue());
+            }
+            fileEmployeeIds = !employeeIdMap.isEmpty();
+            fileTypeIds = !typeIdMap.isEmpty();
+        }
+    }
+
+    @Override
+    public ImportProgress progress() {
+        return progress;
+    }
+
+    @Override
+    public void add(Object row) {
+        if (!buffer.isEmpty() && buffer.get(0).getClass() != row.getClass()) flush();
+        if (row instanceof EmployeeRow e && e.sourceId() != null) fileEmployeeIds = true;
+        if (row instanceof TypeRow t && t.sourceId() != null) fileTypeIds = true;
+        row = deferManager(row);
+        String error = checkRow(row, fileEmployeeIds ? employeeIdMap::containsKey : id -> true, fileTypeIds ? typeIdMap::containsKey : id -> true);
+        if (error == null) {
+            row = remap(row);
+            error = checkRow(row, employeeIds::contains, typeIds::contains);
+        }
+        if (error != null) {
+            pendingManagers.remove(uuid(row));
+            progress.reject(rowNumber(row), error);
+            return;
+        }
+        buffer.add(row);
+        if (buffer.size() >= chunkSize) flush();
+    }
+
+    /** The position becomes the checkpoint with the next write, which may also commit rows after it. */
+    @Override
+    public void mark(long row, long byteOffset) {
+        markRow = row;
+        if (byteOffset >= 0) markOffset = byteOffset;
+    }
+
+    @Override
+    public void finish() {
+        flush();
+        resolvePendingManagers();
+    }
+
+    // Exported ids are only known once their row is written: an unmapped manager is filled in by the second pass
+    private Object deferManager(Object row) {
+        if (!fileEmployeeIds || !(row instanceof EmployeeRow e) || e.managerId() == null || employeeIdMap.containsKey(e.managerId())) return row;
+        pendingManagers.put(uuid(row), new PendingManager(e.row(), e.managerId()));
+        return new EmployeeRow(e.row(), e.uuid(), e.sourceId(), e.firstName(), e.lastName(), e.unitId(), null,
+                e.email(), e.joiningDate(), e.role());
+    }
+
+    // Only called once the strict check passed, so every exported id is in its map
+    private Object remap(Object row) {
+        if (row instanceof RecognitionRow r && (fileEmployeeIds || fileTypeIds)) {
+            return new RecognitionRow(r.row(), r.uuid(), fileTypeIds ? mapped(typeIdMap, r.typeId()) : r.typeId(),
+                    fileEmployeeIds ? mapped(employeeIdMap, r.recipientId()) : r.recipientId(),
+                    fileEmployeeIds ? mapped(employeeIdMap, r.senderId()) : r.senderId(), r.sentAt(), r.message(), r.points(), r.status());
+        }
+        if (row instanceof EmployeeRow e && fileEmployeeIds && e.managerId() != null) {
+            return new EmployeeRow(e.row(), e.uuid(), e.sourceId(), e.firstName(), e.lastName(), e.unitId(), employeeIdMap.get(e.managerId()),
+                    e.email(), e.joiningDate(), e.role());
+        }
+        return row;
+    }
+
+    private static Long mapped(Map<Long, Long> map, Long id) {
+        return id == null ? null : map.get(id);
+    }
+
+    // Second pass: managers that came later in the file. One that never got written leaves the employee as it was.
+    private void resolvePendingManagers() {
+        if (pendingManagers.isEmpty()) return;
+        List<Map.Entry<UUID, PendingManager>> pending = new ArrayList<>(pendingManagers.entrySet());
+        pendingManagers.clear();
+        int changed = 0;
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Map.Entry<UUID, PendingManager>> part = pending.subList(from, Math.min(pending.size(), from + chunkSize));
+            Integer n = tx.execute(s -> work(c -> {
+                int moved = 0;
+                try (PreparedStatement ps = c.prepareStatement("UPDATE employee SET manager_id = ? WHERE uuid = ? AND id <> ? AND manager_id IS DISTINCT FROM ?")) {
+                    for (Map.Entry<UUID, PendingManager> p : part) {
+                        Long managerId = employeeIdMap.get(p.getValue().sourceManagerId);
+                        if (managerId == null) continue;
+                        ps.setLong(1, managerId);
+                        ps.setObject(2, p.getKey());
+                        ps.setLong(3, managerId);
+                        ps.setLong(4, managerId);
+                        if (ps.executeUpdate() > 0 && p.getValue().existed) moved++;
+                    }
+                }
+                return moved;
+            }));
+            changed += n == null ? 0 : n;
+        }
+        progress.managerChanged.addAndGet(changed);
+        for (Map.Entry<UUID, PendingManager> p : pending) {
+            if (!employeeIdMap.containsKey(p.getValue().sourceManagerId)) {
+                progress.warn(p.getValue().row, "unknown managerId " + p.getValue().sourceManagerId + ", saved without changing the manager");
+            }
+        }
+    }
+
+    /** Required fields and references (after remapping); null when the row can be written. Shared with {@link ImportValidator}. */
+    static String checkRow(Object row, LongPredicate employeeExists, LongPredicate typeExists) {
+        if (row instanceof RecognitionRow r) {
+            if (r.recipientId() == null) return "recipientId is required";
+            if (r.typeId() != null && !typeExists.test(r.typeId())) return "unknown recognitionTypeId " + r.typeId();
+            if (!employeeExists.test(r.recipientId())) return "unknown recipientId " + r.recipientId();
+            if (r.senderId() != null && !employeeExists.test(r.senderId())) return "unknown senderId " + r.senderId();
+        } else if (row instanceof EmployeeRow e) {
+            if (e.firstName() == null || e.lastName() == null) return "firstName and lastName are required";
+            if (e.managerId() != null && !employeeExists.test(e.managerId())) return "unknown managerId " + e.managerId();
+        } else if (row instanceof TypeRow t) {
+            if (t.typeName() == null) return "typeName is required";
+        }
+        return null;
+    }
+
+    private void flush() {
+        if (buffer.isEmpty()) return;
+        List<Object> chunk = new ArrayList<>(buffer);
+        buffer.clear();
+        long checkpointRow = markRow;
+        long checkpointOffset = markOffset;
+        long started = System.nanoTime();
+        try {
+            Saved saved = tx.execute(s -> work(c -> {
+                Saved out = write(c, chunk);
+                saveCheckpoint(c, chunk, out.ids(), checkpointRow, checkpointOffset);
+                return out;
+            }));
+            committed(chunk, saved);
+        } catch (RuntimeException e) {
+            log.debug("Import chunk of {} rows failed, retrying row by row: {}", chunk.size(), e.getMessage());
+            for (Object row : chunk) {
+                try {
+                    List<Object> one = List.of(row);
+                    committed(one, tx.execute(s -> work(c -> {
+                        Saved out = write(c, one);
+                        saveCheckpoint(c, one, out.ids(), -1, -1);
+                        return out;
+                    })));
+                } catch (RuntimeException ex) {
+                    pendingManagers.remove(uuid(row));
+                    progress.reject(rowNumber(row), message(ex));
+                }
+            }
+            if (checkpointJob != null) {
+                tx.execute(s -> work(c -> saveCheckpoint(c, List.of(), List.of(), checkpointRow, checkpointOffset)));
+            }
+        }
+        long n = progress.chunks.incrementAndGet();
+        log.debug("Import chunk {}: {} rows ({}) in {} ms, {} rows read so far", n, chunk.size(),
+                chunk.get(0).getClass().getSimpleName(), (System.nanoTime() - started) / 1_000_000, progress.rowsRead.get());
+    }
+
+    // ids are only trusted once the transaction committed
+    private void committed(List<Object> rows, Saved saved) {
+        List<Long> ids = saved.ids();
+        Object kind = rows.get(0);
+        if (kind instanceof DeletedRow) {
+            for (int i = 0; i < ids.size(); i++) {
+                if (ids.get(i) == null) continue;
+                String table = ((DeletedRow) rows.get(i)).table();
+                if (table.equals("employee")) {
+                    employeeIds.remove(ids.get(i));
+                    progress.deletedEmployees.incrementAndGet();
+                } else if (table.equals("recognition_type")) {
+                    typeIds.remove(ids.get(i));
+                }
+                progress.deleted.incrementAndGet();
+            }
+            return;
+        }
+        if (kind instanceof EmployeeRow) {
+            employeeIds.addAll(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                Long source = ((EmployeeRow) rows.get(i)).sourceId();
+                if (source != null) employeeIdMap.put(source, ids.get(i));
+            }
+            progress.insertedEmployees.addAndGet(saved.inserted());
+            progress.managerChanged.addAndGet(saved.managerChanged());
+        } else if (kind instanceof TypeRow) {
+            typeIds.addAll(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                Long source = ((TypeRow) rows.get(i)).sourceId();
+                if (source != null) typeIdMap.put(source, ids.get(i));
+            }
+            progress.insertedTypes.addAndGet(saved.inserted());
+        } else {
+            progress.insertedRecognitions.addAndGet(saved.inserted());
+        }
+        progress.updated.addAndGet(saved.updated());
+        progress.unchanged.addAndGet(ids.size() - saved.inserted() - saved.updated());
+    }
+
+    private <T> T work(ReturningWork<T> work) {
+        return entityManager.unwrap(Session.class).doReturningWork(work);
+    }
+
+    private Saved write(Connection c, List<Object> rows) throws SQLException {
+        return rows.get(0) instanceof DeletedRow ? delete(c, rows) : upsert(c, rows);
+    }
+
+    // Deletes by uuid, table by table; returns the deleted ids in row order (null where no row had the uuid)
+    private Saved delete(Connection c, List<Object> rows) throws SQLException {
+        Map<String, List<UUID>> byTable = new LinkedHashMap<>();
+        for (Object row : rows) {
+            DeletedRow d = (DeletedRow) row;
+            byTable.computeIfAbsent(d.table(), k -> new ArrayList<>()).add(d.uuid());
+        }
+        Map<UUID, Long> ids = new HashMap<>();
+        for (Map.Entry<String, List<UUID>> e : byTable.entrySet()) {
+            java.sql.Array uuids = c.createArrayOf("uuid", e.getValue().toArray());
+            if (e.getKey().equals("employee")) {
+                // Reports of a deleted employee move up to its manager; repeated so chains of deleted managers resolve
+                try (PreparedStatement ps = c.prepareStatement("UPDATE employee r SET manager_id = d.manager_id FROM employee d " +
+                        "WHERE r.manager_id = d.id AND d.uuid = ANY(?) AND NOT r.uuid = ANY(?)")) {
+                    ps.setArray(1, uuids);
+                    ps.setArray(2, uuids);
+                    for (int pass = 0; pass <= e.getValue().size(); pass++) {
+                        if (ps.executeUpdate() == 0) break;
+                    }
+                }
+            }
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM " + e.getKey() + " WHERE uuid = ANY(?) RETURNING uuid, id")) {
+                ps.setArray(1, uuids);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.put((UUID) rs.getObject(1), rs.getLong(2));
+                }
+            }
+        }
+        List<Long> out = new ArrayList<>(rows.size());
+        for (Object row : rows) out.add(ids.remove(((DeletedRow) row).uuid()));
+        return new Saved(out, 0, 0, 0);
+    }
+
+    // INSERT ... ON CONFLICT (uuid) DO UPDATE, only where something changed; returns ids in row order
+    private Saved upsert(Connection c, List<Object> rows) throws SQLException {
+        Object kind = rows.get(0);
+        String table = kind instanceof EmployeeRow ? "employee" : kind instanceof TypeRow ? "recognition_type" : "recognitions";
+        String[] columns = kind instanceof EmployeeRow ? EMPLOYEE_COLUMNS : kind instanceof TypeRow ? TYPE_COLUMNS : RECOGNITION_COLUMNS;
+        int[] types = kind instanceof EmployeeRow ? EMPLOYEE_TYPES : kind instanceof TypeRow ? TYPE_TYPES : RECOGNITION_TYPES;
+        String list = String.join(", ", columns);
+        String placeholders = "(?" + ", ?".repeat(columns.length) + ")";
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" AS t (uuid, ").append(list).append(") VALUES ");
+        for (int i = 0; i < rows.size(); i++) sql.append(i > 0 ? ", " : "").append(placeholders);
+        sql.append(" ON CONFLICT (uuid) DO UPDATE SET ");
+        for (int i = 0; i < columns.length; i++) sql.append(i > 0 ? ", " : "").append(columns[i]).append(" = EXCLUDED.").append(columns[i]);
+        if (kind instanceof RecognitionRow) sql.append(", updated_at = now()");
+        sql.append(" WHERE (t.").append(String.join(", t.", columns)).append(") IS DISTINCT FROM (EXCLUDED.")
+                .append(String.join(", EXCLUDED.", columns)).append(") RETURNING uuid, id, (xmax = 0) AS inserted");
+
+        // manager_id before the write, for existing employees: a moved employee means the org closure is stale
+        Map<UUID, Long> previousManagers = kind instanceof EmployeeRow ? managersOf(c, rows) : Map.of();
+        if (kind instanceof EmployeeRow && !pendingManagers.isEmpty()) rows = keepManagers(rows, previousManagers);
+        Map<UUID, Long> ids = new HashMap<>();
+        int inserted = 0;
+        try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (Object row : rows) {
+                ps.setObject(p++, uuid(row));
+                Object[] values = values(row);
+                for (int k = 0; k < values.length; k++, p++) {
+                    if (values[k] == null) ps.setNull(p, types[k]);
+                    else ps.setObject(p, values[k] instanceof Instant instant ? OffsetDateTime.ofInstant(instant, ZoneOffset.UTC) : values[k]);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.put((UUID) rs.getObject(1), rs.getLong(2));
+                    if (rs.getBoolean(3)) inserted++;
+                }
+            }
+        }
+        int written = ids.size();
+        int managerChanged = 0;
+        for (Object row : rows) {
+            UUID u = uuid(row);
+            if (previousManagers.containsKey(u) && ids.containsKey(u)
+                    && !Objects.equals(previousManagers.get(u), ((EmployeeRow) row).managerId())) managerChanged++;
+        }
+        if (written < rows.size()) { // unchanged rows are not returned
+            List<UUID> missing = new ArrayList<>();
+            for (Object row : rows) if (!ids.containsKey(uuid(row))) missing.add(uuid(row));
+            try (PreparedStatement ps = c.prepareStatement("SELECT uuid, id FROM " + table + " WHERE uuid = ANY(?)")) {
+                ps.setArray(1, c.createArrayOf("uuid", missing.toArray()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.put((UUID) rs.getObject(1), rs.getLong(2));
+                }
+            }
+        }
+        List<Long> out = new ArrayList<>(rows.size());
+        for (Object row : rows) out.add(ids.get(uuid(row)));
+        return new Saved(out, inserted, written - inserted, managerChanged);
+    }
+
+    // Employees waiting for a manager later in the file keep the one they have until the second pass
+    private List<Object> keepManagers(List<Object> rows, Map<UUID, Long> previousManagers) {
+        List<Object> out = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            PendingManager p = pendingManagers.get(uuid(row));
+            if (p != null) {
+                EmployeeRow e = (EmployeeRow) row;
+                p.existed = previousManagers.containsKey(uuid(row));
+                row = new EmployeeRow(e.row(), e.uuid(), e.sourceId(), e.firstName(), e.lastName(), e.unitId(), previousManagers.get(uuid(row)),
+                        e.email(), e.joiningDate(), e.role());
+            }
+            out.add(row);
+        }
+        return out;
+    }
+
+    private Map<UUID, Long> managersOf(Connection c, List<Object> rows) throws SQLException {
+        Map<UUID, Long> out = new HashMap<>();
+        try (PreparedStatement ps = c.prepareStatement("SELECT uuid, manager_id FROM employee WHERE uuid = ANY(?)")) {
+            ps.setArray(1, c.createArrayOf("uuid", rows.stream().map(this::uuid).toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.put((UUID) rs.getObject(1), (Long) rs.getObject(2, Long.class));
+            }
+        }
+        return out;
+    }
+
+    // Runs in the chunk's transaction, so the checkpoint never gets ahead of the committed rows (it may trail them); row < 0 keeps it
+    private Void saveCheckpoint(Connection c, List<Object> rows, List<Long> ids, long row, long offset) throws SQLException {
+        if (checkpointJob == null) return null;
+        if (!rows.isEmpty() && (rows.get(0) instanceof EmployeeRow || rows.get(0) instanceof TypeRow)) {
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO import_checkpoint_id_map (job_id, kind, source_id, target_id) " +
+                    "VALUES (?, ?, ?, ?) ON CONFLICT (job_id, kind, source_id) DO UPDATE SET target_id = EXCLUDED.target_id")) {
+                for (int i = 0; i < rows.size(); i++) {
+                    Long source = rows.get(i) instanceof EmployeeRow e ? e.sourceId() : ((TypeRow) rows.get(i)).sourceId();
+                    if (source == null) continue;
+                    ps.setString(1, checkpointJob);
+                    ps.setString(2, rows.get(i) instanceof EmployeeRow ? "E" : "T");
+                    ps.setLong(3, source);
+                    ps.setLong(4, ids.get(i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        if (row >= 0) {
+            try (PreparedStatement ps = c.prepareStatement("UPDATE import_checkpoint SET row_number = ?, byte_offset = ?, updated_at = now() WHERE job_id = ?")) {
+                ps.setLong(1, row);
+                ps.setLong(2, offset);
+                ps.setString(3, checkpointJob);
+                ps.executeUpdate();
+            }
+        }
+        return null;
+    }
+
+    private UUID uuid(Object row) {
+        if (row instanceof DeletedRow d) return d.uuid();
+        UUID given = row instanceof EmployeeRow e ? e.uuid() : row instanceof TypeRow t ? t.uuid() : ((RecognitionRow) row).uuid();
+        return given != null ? given : UUID.nameUUIDFromBytes((uuidSeed + ":" + rowNumber(row)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] values(Object row) {
+        if (row instanceof EmployeeRow e) {
+            return new Object[]{e.firstName(), e.lastName(), e.unitId(), e.managerId(), e.email(), e.joiningDate(), e.role()};
+        }
+        if (row instanceof TypeRow t) return new Object[]{t.typeName()};
+        RecognitionRow r = (RecognitionRow) row;
+        return new Object[]{r.typeId(), r.recipientId(), r.senderId(), r.sentAt(), r.message(),
+                r.points() == null ? 0 : r.points(), r.status() == null ? "PENDING" : r.status()};
+    }
+
+    static long rowNumber(Object row) {
+        if (row instanceof EmployeeRow e) return e.row();
+        if (row instanceof TypeRow t) return t.row();
+        if (row instanceof DeletedRow d) return d.row();
+        return ((RecognitionRow) row).row();
+    }
+
+    static String message(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        return root.getMessage() == null ? root.getClass().getSimpleName() : root.getMessage();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** One asynchronous import (see {@link ImportJobService}); fields are updated by the job thread and readable at any time. */
+public class ImportJob {
+    public enum Status { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    final String id;
+    final String format;
+    final String filename;
+    final long bytesTotal;
+    final String contentHash;
+    final AtomicLong bytesRead = new AtomicLong();
+    final ImportProgress progress;
+    final Instant createdAt = Instant.now();
+    volatile Status status = Status.QUEUED;
+    volatile Instant startedAt;
+    volatile Instant finishedAt;
+    volatile String error;
+    volatile boolean cancelRequested;
+    long resumedFromRow; // checkpoint this run continued from
+    String duplicateOf; // finished job with the same content; nothing was imported
+
+    ImportJob(String id, String format, String filename, long bytesTotal, String contentHash, ImportProgress progress) {
+        this.id = id;
+        this.format = format;
+        this.filename = filename;
+        this.bytesTotal = bytesTotal;
+        this.contentHash = contentHash;
+        this.progress = progress;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        m.put("status", status.name());
+        m.put("format", format);
+        m.put("filename", filename);
+        m.put("createdAt", createdAt.toString());
+        m.put("startedAt", startedAt == null ? null : startedAt.toString());
+        m.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        m.put("bytesTotal", bytesTotal);
+        m.put("bytesRead", bytesRead.get());
+        m.put("percent", bytesTotal == 0 ? 100 : Math.min(100, bytesRead.get() * 100 / bytesTotal));
+        m.put("contentHash", contentHash);
+        if (resumedFromRow > 0) m.put("resumedFromRow", resumedFromRow);
+        if (duplicateOf != null) m.put("duplicateOf", duplicateOf);
+        if (cancelRequested) m.put("cancelRequested", true);
+        if (error != null) m.put("error", error);
+        m.putAll(progress.toMap());
+        return m;
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.service;
+
+import org.example.model.ImportCheckpoint;
+import org.example.repository.ImportCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous imports. The upload is spooled to a temp file (the multipart file does not outlive the request),
+ * then imported on a virtual thread through the same pipeline as {@code /admin/import}, with progress readable
+ * and cancellation possible at any time. At most {@code max-jobs} imports run at once; the rest wait as QUEUED.
+ * The last {@code jobs-retained} finished jobs are kept in memory for status queries.
+ * <p>
+ * Jobs are recorded in {@code import_checkpoint} by the SHA-256 of the upload. Uploading a file that already
+ * imported completely does nothing; uploading one whose job failed, was cancelled or died with the server resumes
+ * that job from its last checkpoint (rows are upserted by uuid, so the overlap is harmless).
+ */
+@Service
+public class ImportJobService {
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+    private static final Set<String> FORMATS = Set.of("csv", "json", "toon");
+    private static final List<String> RESUMABLE = List.of("QUEUED", "RUNNING", "FAILED", "CANCELLED");
+
+    private final DataImportService dataImportService;
+    private final ImportCheckpointRepository checkpoints;
+    private final Semaphore running;
+    private final int retained;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(DataImportService dataImportService, ImportCheckpointRepository checkpoints,
+                            @Value("${app.imports.max-jobs:1}") int maxJobs,
+                            @Value("${app.imports.jobs-retained:20}") int retained) {
+        this.dataImportService = dataImportService;
+        this.checkpoints = checkpoints;
+        this.running = new Semaphore(Math.max(1, maxJobs), true);
+        this.retained = Math.max(1, retained);
+    }
+
+    public ImportJob start(MultipartFile file, String format) throws IOException {
+        String fmt = format == null ? "" : format.toLowerCase(Locale.ROOT);
+        if (!FORMATS.contains(fmt)) throw new IllegalArgumentException("Unsupported format: " + format);
+        Path spool = Files.createTempFile("import-", "." + fmt);
+        String hash;
+        try {
+            MessageDigest sha = DataImportService.sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha)) {
+                Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+            }
+            hash = HexFormat.of().formatHex(sha.digest());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        ImportJob job;
+        synchronized (this) { // one decision per upload, so two uploads of a file can't both start a job
+            job = existing(hash, fmt, file.getOriginalFilename(), Files.size(spool));
+            if (job != null) {
+                Files.deleteIfExists(spool);
+                return job;
+            }
+            ImportCheckpoint cp = checkpoints.findFirstByContentHashAndFormatAndStatusInOrderByUpdatedAtDesc(hash, fmt, RESUMABLE)
+                    .orElseGet(ImportCheckpoint::new);
+            if (cp.getJobId() == null) {
+                cp.setJobId(UUID.randomUUID().toString());
+                cp.setContentHash(hash);
+                cp.setFormat(fmt);
+            }
+            cp.setFilename(file.getOriginalFilename());
+            cp.setStatus(ImportJob.Status.QUEUED.name());
+            cp.setError(null);
+            cp.setUpdatedAt(java.time.Instant.now());
+            checkpoints.save(cp);
+            job = new ImportJob(cp.getJobId(), fmt, file.getOriginalFilename(), Files.size(spool), hash, dataImportService.newProgress());
+            job.resumedFromRow = cp.getRowNumber();
+            jobs.put(job.id, job);
+        }
+        evictFinished();
+        Thread.ofVirtual().name("import-job-" + job.id.substring(0, 8)).start(() -> run(job, spool));
+        return job;
+    }
+
+    // The running job for this content, or an already finished no-op job if it was imported before; null to start one
+    private ImportJob existing(String hash, String format, String filename, long size) {
+        for (ImportJob j : jobs.values()) {
+            if (!j.isFinished() && hash.equals(j.contentHash) && format.equals(j.format)) return j;
+        }
+        ImportCheckpoint done = checkpoints.findFirstByContentHashAndFormatAndStatusInOrderByUpdatedAtDesc(hash, format,
+                List.of(ImportJob.Status.DONE.name())).orElse(null);
+        if (done == null) return null;
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), format, filename, size, hash, dataImportService.newProgress());
+        job.duplicateOf = done.getJobId();
+        job.bytesRead.set(size);
+        job.status = ImportJob.Status.DONE;
+        job.progress.finish();
+        job.finishedAt = job.createdAt;
+        jobs.put(job.id, job);
+        log.info("Import of {} skipped: same content as finished job {}", filename, done.getJobId());
+        return job;
+    }
+
+    public ImportJob get(String id) {
+        return jobs.get(id);
+    }
+
+    public List<ImportJob> list() {
+        List<ImportJob> out = new ArrayList<>(jobs.values());
+        out.sort(Comparator.comparing((ImportJob j) -> j.createdAt).reversed());
+        return out;
+    }
+
+    /** Requests cancellation; a running import stops after the chunk being written. False if already finished. */
+    public boolean cancel(ImportJob job) {
+        if (job.isFinished()) return false;
+        job.cancelRequested = true;
+        return true;
+    }
+
+    private void run(ImportJob job, Path spool) {
+        boolean acquired = false;
+        try {
+            // poll so a queued job notices cancellation without interrupting anything
+            while (!job.cancelRequested && !(acquired = running.tryAcquire(1, TimeUnit.SECONDS))) {
+                // waiting for a slot
+            }
+            if (job.cancelRequested) {
+                job.status = ImportJob.Status.CANCELLED;
+                return;
+            }
+            job.status = ImportJob.Status.RUNNING;
+            job.startedAt = java.time.Instant.now();
+            ImportCheckpoint resume = saveStatus(job);
+            try (InputStream in = new CountingInputStream(Files.newInputStream(spool), job.bytesRead)) {
+                dataImportService.importCombined(job.format, in, job.progress, () -> job.cancelRequested, job.contentHash, resume);
+            }
+            job.status = job.cancelRequested ? ImportJob.Status.CANCELLED : ImportJob.Status.DONE;
+        } catch (InterruptedException e) {
+            job.status = ImportJob.Status.CANCELLED;
+        } catch (Exception e) {
+            log.error("Import job {} failed", job.id, e);
+            job.error = ImportBatchWriter.message(e);
+            job.status = ImportJob.Status.FAILED;
+        } finally {
+            if (acquired) running.release();
+            job.progress.finish();
+            saveStatus(job);
+            job.finishedAt = java.time.Instant.now();
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete import spool {}: {}", spool, e.getMessage());
+            }
+            log.info("Import job {} {}: {} rows read", job.id, job.status, job.progress.rowsRead.get());
+        }
+    }
+
+    // Re-reads the checkpoint (the writer moves it with plain SQL) so saving the status can't roll it back
+    private ImportCheckpoint saveStatus(ImportJob job) {
+        try {
+            ImportCheckpoint cp = checkpoints.findById(job.id).orElse(null);
+            if (cp == null) return null;
+            cp.setStatus(job.status.name());
+            cp.setError(job.error);
+            cp.setUpdatedAt(java.time.Instant.now());
+            return checkpoints.save(cp);
+        } catch (RuntimeException e) {
+            log.warn("Could not save import checkpoint status for job {}: {}", job.id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void evictFinished() {
+        List<ImportJob> finished = new ArrayList<>();
+        for (ImportJob j : jobs.values()) if (j.isFinished()) finished.add(j);
+        if (finished.size() <= retained) return;
+        finished.sort(Comparator.comparing((ImportJob j) -> j.finishedAt));
+        for (int i = 0; i < finished.size() - retained; i++) jobs.remove(finished.get(i).id);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count.addAndGet(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Staged import: one reader thread cuts the input into chunks of raw records, a pool of workers parses and
+ * validates chunks in parallel, and the calling thread hands them strictly in input order to a {@link Sink}: an
+ * {@link ImportBatchWriter}, or an {@link ImportValidator} for dry runs. The stages are joined by bounded queues and at most {@code queueDepth} chunks are in
+ * flight at once, so memory stays capped however large the file is and a slow database slows the reader down.
+ * Cancellation (or a writer failure) stops the reader at the next chunk; chunks already written stay written.
+ */
+public final class ImportPipeline {
+
+    public interface Source {
+        /** Appends up to {@code max} raw records to {@code out}; returns false once the input is exhausted. */
+        boolean read(List<Object> out, int max) throws IOException;
+
+        /** Bytes of input consumed by the records read so far, or -1 if the source cannot tell (checkpoints). */
+        default long offset() {
+            return -1;
+        }
+    }
+
+    public interface Parser {
+        /** Turns one raw record into an {@link ImportBatchWriter} row; throws {@link IllegalArgumentException} for a bad row. */
+        Object parse(long row, Object raw);
+    }
+
+    /** Receives parsed rows in input order, on the calling thread. */
+    public interface Sink {
+        ImportProgress progress();
+
+        void add(Object row);
+
+        /** Every row up to {@code row} (ending at {@code byteOffset}, -1 if unknown) has been passed to {@link #add} or rejected. */
+        default void mark(long row, long byteOffset) {
+        }
+
+        void finish();
+    }
+
+    private static final class Chunk {
+        final long seq;
+        final long firstRow;
+        final List<Object> raw;
+        final long endOffset;
+        Object[] parsed;
+
+        Chunk(long seq, long firstRow, List<Object> raw, long endOffset) {
+            this.seq = seq;
+            this.firstRow = firstRow;
+            this.raw = raw;
+            this.endOffset = endOffset;
+        }
+    }
+
+    private record Rejected(long row, String error) {}
+
+    private static final Chunk END = new Chunk(-1, 0, List.of(), -1);
+
+    private final int chunkSize;
+    private final int workers;
+    private final int queueDepth;
+
+    public ImportPipeline(int chunkSize, int workers, int queueDepth) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.workers = Math.max(1, workers);
+        this.queueDepth = Math.max(1, queueDepth);
+    }
+
+    /** Runs the import to the end of {@code source} (or until cancelled) and flushes the writer. */
+    public void run(Source source, Parser parser, Sink writer, BooleanSupplier cancelled) throws Exception {
+        run(source, 1, 0, parser, writer, cancelled);
+    }
+
+    /**
+     * Same, numbering the first record {@code firstRow} and dropping records up to row {@code skipThrough} unparsed,
+     * for resuming a job: a source positioned at the checkpoint starts at its row + 1, one that can only start from
+     * the beginning skips through it.
+     */
+    public void run(Source source, long firstRow, long skipThrough, Parser parser, Sink writer,
+                    BooleanSupplier cancelled) throws Exception {
+        ImportProgress progress = writer.progress();
+        BlockingQueue<Chunk> toParse = new ArrayBlockingQueue<>(queueDepth + workers);
+        BlockingQueue<Chunk> toWrite = new ArrayBlockingQueue<>(queueDepth + workers);
+        Semaphore inFlight = new Semaphore(queueDepth);
+        Exception[] readError = new Exception[1];
+        AtomicBoolean stop = new AtomicBoolean();
+
+        Thread reader = Thread.ofVirtual().name("import-reader").start(() -> {
+            long seq = 0;
+            long row = firstRow;
+            try {
+                boolean more = true;
+                while (more && !stop.get() && !cancelled.getAsBoolean()) {
+                    List<Object> raw = new ArrayList<>(chunkSize);
+                    more = source.read(raw, chunkSize);
+                    if (row <= skipThrough && !raw.isEmpty()) {
+                        int drop = (int) Math.min(raw.size(), skipThrough - row + 1);
+                        raw = new ArrayList<>(raw.subList(drop, raw.size()));
+                        row += drop;
+                    }
+                    if (raw.isEmpty()) continue;
+                    inFlight.acquire();
+                    toParse.put(new Chunk(seq++, row, raw, source.offset()));
+                    row += raw.size();
+                    progress.rowsRead.addAndGet(raw.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                readError[0] = e;
+            } catch (Exception e) {
+                readError[0] = e;
+            } finally {
+                for (int i = 0; i < workers; i++) toParse.add(END); // capacity leaves room for these
+            }
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("import-parse-", 0).factory());
+        for (int i = 0; i < workers; i++) {
+            pool.execute(() -> {
+                try {
+                    while (true) {
+                        Chunk c = toParse.take();
+                        if (c == END) break;
+                        c.parsed = parse(parser, c);
+                        toWrite.put(c);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    toWrite.add(END);
+                }
+            });
+        }
+        pool.shutdown();
+
+        Map<Long, Chunk> pending = new HashMap<>();
+        long next = 0;
+        int ended = 0;
+        Exception writeError = null;
+        try {
+            while (ended < workers) {
+                Chunk c = toWrite.take();
+                if (c == END) {
+                    ended++;
+                    continue;
+                }
+                pending.put(c.seq, c);
+                for (Chunk ready; (ready = pending.remove(next)) != null; next++) {
+                    try {
+                        if (writeError == null && !cancelled.getAsBoolean()) {
+                            write(ready, writer, progress);
+                            writer.mark(ready.firstRow + ready.raw.size() - 1, ready.endOffset);
+                        }
+                    } catch (Exception e) {
+                        writeError = e;
+                        stop.set(true);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            }
+            if (writeError == null && !cancelled.getAsBoolean()) writer.finish();
+        } finally {
+            stop.set(true);
+            reader.interrupt();
+            reader.join();
+            pool.shutdownNow();
+        }
+        if (writeError != null) throw writeError;
+        if (readError[0] != null && !cancelled.getAsBoolean()) throw readError[0];
+    }
+
+    private static Object[] parse(Parser parser, Chunk c) {
+        Object[] out = new Object[c.raw.size()];
+        for (int i = 0; i < out.length; i++) {
+            long row = c.firstRow + i;
+            try {
+                out[i] = parser.parse(row, c.raw.get(i));
+            } catch (RuntimeException e) {
+                out[i] = new Rejected(row, ImportBatchWriter.message(e));
+            }
+        }
+        return out;
+    }
+
+    private static void write(Chunk c, Sink writer, ImportProgress progress) {
+        for (Object o : c.parsed) {
+            if (o instanceof Rejected r) progress.reject(r.row(), r.error());
+            else writer.add(o);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for one import, updated by the parser and the {@link ImportBatchWriter} and readable at any time.
+ * Row errors are counted in full but only the first {@code maxErrors} are kept, so a file full of bad rows
+ * cannot grow the response without bound; {@code errorCounts} totals them per kind of error. Warnings are kept
+ * the same way for rows that are (or in a dry run would be) written but look wrong, such as a manager id that
+ * never turned up in the file.
+ */
+public class ImportProgress {
+    private final int maxErrors;
+    final Instant startedAt = Instant.now();
+    volatile Instant finishedAt;
+    final AtomicLong rowsRead = new AtomicLong();
+    final AtomicLong insertedEmployees = new AtomicLong();
+    final AtomicLong insertedTypes = new AtomicLong();
+    final AtomicLong insertedRecognitions = new AtomicLong();
+    final AtomicLong updated = new AtomicLong(); // rows that already existed (same uuid) with other values
+    final AtomicLong unchanged = new AtomicLong(); // rows that already existed as they are
+    final AtomicLong managerChanged = new AtomicLong(); // updated employees whose manager_id changed
+    final AtomicLong deleted = new AtomicLong(); // rows removed by delete rows (delta tombstones)
+    final AtomicLong deletedEmployees = new AtomicLong();
+    final AtomicLong rejected = new AtomicLong();
+    final AtomicLong chunks = new AtomicLong();
+    private final List<Map<String, Object>> errors = new ArrayList<>();
+    private final Map<String, Long> errorCounts = new HashMap<>(); // guarded by errors
+    final AtomicLong warned = new AtomicLong();
+    private final List<Map<String, Object>> warnings = new ArrayList<>();
+    private final Map<String, Long> warningCounts = new HashMap<>(); // guarded by warnings
+
+    public ImportProgress(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void read() {
+        rowsRead.incrementAndGet();
+    }
+
+    public void reject(long row, String error) {
+        rejected.incrementAndGet();
+        record(errors, errorCounts, row, error);
+    }
+
+    /** A row that is not rejected but probably not what was meant. */
+    public void warn(long row, String warning) {
+        warned.incrementAndGet();
+        record(warnings, warningCounts, row, warning);
+    }
+
+    private void record(List<Map<String, Object>> list, Map<String, Long> counts, long row, String message) {
+        synchronized (list) {
+            if (list.size() < maxErrors) list.add(Map.of("row", row, "error", message));
+            String kind = kind(message);
+            if (counts.size() >= 100 && !counts.containsKey(kind)) kind = "other";
+            counts.merge(kind, 1L, Long::sum);
+        }
+    }
+
+    // "sentAt is not an ISO-8601 instant: x" -> "sentAt is not an ISO-8601 instant", "unknown recipientId 12" -> "unknown recipientId"
+    static String kind(String error) {
+        String s = error == null ? "" : error.lines().findFirst().orElse("");
+        if (s.startsWith("ERROR: ")) s = s.substring(7); // PostgreSQL
+        int colon = s.indexOf(": ");
+        if (colon > 0) return s.substring(0, colon);
+        int space = s.lastIndexOf(' ');
+        return space > 0 && s.substring(space + 1).chars().anyMatch(Character::isDigit) ? s.substring(0, space) : s;
+    }
+
+    /** Stops the clock for {@code elapsedMs}. */
+    public void finish() {
+        if (finishedAt == null) finishedAt = Instant.now();
+    }
+
+    public long insertedEmployees() {
+        return insertedEmployees.get();
+    }
+
+    public long managerChanged() {
+        return managerChanged.get();
+    }
+
+    public long deletedEmployees() {
+        return deletedEmployees.get();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("rowsRead", rowsRead.get());
+        m.put("insertedEmployees", insertedEmployees.get());
+        m.put("insertedTypes", insertedTypes.get());
+        m.put("insertedRecognitions", insertedRecognitions.get());
+        m.put("updated", updated.get());
+        m.put("unchanged", unchanged.get());
+        m.put("managerChanged", managerChanged.get());
+        m.put("deleted", deleted.get());
+        m.put("rejected", rejected.get());
+        m.put("chunks", chunks.get());
+        Instant end = finishedAt == null ? Instant.now() : finishedAt;
+        m.put("elapsedMs", end.toEpochMilli() - startedAt.toEpochMilli());
+        List<Map<String, Object>> copy;
+        Map<String, Long> counts = new TreeMap<>();
+        synchronized (errors) {
+            copy = new ArrayList<>(errors);
+            counts.putAll(errorCounts);
+        }
+        copy.sort(Comparator.comparingLong(e -> (Long) e.get("row")));
+        m.put("errorCounts", counts);
+        m.put("errors", copy);
+        m.put("errorsTruncated", rejected.get() > copy.size());
+        if (warned.get() > 0) {
+            List<Map<String, Object>> warningCopy;
+            Map<String, Long> kinds = new TreeMap<>();
+            synchronized (warnings) {
+                warningCopy = new ArrayList<>(warnings);
+                kinds.putAll(warningCounts);
+            }
+            warningCopy.sort(Comparator.comparingLong(e -> (Long) e.get("row")));
+            m.put("warned", warned.get());
+            m.put("warningCounts", kinds);
+            m.put("warnings", warningCopy);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.service;
+
+import org.example.model.RecognitionType;
+import org.example.repository.EmployeeRepository;
+import org.example.repository.RecognitionTypeRepository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Dry-run counterpart of {@link ImportBatchWriter}: rejects exactly what an import would reject and writes nothing,
+ * so the {@link #validCounts} predict the import. Per-row checks that need no context ({@link #checkValues}: the
+ * column lengths the database enforces, on top of the number and date formats the parser checks) run in the
+ * pipeline's parallel parse stage. This sink then gets the rows in file order and checks what depends on the rows
+ * before them: references against the id sets the import would use (existing ids, or only the exported ids of rows
+ * earlier in the file once the file carries them) and type names that would collide with another type (unique in
+ * the database). A manager that only comes later in the file is not an error; one that never comes is a warning.
+ * <p>
+ * Values the import writes as they are but that look wrong (a role other than employee/teamlead/manager, a status
+ * outside PENDING/APPROVED/REJECTED, an email without '@', negative points, a uuid repeated in the file, where the
+ * later row updates the earlier) are reported as warnings on rows that pass. One validator per run, used from a
+ * single thread.
+ */
+public final class ImportValidator implements ImportPipeline.Sink {
+    private static final Set<String> STATUSES = Set.of("PENDING", "APPROVED", "REJECTED");
+    private static final Set<String> ROLES = Set.of("employee", "teamlead", "manager"); // as stored (V2, ROLE_TEAMLEAD)
+
+    private final ImportProgress progress;
+    private final Set<Long> employeeIds;
+    private final Set<Long> typeIds;
+    private final Set<Long> fileEmployeeIds = new HashSet<>(); // exported ids of employees earlier in the file
+    private final Set<Long> fileTypeIds = new HashSet<>();
+    private boolean strictEmployees; // the file carries exported employee ids: references resolve through them only
+    private boolean strictTypes;
+    private final Map<Long, Long> pendingManagers = new LinkedHashMap<>(); // row -> exported manager id not seen yet
+    private final Map<Class<?>, Map<UUID, Long>> uuidRows = new HashMap<>(); // per row kind: uuid -> first row with it
+    private final Map<String, UUID> typeNames = new HashMap<>(); // name -> owner uuid (null: a type without one)
+    private long validEmployees;
+    private long validTypes;
+    private long validRecognitions;
+    private long validDeletes;
+
+    ImportValidator(EmployeeRepository employeeRepo, RecognitionTypeRepository typeRepo, ImportProgress progress) {
+        this.progress = progress;
+        this.employeeIds = new HashSet<>(employeeRepo.findAllIds());
+        this.typeIds = new HashSet<>(typeRepo.findAllIds());
+        for (RecognitionType t : typeRepo.findAll()) typeNames.put(t.getTypeName(), t.getUuid());
+    }
+
+    /** Context-free checks for the parse stage; throws {@link IllegalArgumentException} like the parsers do. */
+    static Object checkValues(Object row) {
+        if (row instanceof ImportBatchWriter.EmployeeRow e) {
+            maxLength(e.firstName(), 100, "firstName");
+            maxLength(e.lastName(), 100, "lastName");
+            maxLength(e.email(), 255, "email");
+            maxLength(e.role(), 50, "role");
+        } else if (row instanceof ImportBatchWriter.TypeRow t) {
+            maxLength(t.typeName(), 150, "typeName");
+        } else if (row instanceof ImportBatchWriter.RecognitionRow r) {
+            maxLength(r.status(), 50, "approvalStatus");
+        }
+        return row;
+    }
+
+    // First suspicious value of a row the import would write, or null.
+    private static String warning(Object row) {
+        if (row instanceof ImportBatchWriter.EmployeeRow e) {
+            if (e.email() != null && e.email().indexOf('@') <= 0) return "email is not an address: " + e.email();
+            if (e.role() != null && !ROLES.contains(e.role().trim().toLowerCase(Locale.ROOT))) {
+                return "role is not one of employee, teamlead, manager: " + e.role();
+            }
+        } else if (row instanceof ImportBatchWriter.RecognitionRow r) {
+            if (r.status() != null && !STATUSES.contains(r.status().trim().toUpperCase(Locale.ROOT))) {
+                return "approvalStatus is not one of PENDING, APPROVED, REJECTED: " + r.status();
+            }
+            if (r.points() != null && r.points() < 0) return "awardPoints is negative: " + r.points();
+        }
+        return null;
+    }
+
+    private static void maxLength(String value, int max, String field) {
+        if (value != null && value.length() > max) throw new IllegalArgumentException(field + " is longer than " + max + " characters");
+    }
+
+    @Override
+    public ImportProgress progress() {
+        return progress;
+    }
+
+    @Override
+    public void add(Object row) {
+        long n = ImportBatchWriter.rowNumber(row);
+        if (row instanceof ImportBatchWriter.DeletedRow) { // a uuid that no longer exists is not an error
+            validDeletes++;
+            return;
+        }
+        if (row instanceof ImportBatchWriter.EmployeeRow e && e.sourceId() != null) strictEmployees = true;
+        if (row instanceof ImportBatchWriter.TypeRow t && t.sourceId() != null) strictTypes = true;
+        Long pendingManager = null;
+        if (strictEmployees && row instanceof ImportBatchWriter.EmployeeRow e && e.managerId() != null
+                && !fileEmployeeIds.contains(e.managerId())) {
+            pendingManager = e.managerId(); // resolved by the import's second pass, if it turns up
+        }
+        Long deferred = pendingManager;
+        String error = ImportBatchWriter.checkRow(row,
+                id -> strictEmployees ? fileEmployeeIds.contains(id) || deferred != null && id == deferred : employeeIds.contains(id) || fileEmployeeIds.contains(id),
+                id -> strictTypes ? fileTypeIds.contains(id) : typeIds.contains(id) || fileTypeIds.contains(id));
+        if (error == null) error = checkTypeName(row);
+        if (error != null) {
+            progress.reject(n, error);
+            return;
+        }
+        String warning = duplicateUuid(row, n);
+        if (warning == null) warning = warning(row);
+        if (warning != null) progress.warn(n, warning);
+        if (pendingManager != null) pendingManagers.put(n, pendingManager);
+        if (row instanceof ImportBatchWriter.EmployeeRow e) {
+            if (e.sourceId() != null) fileEmployeeIds.add(e.sourceId());
+            validEmployees++;
+        } else if (row instanceof ImportBatchWriter.TypeRow t) {
+            if (t.sourceId() != null) fileTypeIds.add(t.sourceId());
+            typeNames.put(t.typeName(), t.uuid());
+            validTypes++;
+        } else {
+            validRecognitions++;
+        }
+    }
+
+    private String checkTypeName(Object row) {
+        if (row instanceof ImportBatchWriter.TypeRow t && typeNames.containsKey(t.typeName())) {
+            UUID owner = typeNames.get(t.typeName());
+            if (owner == null || !owner.equals(t.uuid())) return "duplicate typeName: " + t.typeName();
+        }
+        return null;
+    }
+
+    private String duplicateUuid(Object row, long n) {
+        UUID uuid = row instanceof ImportBatchWriter.EmployeeRow e ? e.uuid()
+                : row instanceof ImportBatchWriter.TypeRow t ? t.uuid() : ((ImportBatchWriter.RecognitionRow) row).uuid();
+        if (uuid == null) return null;
+        Long first = uuidRows.computeIfAbsent(row.getClass(), k -> new HashMap<>()).putIfAbsent(uuid, n);
+        return first == null ? null : "duplicate uuid: " + uuid + ", row " + first + " is updated by this row";
+    }
+
+    @Override
+    public void finish() {
+        pendingManagers.forEach((n, managerId) -> {
+            if (!fileEmployeeIds.contains(managerId)) progress.warn(n, "unknown managerId " + managerId + ", saved without changing the manager");
+        });
+    }
+
+    /** Rows that would be written, by table. */
+    public Map<String, Object> validCounts() {
+        return Map.of("employees", validEmployees, "recognitionTypes", validTypes, "recognitions", validRecognitions, "deletes", validDeletes);
+    }
+}
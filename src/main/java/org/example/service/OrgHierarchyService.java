@@ -0,0 +1,130 @@
+package org.example.service;
+
+import org.example.model.Employee;
+import org.example.repository.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+
+/**
+ * Keeps the employee_closure table and the in-memory {@link OrgTreeIndex} in step with manager_id.
+ * The closure table serves SQL joins ("recognitions received by anyone under manager X"),
+ * the index serves O(1) membership checks on already-loaded rows.
+ */
+@Service
+public class OrgHierarchyService {
+    private static final Logger log = LoggerFactory.getLogger(OrgHierarchyService.class);
+
+    private final EmployeeRepository employeeRepository;
+    private volatile OrgTreeIndex index;
+
+    public OrgHierarchyService(EmployeeRepository employeeRepository) {
+        this.employeeRepository = employeeRepository;
+    }
+
+    /** Current snapshot, built lazily and rebuilt after the next hierarchy change. */
+    public OrgTreeIndex index() {
+        OrgTreeIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    long start = System.nanoTime();
+                    current = OrgTreeIndex.build(employeeRepository.findAllManagerLinks());
+                    index = current;
+                    log.info("Org tree index built: {} employees in {} ms", current.size(), (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return current;
+    }
+
+    public void invalidate() {
+        index = null;
+    }
+
+    // A rebuild racing the open transaction would read the old manager_id values, so drop the snapshot again on commit
+    private void invalidateAfterCommit() {
+        invalidate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        }
+    }
+
+    /** True if {@code employeeId} reports to {@code managerId} directly or transitively. */
+    public boolean isUnder(Long managerId, Long employeeId) {
+        return index().isUnder(managerId, employeeId);
+    }
+
+    /** True if making {@code newManagerId} the manager of {@code employeeId} would create a cycle. */
+    public boolean wouldCreateCycle(Long employeeId, Long newManagerId) {
+        if (employeeId == null || newManagerId == null) return false;
+        return index().isInSubtree(employeeId, newManagerId);
+    }
+
+    // The employee row and its closure paths change in one transaction, so a failed write leaves neither behind
+
+    @Transactional
+    public Employee createEmployee(Employee e) {
+        Employee saved = employeeRepository.saveAndFlush(e);
+        employeeRepository.insertClosureForNewEmployee(saved.getId(), saved.getManagerId());
+        invalidateAfterCommit();
+        return saved;
+    }
+
+    /** Saves the edited employee; {@code previousManagerId} is its manager as loaded, before the edit. */
+    @Transactional
+    public Employee updateEmployee(Employee e, Long previousManagerId) {
+        Employee saved = employeeRepository.saveAndFlush(e);
+        if (!Objects.equals(previousManagerId, saved.getManagerId())) {
+            employeeRepository.detachClosureSubtree(saved.getId());
+            if (saved.getManagerId() != null) employeeRepository.attachClosureSubtree(saved.getId(), saved.getManagerId());
+            invalidateAfterCommit();
+        }
+        return saved;
+    }
+
+    /**
+     * Direct reports move up to the deleted employee's manager, so their subtrees stay attached to the rest
+     * of the org; the closure is collapsed before the row goes.
+     */
+    @Transactional
+    public void deleteEmployee(Employee e) {
+        employeeRepository.collapseClosureThrough(e.getId());
+        employeeRepository.deleteClosureFor(e.getId());
+        employeeRepository.reassignDirectReports(e.getId(), e.getManagerId());
+        employeeRepository.deleteById(e.getId());
+        employeeRepository.flush();
+        invalidateAfterCommit();
+    }
+
+    /**
+     * Adds the paths of employees that are not in the closure yet, used after bulk imports that only inserted
+     * employees. Unlike a rebuild it leaves existing paths alone, so scoped report partials stay valid.
+     */
+    @Transactional
+    public void addNewEmployees() {
+        int rows = employeeRepository.insertMissingClosurePaths();
+        invalidateAfterCommit();
+        log.info("employee_closure: {} paths added for new employees", rows);
+    }
+
+    /** Full rebuild from manager_id, used after bulk imports that changed existing manager links. */
+    @Transactional
+    public void rebuildClosure() {
+        employeeRepository.clearClosure();
+        int rows = employeeRepository.fillClosureFromManagerLinks();
+        invalidateAfterCommit();
+        log.info("employee_closure rebuilt: {} rows", rows);
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable in-memory snapshot of the org tree with Euler-tour numbering.
+ * Each employee gets an entry time (tin) and the last entry time inside its subtree (tout), so
+ * "is X under manager M" is the O(1) interval check tin[M] <= tin[X] && tin[X] <= tout[M],
+ * and a manager's whole subtree is the contiguous slice order[tin[M]..tout[M]].
+ */
+public final class OrgTreeIndex {
+    private final Map<Long, Integer> slotById;
+    private final long[] ids;
+    private final int[] parent;
+    private final int[] tin;
+    private final int[] tout;
+    private final int[] depth;
+    private final long[] order;
+
+    private OrgTreeIndex(Map<Long, Integer> slotById, long[] ids, int[] parent, int[] tin, int[] tout, int[] depth, long[] order) {
+        this.slotById = slotById;
+        this.ids = ids;
+        this.parent = parent;
+        this.tin = tin;
+        this.tout = tout;
+        this.depth = depth;
+        this.order = order;
+    }
+
+    /**
+     * Build the index from (id, manager_id) rows. Managers that don't exist and cycles in legacy data
+     * are tolerated: such employees simply become roots.
+     */
+    public static OrgTreeIndex build(List<Object[]> managerLinks) {
+        int n = managerLinks.size();
+        long[] ids = new long[n];
+        Map<Long, Integer> slotById = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            ids[i] = ((Number) managerLinks.get(i)[0]).longValue();
+            slotById.put(ids[i], i);
+        }
+        int[] parent = new int[n];
+        int[] childCount = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Object m = managerLinks.get(i)[1];
+            Integer p = m == null ? null : slotById.get(((Number) m).longValue());
+            parent[i] = (p == null || p == i) ? -1 : p;
+            if (parent[i] >= 0) childCount[parent[i] + 1]++;
+        }
+        // Children in CSR layout: children of slot s are childSlots[childStart[s]..childStart[s+1])
+        int[] childStart = new int[n + 1];
+        for (int i = 0; i < n; i++) childStart[i + 1] = childStart[i] + childCount[i + 1];
+        int[] fill = Arrays.copyOf(childStart, n);
+        int[] childSlots = new int[Math.max(0, childStart[n])];
+        for (int i = 0; i < n; i++) {
+            if (parent[i] >= 0) childSlots[fill[parent[i]]++] = i;
+        }
+
+        int[] tin = new int[n];
+        int[] tout = new int[n];
+        int[] depth = new int[n];
+        long[] order = new long[n];
+        Arrays.fill(tin, -1);
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        int timer = 0;
+        // Real roots first, then anything left unvisited (members of a manager_id cycle)
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < n; root++) {
+                if (tin[root] >= 0 || (pass == 0 && parent[root] >= 0)) continue;
+                int sp = 0;
+                stack[sp++] = root;
+                cursor[root] = childStart[root];
+                depth[root] = 0;
+                order[timer] = ids[root];
+                tin[root] = timer++;
+                while (sp > 0) {
+                    int s = stack[sp - 1];
+                    if (cursor[s] < childStart[s + 1]) {
+                        int c = childSlots[cursor[s]++];
+                        if (tin[c] >= 0) continue;
+                        depth[c] = depth[s] + 1;
+                        cursor[c] = childStart[c];
+                        order[timer] = ids[c];
+                        tin[c] = timer++;
+                        stack[sp++] = c;
+                    } else {
+                        tout[s] = timer - 1;
+                        sp--;
+                    }
+                }
+            }
+        }
+        return new OrgTreeIndex(slotById, ids, parent, tin, tout, depth, order);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean contains(Long employeeId) {
+        return employeeId != null && slotById.containsKey(employeeId);
+    }
+
+    /** True if {@code employeeId} is {@code managerId} itself or anywhere below it. */
+    public boolean isInSubtree(Long managerId, Long employeeId) {
+        if (managerId == null || employeeId == null) return false;
+        Integer m = slotById.get(managerId);
+        Integer e = slotById.get(employeeId);
+        if (m == null || e == null) return false;
+        return tin[m] <= tin[e] && tin[e] <= tout[m];
+    }
+
+    /** Strictly below {@code managerId}; the manager is not part of its own team. */
+    public boolean isUnder(Long managerId, Long employeeId) {
+        return isInSubtree(managerId, employeeId) && !managerId.equals(employeeId);
+    }
+
+    /** Ids of everyone below {@code managerId} (excluding the manager), in Euler-tour order. */
+    public long[] descendants(Long managerId) {
+        Integer m = managerId == null ? null : slotById.get(managerId);
+        if (m == null) return new long[0];
+        return Arrays.copyOfRange(order, tin[m] + 1, tout[m] + 1);
+    }
+
+    public int subtreeSize(Long managerId) {
+        Integer m = managerId == null ? null : slotById.get(managerId);
+        return m == null ? 0 : tout[m] - tin[m];
+    }
+
+    public int depthOf(Long employeeId) {
+        Integer e = employeeId == null ? null : slotById.get(employeeId);
+        return e == null ? -1 : depth[e];
+    }
+
+    /** Ids from the direct manager up to the root. */
+    public List<Long> ancestors(Long employeeId) {
+        List<Long> out = new ArrayList<>();
+        Integer e = employeeId == null ? null : slotById.get(employeeId);
+        if (e == null) return out;
+        for (int p = parent[e]; p >= 0 && out.size() < ids.length; p = parent[p]) out.add(ids[p]);
+        return out;
+    }
+}
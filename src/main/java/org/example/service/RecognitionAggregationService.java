@@ -0,0 +1,288 @@
+package org.example.service;
+
+import org.example.dto.RecognitionGraphFilter;
+import org.example.dto.SeriesTable;
+import org.example.model.Employee;
+import org.example.model.RecognitionType;
+import org.example.repository.EmployeeRepository;
+import org.example.repository.RecognitionRepository;
+import org.example.repository.RecognitionTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Database-side bucketed recognition counts for the graph endpoints.
+ * Filters that only touch type/status/points/timeframe are answered from recognition_daily_rollup;
+ * anything involving people, units, roles or categories falls back to a GROUP BY over recognitions.
+ */
+@Service
+public class RecognitionAggregationService {
+    private static final Logger log = LoggerFactory.getLogger(RecognitionAggregationService.class);
+    public static final int DEFAULT_ITERATIONS = 10;
+    public static final int MAX_ITERATIONS = 366;
+    // Further series are folded into "other" so stacked charts stay readable
+    public static final int MAX_SERIES = 8;
+    // Matches nothing; used when a filter names something that doesn't exist
+    private static final long NO_MATCH = -1L;
+
+    private final RecognitionRepository recognitionRepository;
+    private final EmployeeRepository employeeRepository;
+    private final RecognitionTypeRepository recognitionTypeRepository;
+
+    public RecognitionAggregationService(RecognitionRepository recognitionRepository,
+                                         EmployeeRepository employeeRepository,
+                                         RecognitionTypeRepository recognitionTypeRepository) {
+        this.recognitionRepository = recognitionRepository;
+        this.employeeRepository = employeeRepository;
+        this.recognitionTypeRepository = recognitionTypeRepository;
+    }
+
+    public enum Bucket {
+        DAYS("day"), WEEKS("week"), MONTHS("month"), YEARS("year");
+
+        final String sqlUnit;
+
+        Bucket(String sqlUnit) { this.sqlUnit = sqlUnit; }
+
+        public static Bucket of(String timeframe) {
+            if (timeframe == null) return DAYS;
+            return switch (timeframe.trim().toLowerCase(Locale.ROOT)) {
+                case "week", "weeks", "weekly" -> WEEKS;
+                case "month", "months", "monthly" -> MONTHS;
+                case "year", "years", "yearly" -> YEARS;
+                default -> DAYS;
+            };
+        }
+
+        LocalDate start(LocalDate d) {
+            return switch (this) {
+                case WEEKS -> d.with(DayOfWeek.MONDAY);
+                case MONTHS -> d.withDayOfMonth(1);
+                case YEARS -> d.withDayOfYear(1);
+                default -> d;
+            };
+        }
+
+        LocalDate minus(LocalDate d, int n) {
+            return switch (this) {
+                case WEEKS -> d.minusWeeks(n);
+                case MONTHS -> d.minusMonths(n);
+                case YEARS -> d.minusYears(n);
+                default -> d.minusDays(n);
+            };
+        }
+
+        public String label(LocalDate bucketStart) {
+            return this == YEARS ? String.valueOf(bucketStart.getYear()) : bucketStart.toString();
+        }
+    }
+
+    /** Ordered bucket label to recognition count, oldest first, with empty buckets filled with 0. */
+    public Map<String, Integer> timeSeries(RecognitionGraphFilter f) {
+        Window w = window(f);
+        Map<String, Integer> series = new LinkedHashMap<>();
+        for (String label : w.labels) series.put(label, 0);
+
+        Long typeId = resolveTypeId(f.type);
+        String status = statusOf(f);
+        List<Object[]> rows;
+        if (rollupEligible(f)) {
+            rows = recognitionRepository.bucketedCountsFromRollup(w.bucket.sqlUnit, w.firstBucket, w.today, typeId, status, f.points);
+            log.debug("Graph aggregate from daily rollup: bucket={}, from={}, buckets={}", w.bucket, w.firstBucket, w.labels.size());
+        } else {
+            Resolved r = resolve(f);
+            rows = recognitionRepository.bucketedCounts(w.bucket.sqlUnit, w.from(), w.to(),
+                    r.recipientId, r.recipientName, r.senderId, r.senderName,
+                    r.managerId, f.unitId, r.role, typeId, status, f.points, r.category);
+            log.debug("Graph aggregate from recognitions: bucket={}, from={}, buckets={}", w.bucket, w.from(), w.labels.size());
+        }
+        for (Object[] row : rows) {
+            LocalDate d = toLocalDate(row[0]);
+            if (d == null) continue;
+            series.computeIfPresent(w.bucket.label(w.bucket.start(d)), (k, v) -> v + ((Number) row[1]).intValue());
+        }
+        return series;
+    }
+
+    /**
+     * Counts per bucket split by {@code dimension} (status, type or role) from one GROUP BY, for stacked or
+     * grouped charts. Series are ordered by total, largest first; beyond {@link #MAX_SERIES} they are summed into "other".
+     */
+    public SeriesTable seriesBy(RecognitionGraphFilter f, String dimension) {
+        String dim = dimensionOf(dimension);
+        Window w = window(f);
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < w.labels.size(); i++) index.put(w.labels.get(i), i);
+
+        Long typeId = resolveTypeId(f.type);
+        String status = statusOf(f);
+        List<Object[]> rows;
+        if (rollupEligible(f) && !dim.equals("role")) {
+            rows = recognitionRepository.bucketedCountsByFromRollup(dim, w.bucket.sqlUnit, w.firstBucket, w.today, typeId, status, f.points);
+        } else {
+            Resolved r = resolve(f);
+            rows = recognitionRepository.bucketedCountsBy(dim, w.bucket.sqlUnit, w.from(), w.to(),
+                    r.recipientId, r.recipientName, r.senderId, r.senderName,
+                    r.managerId, f.unitId, r.role, typeId, status, f.points, r.category);
+        }
+        Map<String, int[]> columns = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            LocalDate d = toLocalDate(row[0]);
+            if (d == null) continue;
+            Integer i = index.get(w.bucket.label(w.bucket.start(d)));
+            if (i == null) continue;
+            String name = row[1] == null ? "(none)" : row[1].toString();
+            columns.computeIfAbsent(name, k -> new int[w.labels.size()])[i] += ((Number) row[2]).intValue();
+        }
+        List<Map.Entry<String, int[]>> ordered = new ArrayList<>(columns.entrySet());
+        ordered.sort((a, b) -> Long.compare(sum(b.getValue()), sum(a.getValue())));
+        int keep = ordered.size() > MAX_SERIES ? MAX_SERIES - 1 : ordered.size();
+        String[] names = new String[ordered.size() > MAX_SERIES ? MAX_SERIES : ordered.size()];
+        int[][] values = new int[names.length][];
+        for (int s = 0; s < keep; s++) {
+            names[s] = ordered.get(s).getKey();
+            values[s] = ordered.get(s).getValue();
+        }
+        if (keep < names.length) {
+            int[] other = new int[w.labels.size()];
+            for (int s = keep; s < ordered.size(); s++) {
+                int[] v = ordered.get(s).getValue();
+                for (int i = 0; i < other.length; i++) other[i] += v[i];
+            }
+            names[keep] = "other";
+            values[keep] = other;
+        }
+        return new SeriesTable(w.labels.toArray(new String[0]), names, values);
+    }
+
+    public static String dimensionOf(String dimension) {
+        if (dimension == null) return "status";
+        return switch (dimension.trim().toLowerCase(Locale.ROOT)) {
+            case "type", "types" -> "type";
+            case "role", "roles" -> "role";
+            default -> "status";
+        };
+    }
+
+    private record Window(Bucket bucket, LocalDate firstBucket, LocalDate today, List<String> labels) {
+        Instant from() { return firstBucket.atStartOfDay(ZoneOffset.UTC).toInstant(); }
+        Instant to() { return today.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(); }
+    }
+
+    private static Window window(RecognitionGraphFilter f) {
+        Bucket bucket = Bucket.of(f.timeframe);
+        int iterations = f.iterations == null || f.iterations <= 0 ? DEFAULT_ITERATIONS : Math.min(f.iterations, MAX_ITERATIONS);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate firstBucket = bucket.start(bucket.minus(today, iterations - 1));
+        List<String> labels = new ArrayList<>(iterations + 1);
+        for (LocalDate d = firstBucket; !d.isAfter(today); d = bucket.minus(d, -1)) labels.add(bucket.label(d));
+        return new Window(bucket, firstBucket, today, labels);
+    }
+
+    private record Resolved(Long recipientId, String recipientName, Long senderId, String senderName,
+                            Long managerId, String role, String category) {}
+
+    private Resolved resolve(RecognitionGraphFilter f) {
+        Long recipientId = f.id;
+        if (recipientId == null && f.uuid != null) {
+            recipientId = employeeRepository.findByUuid(f.uuid).map(Employee::getId).orElse(NO_MATCH);
+        }
+        if (recipientId == null) recipientId = resolveEmployeeId(f.receiver);
+        String recipientName = namePattern(f.name);
+        if (recipientName == null) recipientName = namePattern(f.receiver);
+        Long managerId = f.managerId != null ? f.managerId : resolveManagerId(f.manager);
+        String role = blankOrAll(f.role) ? null : f.role.trim();
+        String category = blankOrAll(f.category) ? null : "%" + f.category.trim().toLowerCase(Locale.ROOT) + "%";
+        return new Resolved(recipientId, recipientName, resolveEmployeeId(f.sender), namePattern(f.sender), managerId, role, category);
+    }
+
+    private static String statusOf(RecognitionGraphFilter f) {
+        return blankOrAll(f.status) ? null : f.status.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static long sum(int[] v) {
+        long t = 0;
+        for (int x : v) t += x;
+        return t;
+    }
+
+    // The rollup only carries type/status/points, so any other filter needs the raw rows
+    private static boolean rollupEligible(RecognitionGraphFilter f) {
+        return f.id == null && f.uuid == null && f.unitId == null && f.managerId == null
+                && blankOrAll(f.name) && blankOrAll(f.role) && blankOrAll(f.sender) && blankOrAll(f.receiver)
+                && blankOrAll(f.manager) && blankOrAll(f.category);
+    }
+
+    private Long resolveTypeId(String type) {
+        if (blankOrAll(type)) return null;
+        String t = type.trim();
+        if (isNumeric(t)) return Long.parseLong(t);
+        List<RecognitionType> matches = recognitionTypeRepository.findByTypeNameContainingIgnoreCase(t);
+        return matches.stream().filter(m -> t.equalsIgnoreCase(m.getTypeName())).findFirst()
+                .or(() -> matches.stream().findFirst())
+                .map(RecognitionType::getId)
+                .orElse(NO_MATCH);
+    }
+
+    // Numeric ids and emails resolve to an id; plain names are matched with namePattern instead
+    private Long resolveEmployeeId(String ref) {
+        if (blankOrAll(ref)) return null;
+        String r = ref.trim();
+        if (isNumeric(r)) return Long.parseLong(r);
+        if (r.contains("@")) return employeeRepository.findByEmail(r).map(Employee::getId).orElse(NO_MATCH);
+        return null;
+    }
+
+    private Long resolveManagerId(String ref) {
+        Long id = resolveEmployeeId(ref);
+        if (id != null || blankOrAll(ref)) return id;
+        String r = ref.trim();
+        return employeeRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(r, r, PageRequest.of(0, 1))
+                .stream().findFirst().map(Employee::getId).orElse(NO_MATCH);
+    }
+
+    private static String namePattern(String ref) {
+        if (blankOrAll(ref)) return null;
+        String r = ref.trim();
+        if (isNumeric(r) || r.contains("@")) return null;
+        return "%" + r.toLowerCase(Locale.ROOT) + "%";
+    }
+
+    private static boolean blankOrAll(String s) {
+        return s == null || s.isBlank() || s.trim().equalsIgnoreCase("all");
+    }
+
+    private static boolean isNumeric(String s) {
+        // Longer digit strings would overflow a bigint id
+        if (s.isEmpty() || s.length() > 18) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static LocalDate toLocalDate(Object o) {
+        if (o instanceof java.sql.Timestamp ts) return ts.toLocalDateTime().toLocalDate();
+        if (o instanceof LocalDateTime ldt) return ldt.toLocalDate();
+        if (o instanceof OffsetDateTime odt) return odt.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        if (o instanceof Instant i) return i.atZone(ZoneOffset.UTC).toLocalDate();
+        if (o instanceof java.sql.Date d) return d.toLocalDate();
+        if (o instanceof LocalDate d) return d;
+        return null;
+    }
+}
@@ -12,14 +12,17 @@ import java.util.List;
 
 @Service
 public class RecognitionCsvExporter {
+    /** Column order shared with the report CSV (ReportsService). */
+    static final String[] HEADER = {
+            "id", "uuid", "recognitionTypeId", "recognitionTypeName", "category", "level", "recipientId", "recipientUuid", "recipientName", "recipientRole", "senderId", "senderUuid", "senderName", "senderRole", "sentAt", "awardPoints", "approvalStatus", "rejectionReason", "message", "createdAt"
+    };
+
     /**
      * Export a list of recognitions to CSV as bytes.
      */
     public byte[] export(List<Recognition> list) throws Exception {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (CSVPrinter printer = CSVFormat.DEFAULT.withHeader(
-                "id", "uuid", "recognitionTypeId", "recognitionTypeName", "category", "level", "recipientId", "recipientUuid", "recipientName", "recipientRole", "senderId", "senderUuid", "senderName", "senderRole", "sentAt", "awardPoints", "approvalStatus", "rejectionReason", "message", "createdAt"
-        ).print(new OutputStreamWriter(baos, StandardCharsets.UTF_8))) {
+        try (CSVPrinter printer = CSVFormat.DEFAULT.withHeader(HEADER).print(new OutputStreamWriter(baos, StandardCharsets.UTF_8))) {
             for (Recognition r : list) {
                 printer.printRecord(
                         r.getId(),
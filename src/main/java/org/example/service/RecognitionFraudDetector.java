@@ -0,0 +1,293 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.model.ReviewFlag;
+import org.example.repository.ReviewFlagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streaming detector for recognition gaming (pair farming, mutual back-scratching, small rings).
+ * The create path only does a non-blocking offer onto a bounded queue; a single worker thread owns all state,
+ * so the counters need no locking. Each active pair holds a fixed ring of time buckets, and pairs/cliques with
+ * no activity inside the window are evicted, so memory is constant per active pair.
+ * Anomalies are written to recognition_review_flag for approvers; recognitions themselves are left untouched.
+ */
+@Service
+public class RecognitionFraudDetector {
+    private static final Logger log = LoggerFactory.getLogger(RecognitionFraudDetector.class);
+    private static final int BUCKETS = 24;
+
+    public static final String PAIR_BURST = "PAIR_BURST";
+    public static final String RECIPROCAL_BURST = "RECIPROCAL_BURST";
+    public static final String CLIQUE_BURST = "CLIQUE_BURST";
+
+    private final ReviewFlagRepository reviewFlagRepository;
+    private final BlockingQueue<Event> queue;
+    private final long bucketMillis;
+    private final int pairThreshold;
+    private final int reciprocalThreshold;
+    private final int cliqueThreshold;
+    private final int maxPairs;
+    private final int maxFanout;
+
+    // Worker-thread state
+    private final Map<PairKey, PairState> pairs = new HashMap<>();
+    private final Map<Long, Set<Long>> outNeighbours = new HashMap<>();
+    private final Map<CliqueKey, CliqueState> cliques = new HashMap<>();
+    private long lastSweepBucket;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private volatile int activePairs;
+    private volatile int activeCliques;
+    private volatile boolean running;
+    private Thread worker;
+
+    public RecognitionFraudDetector(ReviewFlagRepository reviewFlagRepository,
+                                    @Value("${app.fraud.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${app.fraud.window-minutes:1440}") long windowMinutes,
+                                    @Value("${app.fraud.pair-threshold:5}") int pairThreshold,
+                                    @Value("${app.fraud.reciprocal-threshold:3}") int reciprocalThreshold,
+                                    @Value("${app.fraud.clique-threshold:6}") int cliqueThreshold,
+                                    @Value("${app.fraud.max-pairs:200000}") int maxPairs,
+                                    @Value("${app.fraud.max-fanout:64}") int maxFanout) {
+        this.reviewFlagRepository = reviewFlagRepository;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.bucketMillis = Math.max(1L, TimeUnit.MINUTES.toMillis(windowMinutes) / BUCKETS);
+        this.pairThreshold = pairThreshold;
+        this.reciprocalThreshold = reciprocalThreshold;
+        this.cliqueThreshold = cliqueThreshold;
+        this.maxPairs = maxPairs;
+        this.maxFanout = maxFanout;
+    }
+
+    record Event(long recognitionId, long senderId, long recipientId, int points, long atMillis) {}
+
+    record PairKey(long sender, long recipient) {}
+
+    // Members sorted so every rotation of the same triangle maps to one key
+    record CliqueKey(long a, long b, long c) {
+        static CliqueKey of(long x, long y, long z) {
+            long lo = Math.min(x, Math.min(y, z));
+            long hi = Math.max(x, Math.max(y, z));
+            return new CliqueKey(lo, x + y + z - lo - hi, hi);
+        }
+    }
+
+    /** Fixed ring of per-bucket counts; advancing clears buckets that fell out of the window. */
+    static final class SlidingCounter {
+        private final int[] counts = new int[BUCKETS];
+        private long head = Long.MIN_VALUE;
+        private int total;
+
+        void add(long bucket, int n) {
+            advance(bucket);
+            counts[(int) Math.floorMod(bucket, (long) BUCKETS)] += n;
+            total += n;
+        }
+
+        int total(long bucket) {
+            advance(bucket);
+            return total;
+        }
+
+        private void advance(long bucket) {
+            if (head == Long.MIN_VALUE || bucket - head >= BUCKETS) {
+                java.util.Arrays.fill(counts, 0);
+                total = 0;
+                head = bucket;
+                return;
+            }
+            while (head < bucket) {
+                head++;
+                int i = (int) Math.floorMod(head, (long) BUCKETS);
+                total -= counts[i];
+                counts[i] = 0;
+            }
+        }
+    }
+
+    static final class PairState {
+        final SlidingCounter count = new SlidingCounter();
+        final SlidingCounter points = new SlidingCounter();
+        long lastBucket;
+        long flaggedBucket = Long.MIN_VALUE;
+        long reciprocalFlaggedBucket = Long.MIN_VALUE;
+    }
+
+    static final class CliqueState {
+        final SlidingCounter count = new SlidingCounter();
+        long lastBucket;
+        long flaggedBucket = Long.MIN_VALUE;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::run, "recognition-fraud-detector");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+    }
+
+    /** Called from the request thread after a recognition is saved; never blocks. */
+    public void submit(Long recognitionId, Long senderId, Long recipientId, Integer points) {
+        if (recognitionId == null || senderId == null || recipientId == null || senderId.equals(recipientId)) return;
+        received.incrementAndGet();
+        if (!queue.offer(new Event(recognitionId, senderId, recipientId, points == null ? 0 : points, System.currentTimeMillis()))) {
+            long d = dropped.incrementAndGet();
+            if (d == 1 || d % 1000 == 0) log.warn("Fraud detector queue full, {} events dropped so far", d);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("received", received.get());
+        out.put("dropped", dropped.get());
+        out.put("queued", queue.size());
+        out.put("activePairs", activePairs);
+        out.put("activeCliques", activeCliques);
+        out.put("flagged", flagged.get());
+        return out;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Event e = queue.poll(1, TimeUnit.SECONDS);
+                long bucket = (e != null ? e.atMillis() : System.currentTimeMillis()) / bucketMillis;
+                if (bucket != lastSweepBucket) {
+                    evictIdle(bucket);
+                    lastSweepBucket = bucket;
+                }
+                if (e != null) process(e, bucket);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                // Keep consuming; one bad event or a failed flag insert must not stop detection
+                log.warn("Fraud detector failed to process event: {}", ex.getMessage());
+            }
+        }
+    }
+
+    void process(Event e, long bucket) {
+        PairKey key = new PairKey(e.senderId(), e.recipientId());
+        PairState pair = pairs.get(key);
+        if (pair == null) {
+            if (pairs.size() >= maxPairs) { // new pairs are skipped until the next bucket sweep frees space
+                dropped.incrementAndGet();
+                return;
+            }
+            pair = new PairState();
+            pairs.put(key, pair);
+            outNeighbours.computeIfAbsent(e.senderId(), k -> new HashSet<>()).add(e.recipientId());
+        }
+        pair.count.add(bucket, 1);
+        pair.points.add(bucket, e.points());
+        pair.lastBucket = bucket;
+        List<ReviewFlag> out = new ArrayList<>(2);
+
+        int n = pair.count.total(bucket);
+        if (n >= pairThreshold && !recentlyFlagged(pair.flaggedBucket, bucket)) {
+            pair.flaggedBucket = bucket;
+            out.add(flag(e, PAIR_BURST, n, pair.points.total(bucket),
+                    n + " recognitions from " + e.senderId() + " to " + e.recipientId() + " within the window"));
+        }
+
+        PairState back = pairs.get(new PairKey(e.recipientId(), e.senderId()));
+        if (back != null) {
+            int m = back.count.total(bucket);
+            if (n >= reciprocalThreshold && m >= reciprocalThreshold
+                    && !recentlyFlagged(pair.reciprocalFlaggedBucket, bucket) && !recentlyFlagged(back.reciprocalFlaggedBucket, bucket)) {
+                pair.reciprocalFlaggedBucket = bucket;
+                back.reciprocalFlaggedBucket = bucket;
+                out.add(flag(e, RECIPROCAL_BURST, n + m, pair.points.total(bucket) + back.points.total(bucket),
+                        e.senderId() + " and " + e.recipientId() + " exchanged " + n + "/" + m + " recognitions within the window"));
+            }
+        }
+
+        // Triangles closed by this edge: sender -> recipient -> c -> sender
+        Set<Long> next = outNeighbours.get(e.recipientId());
+        if (next != null && next.size() <= maxFanout) {
+            for (Long c : next) {
+                if (c == e.senderId()) continue;
+                PairState closing = pairs.get(new PairKey(c, e.senderId()));
+                if (closing == null || closing.count.total(bucket) == 0) continue;
+                CliqueKey ck = CliqueKey.of(e.senderId(), e.recipientId(), c);
+                CliqueState clique = cliques.computeIfAbsent(ck, k -> new CliqueState());
+                clique.count.add(bucket, 1);
+                clique.lastBucket = bucket;
+                int cn = clique.count.total(bucket);
+                if (cn >= cliqueThreshold && !recentlyFlagged(clique.flaggedBucket, bucket)) {
+                    clique.flaggedBucket = bucket;
+                    out.add(flag(e, CLIQUE_BURST, cn, null,
+                            "ring " + ck.a() + ", " + ck.b() + ", " + ck.c() + " closed " + cn + " times within the window"));
+                }
+            }
+        }
+        activePairs = pairs.size();
+        activeCliques = cliques.size();
+        if (!out.isEmpty()) {
+            reviewFlagRepository.saveAll(out);
+            flagged.addAndGet(out.size());
+        }
+    }
+
+    // One flag per pair/clique and rule per window
+    private static boolean recentlyFlagged(long flaggedBucket, long bucket) {
+        return flaggedBucket != Long.MIN_VALUE && bucket - flaggedBucket < BUCKETS;
+    }
+
+    private void evictIdle(long bucket) {
+        Iterator<Map.Entry<PairKey, PairState>> it = pairs.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<PairKey, PairState> entry = it.next();
+            if (bucket - entry.getValue().lastBucket < BUCKETS) continue;
+            it.remove();
+            Set<Long> out = outNeighbours.get(entry.getKey().sender());
+            if (out != null) {
+                out.remove(entry.getKey().recipient());
+                if (out.isEmpty()) outNeighbours.remove(entry.getKey().sender());
+            }
+        }
+        cliques.values().removeIf(c -> bucket - c.lastBucket >= BUCKETS);
+        activePairs = pairs.size();
+        activeCliques = cliques.size();
+    }
+
+    private static ReviewFlag flag(Event e, String rule, int count, Integer points, String detail) {
+        ReviewFlag f = new ReviewFlag();
+        f.setRecognitionId(e.recognitionId());
+        f.setSenderId(e.senderId());
+        f.setRecipientId(e.recipientId());
+        f.setRule(rule);
+        f.setWindowCount(count);
+        f.setWindowPoints(points);
+        f.setDetail(detail);
+        return f;
+    }
+}
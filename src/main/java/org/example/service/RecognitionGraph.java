@@ -0,0 +1,328 @@
+package org.example.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable sender-to-recipient recognition graph in compressed sparse row form.
+ * Nodes are employees (dense slots 0..n-1); out-edges of slot u are outTarget[outStart[u]..outStart[u+1])
+ * sorted by target, with parallel weight arrays. A reverse CSR (inStart/inSource/inCount) backs the
+ * pull-based PageRank. Everything is primitive arrays so ~50k nodes and millions of edges stay compact.
+ */
+public final class RecognitionGraph {
+    static final long NO_UNIT = Long.MIN_VALUE;
+
+    private final long[] nodeIds;
+    private final long[] unitIds;
+    private final Map<Long, Integer> slotById;
+    private final int[] outStart;
+    private final int[] outTarget;
+    private final int[] outCount;
+    private final long[] outPoints;
+    private final long[] outWeight;
+    private final int[] inStart;
+    private final int[] inSource;
+    private final int[] inCount;
+    // Highest recognitions.id folded into this graph; deltas start after it
+    private final long highWaterMark;
+
+    private RecognitionGraph(long[] nodeIds, long[] unitIds, Map<Long, Integer> slotById,
+                             int[] outStart, int[] outTarget, int[] outCount, long[] outPoints,
+                             int[] inStart, int[] inSource, int[] inCount, long highWaterMark) {
+        this.nodeIds = nodeIds;
+        this.unitIds = unitIds;
+        this.slotById = slotById;
+        this.outStart = outStart;
+        this.outTarget = outTarget;
+        this.outCount = outCount;
+        this.outPoints = outPoints;
+        this.inStart = inStart;
+        this.inSource = inSource;
+        this.inCount = inCount;
+        this.highWaterMark = highWaterMark;
+        int n = nodeIds.length;
+        this.outWeight = new long[n];
+        for (int u = 0; u < n; u++) {
+            long w = 0;
+            for (int e = outStart[u]; e < outStart[u + 1]; e++) w += outCount[e];
+            outWeight[u] = w;
+        }
+    }
+
+    /** Growable primitive edge list; duplicates are allowed and summed when the graph is built. */
+    public static final class EdgeBuffer {
+        int size;
+        int[] src = new int[1024];
+        int[] dst = new int[1024];
+        int[] cnt = new int[1024];
+        long[] pts = new long[1024];
+
+        public void add(int s, int d, int c, long p) {
+            if (size == src.length) {
+                int cap = src.length * 2;
+                src = Arrays.copyOf(src, cap);
+                dst = Arrays.copyOf(dst, cap);
+                cnt = Arrays.copyOf(cnt, cap);
+                pts = Arrays.copyOf(pts, cap);
+            }
+            src[size] = s;
+            dst[size] = d;
+            cnt[size] = c;
+            pts[size] = p;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /** Employee id to dense slot for a node table; unit ids use {@link #NO_UNIT} when unset. */
+    public static Map<Long, Integer> slots(long[] nodeIds) {
+        Map<Long, Integer> slotById = new HashMap<>(nodeIds.length * 2);
+        for (int i = 0; i < nodeIds.length; i++) slotById.put(nodeIds[i], i);
+        return slotById;
+    }
+
+    public static RecognitionGraph build(long[] nodeIds, long[] unitIds, Map<Long, Integer> slotById, EdgeBuffer edges, long highWaterMark) {
+        int n = nodeIds.length;
+        int m = edges.size;
+        // Bucket edges by source (counting sort)
+        int[] start = new int[n + 1];
+        for (int e = 0; e < m; e++) start[edges.src[e] + 1]++;
+        for (int u = 0; u < n; u++) start[u + 1] += start[u];
+        int[] fill = Arrays.copyOf(start, n);
+        int[] tgt = new int[m];
+        int[] cnt = new int[m];
+        long[] pts = new long[m];
+        for (int e = 0; e < m; e++) {
+            int at = fill[edges.src[e]]++;
+            tgt[at] = edges.dst[e];
+            cnt[at] = edges.cnt[e];
+            pts[at] = edges.pts[e];
+        }
+        // Sort each row by target and merge duplicate (source, target) pairs
+        int[] outStart = new int[n + 1];
+        int[] outTarget = new int[m];
+        int[] outCount = new int[m];
+        long[] outPoints = new long[m];
+        long[] keys = new long[0];
+        int w = 0;
+        for (int u = 0; u < n; u++) {
+            int from = start[u];
+            int len = start[u + 1] - from;
+            outStart[u] = w;
+            if (len == 0) continue;
+            if (keys.length < len) keys = new long[Math.max(len, keys.length * 2)];
+            for (int i = 0; i < len; i++) keys[i] = ((long) tgt[from + i] << 32) | i;
+            Arrays.sort(keys, 0, len);
+            int last = -1;
+            for (int i = 0; i < len; i++) {
+                int t = (int) (keys[i] >>> 32);
+                int src = from + (int) keys[i];
+                if (t == last) {
+                    outCount[w - 1] += cnt[src];
+                    outPoints[w - 1] += pts[src];
+                } else {
+                    outTarget[w] = t;
+                    outCount[w] = cnt[src];
+                    outPoints[w] = pts[src];
+                    w++;
+                    last = t;
+                }
+            }
+        }
+        outStart[n] = w;
+        if (w < m) {
+            outTarget = Arrays.copyOf(outTarget, w);
+            outCount = Arrays.copyOf(outCount, w);
+            outPoints = Arrays.copyOf(outPoints, w);
+        }
+        // Reverse CSR; iterating sources in order keeps each in-row sorted by source
+        int[] inStart = new int[n + 1];
+        for (int e = 0; e < w; e++) inStart[outTarget[e] + 1]++;
+        for (int v = 0; v < n; v++) inStart[v + 1] += inStart[v];
+        int[] inFill = Arrays.copyOf(inStart, n);
+        int[] inSource = new int[w];
+        int[] inCount = new int[w];
+        for (int u = 0; u < n; u++) {
+            for (int e = outStart[u]; e < outStart[u + 1]; e++) {
+                int at = inFill[outTarget[e]]++;
+                inSource[at] = u;
+                inCount[at] = outCount[e];
+            }
+        }
+        return new RecognitionGraph(nodeIds, unitIds, slotById, outStart, outTarget, outCount, outPoints, inStart, inSource, inCount, highWaterMark);
+    }
+
+    /** New graph with the delta edges folded in; every delta endpoint must already be a node. */
+    public RecognitionGraph withDelta(EdgeBuffer delta, long newHighWaterMark) {
+        EdgeBuffer all = new EdgeBuffer();
+        for (int u = 0; u < nodeIds.length; u++) {
+            for (int e = outStart[u]; e < outStart[u + 1]; e++) all.add(u, outTarget[e], outCount[e], outPoints[e]);
+        }
+        for (int e = 0; e < delta.size; e++) all.add(delta.src[e], delta.dst[e], delta.cnt[e], delta.pts[e]);
+        return build(nodeIds, unitIds, slotById, all, newHighWaterMark);
+    }
+
+    public Integer slotOf(long employeeId) {
+        return slotById.get(employeeId);
+    }
+
+    public long idAt(int slot) {
+        return nodeIds[slot];
+    }
+
+    public int nodeCount() {
+        return nodeIds.length;
+    }
+
+    public int edgeCount() {
+        return outTarget.length;
+    }
+
+    public long highWaterMark() {
+        return highWaterMark;
+    }
+
+    public long totalRecognitions() {
+        long total = 0;
+        for (long w : outWeight) total += w;
+        return total;
+    }
+
+    private boolean hasEdge(int u, int v) {
+        return Arrays.binarySearch(outTarget, outStart[u], outStart[u + 1], v) >= 0;
+    }
+
+    // --- Algorithms ---
+
+    public record Reciprocity(long edges, long reciprocatedEdges, long mutualPairs, double ratio) {}
+
+    /** Share of distinct sender-to-recipient edges that are answered by a recipient-to-sender edge. */
+    public Reciprocity reciprocity() {
+        long edges = IntStream.range(0, nodeIds.length).parallel()
+                .mapToLong(u -> {
+                    long c = 0;
+                    for (int e = outStart[u]; e < outStart[u + 1]; e++) if (outTarget[e] != u) c++;
+                    return c;
+                }).sum();
+        long reciprocated = IntStream.range(0, nodeIds.length).parallel()
+                .mapToLong(u -> {
+                    long c = 0;
+                    for (int e = outStart[u]; e < outStart[u + 1]; e++) {
+                        int v = outTarget[e];
+                        if (v != u && hasEdge(v, u)) c++;
+                    }
+                    return c;
+                }).sum();
+        return new Reciprocity(edges, reciprocated, reciprocated / 2, edges == 0 ? 0.0 : (double) reciprocated / edges);
+    }
+
+    public record Bridging(int[] distinctOtherUnits, long[] crossUnitRecognitions, long crossUnitTotal, long total) {}
+
+    /** Per employee: how many other units they exchange recognitions with, and how many recognitions cross units. */
+    public Bridging bridging() {
+        int n = nodeIds.length;
+        int[] distinct = new int[n];
+        long[] cross = new long[n];
+        IntStream.range(0, n).parallel().forEach(u -> {
+            long own = unitIds[u];
+            int degree = (outStart[u + 1] - outStart[u]) + (inStart[u + 1] - inStart[u]);
+            if (degree == 0 || own == NO_UNIT) return;
+            long[] units = new long[degree];
+            int k = 0;
+            long c = 0;
+            for (int e = outStart[u]; e < outStart[u + 1]; e++) {
+                long unit = unitIds[outTarget[e]];
+                if (unit != NO_UNIT && unit != own) {
+                    units[k++] = unit;
+                    c += outCount[e];
+                }
+            }
+            for (int e = inStart[u]; e < inStart[u + 1]; e++) {
+                long unit = unitIds[inSource[e]];
+                if (unit != NO_UNIT && unit != own) units[k++] = unit;
+            }
+            Arrays.sort(units, 0, k);
+            int d = 0;
+            for (int i = 0; i < k; i++) if (i == 0 || units[i] != units[i - 1]) d++;
+            distinct[u] = d;
+            cross[u] = c;
+        });
+        long crossTotal = 0;
+        for (long c : cross) crossTotal += c;
+        return new Bridging(distinct, cross, crossTotal, totalRecognitions());
+    }
+
+    public record Isolation(int[] isolated, int neverSent, int neverReceived) {}
+
+    /** Employees with no recognitions in either direction, plus one-directional counts. */
+    public Isolation isolation() {
+        int n = nodeIds.length;
+        int[] isolated = IntStream.range(0, n).parallel()
+                .filter(u -> outStart[u + 1] == outStart[u] && inStart[u + 1] == inStart[u])
+                .toArray();
+        int neverSent = (int) IntStream.range(0, n).parallel().filter(u -> outStart[u + 1] == outStart[u]).count();
+        int neverReceived = (int) IntStream.range(0, n).parallel().filter(u -> inStart[u + 1] == inStart[u]).count();
+        return new Isolation(isolated, neverSent, neverReceived);
+    }
+
+    public record PageRank(double[] rank, int iterations, double delta) {}
+
+    /**
+     * Weighted PageRank over recognition counts (pull formulation over the reverse CSR, parallel per iteration).
+     * Employees who never send spread their rank evenly (dangling mass).
+     */
+    public PageRank pageRank(double damping, int maxIterations, double tolerance) {
+        int n = nodeIds.length;
+        if (n == 0) return new PageRank(new double[0], 0, 0.0);
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        int it = 0;
+        double diff = Double.MAX_VALUE;
+        while (it < maxIterations && diff > tolerance) {
+            final double[] cur = rank;
+            final double[] out = next;
+            double dangling = IntStream.range(0, n).parallel().filter(u -> outWeight[u] == 0).mapToDouble(u -> cur[u]).sum();
+            double base = (1.0 - damping) / n + damping * dangling / n;
+            IntStream.range(0, n).parallel().forEach(v -> {
+                double s = 0;
+                for (int e = inStart[v]; e < inStart[v + 1]; e++) {
+                    int u = inSource[e];
+                    s += cur[u] * inCount[e] / outWeight[u];
+                }
+                out[v] = base + damping * s;
+            });
+            DoubleAdder d = new DoubleAdder();
+            IntStream.range(0, n).parallel().forEach(v -> d.add(Math.abs(out[v] - cur[v])));
+            diff = d.sum();
+            rank = out;
+            next = cur;
+            it++;
+        }
+        return new PageRank(rank, it, diff);
+    }
+
+    /** Slots of the k highest scores, best first. */
+    public static int[] topK(int n, int k, Comparator<Integer> byScoreDesc) {
+        return IntStream.range(0, n).boxed().sorted(byScoreDesc).limit(Math.max(0, k)).mapToInt(Integer::intValue).toArray();
+    }
+
+    public int outDegree(int slot) {
+        return outStart[slot + 1] - outStart[slot];
+    }
+
+    public int inDegree(int slot) {
+        return inStart[slot + 1] - inStart[slot];
+    }
+
+    public long unitAt(int slot) {
+        return unitIds[slot];
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.service;
+
+import org.example.model.Employee;
+import org.example.repository.EmployeeRepository;
+import org.example.repository.RecognitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Owns the in-memory {@link RecognitionGraph}. A full build streams the per-pair aggregate of recognitions;
+ * the scheduled delta only reads rows above the graph's high-water mark and merges them in.
+ * Updates and deletes of existing recognitions are picked up by the nightly full rebuild.
+ */
+@Service
+public class RecognitionNetworkService {
+    private static final Logger log = LoggerFactory.getLogger(RecognitionNetworkService.class);
+    private static final double DAMPING = 0.85;
+    private static final int PAGERANK_MAX_ITERATIONS = 50;
+    private static final double PAGERANK_TOLERANCE = 1e-9;
+
+    private final RecognitionRepository recognitionRepository;
+    private final EmployeeRepository employeeRepository;
+    private final TransactionTemplate readOnlyTx;
+    private volatile RecognitionGraph graph;
+
+    public RecognitionNetworkService(RecognitionRepository recognitionRepository,
+                                     EmployeeRepository employeeRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.recognitionRepository = recognitionRepository;
+        this.employeeRepository = employeeRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public RecognitionGraph graph() {
+        RecognitionGraph current = graph;
+        if (current == null) {
+            synchronized (this) {
+                current = graph;
+                if (current == null) current = rebuild();
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(cron = "${app.network.rebuild-cron:0 30 3 * * *}")
+    public synchronized RecognitionGraph rebuild() {
+        long start = System.nanoTime();
+        long upto = recognitionRepository.maxRecognitionId();
+        List<Object[]> employees = employeeRepository.findAllUnitLinks();
+        long[] ids = new long[employees.size()];
+        long[] units = new long[employees.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Object[] row = employees.get(i);
+            ids[i] = ((Number) row[0]).longValue();
+            units[i] = row[1] == null ? RecognitionGraph.NO_UNIT : ((Number) row[1]).longValue();
+        }
+        Map<Long, Integer> slots = RecognitionGraph.slots(ids);
+        RecognitionGraph.EdgeBuffer edges = new RecognitionGraph.EdgeBuffer();
+        readEdges(0L, upto, slots, edges);
+        RecognitionGraph built = RecognitionGraph.build(ids, units, slots, edges, upto);
+        graph = built;
+        log.info("Recognition graph built: {} nodes, {} edges, hwm={} in {} ms",
+                built.nodeCount(), built.edgeCount(), upto, (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+
+    /** Fold recognitions created since the last build/delta into the graph. */
+    @Scheduled(fixedDelayString = "${app.network.delta-delay-ms:300000}", initialDelayString = "${app.network.delta-delay-ms:300000}")
+    public synchronized void applyDelta() {
+        RecognitionGraph current = graph;
+        if (current == null) return; // nobody has asked for the graph yet
+        long upto = recognitionRepository.maxRecognitionId();
+        if (upto <= current.highWaterMark()) return;
+        RecognitionGraph.EdgeBuffer delta = new RecognitionGraph.EdgeBuffer();
+        int unknown = readEdgesForGraph(current, current.highWaterMark(), upto, delta);
+        if (unknown > 0) {
+            // New employees appeared; the node table has to be rebuilt anyway
+            rebuild();
+            return;
+        }
+        graph = current.withDelta(delta, upto);
+        log.debug("Recognition graph delta applied: {} pair updates, hwm {} -> {}", delta.size(), current.highWaterMark(), upto);
+    }
+
+    private void readEdges(long afterId, long uptoId, Map<Long, Integer> slots, RecognitionGraph.EdgeBuffer out) {
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = recognitionRepository.streamNetworkEdges(afterId, uptoId)) {
+                rows.forEach(row -> {
+                    Integer s = slots.get(((Number) row[0]).longValue());
+                    Integer d = slots.get(((Number) row[1]).longValue());
+                    if (s != null && d != null) out.add(s, d, ((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+                });
+            }
+        });
+    }
+
+    private int readEdgesForGraph(RecognitionGraph g, long afterId, long uptoId, RecognitionGraph.EdgeBuffer out) {
+        int[] unknown = new int[1];
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = recognitionRepository.streamNetworkEdges(afterId, uptoId)) {
+                rows.forEach(row -> {
+                    Integer s = g.slotOf(((Number) row[0]).longValue());
+                    Integer d = g.slotOf(((Number) row[1]).longValue());
+                    if (s == null || d == null) unknown[0]++;
+                    else out.add(s, d, ((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+                });
+            }
+        });
+        return unknown[0];
+    }
+
+    // --- Analytics ---
+
+    /** All metrics, computed concurrently on the same graph snapshot. */
+    public Map<String, Object> summary(int top) {
+        RecognitionGraph g = graph();
+        CompletableFuture<Map<String, Object>> reciprocity = CompletableFuture.supplyAsync(() -> reciprocity(g));
+        CompletableFuture<Map<String, Object>> bridges = CompletableFuture.supplyAsync(() -> bridges(g, top));
+        CompletableFuture<Map<String, Object>> isolated = CompletableFuture.supplyAsync(() -> isolated(g, top));
+        CompletableFuture<Map<String, Object>> influence = CompletableFuture.supplyAsync(() -> influence(g, top));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("graph", stats(g));
+        out.put("reciprocity", reciprocity.join());
+        out.put("bridges", bridges.join());
+        out.put("isolated", isolated.join());
+        out.put("influence", influence.join());
+        return out;
+    }
+
+    public Map<String, Object> stats(RecognitionGraph g) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("nodes", g.nodeCount());
+        out.put("edges", g.edgeCount());
+        out.put("recognitions", g.totalRecognitions());
+        out.put("highWaterMark", g.highWaterMark());
+        return out;
+    }
+
+    public Map<String, Object> reciprocity(RecognitionGraph g) {
+        RecognitionGraph.Reciprocity r = g.reciprocity();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("edges", r.edges());
+        out.put("reciprocatedEdges", r.reciprocatedEdges());
+        out.put("mutualPairs", r.mutualPairs());
+        out.put("ratio", r.ratio());
+        return out;
+    }
+
+    public Map<String, Object> bridges(RecognitionGraph g, int top) {
+        RecognitionGraph.Bridging b = g.bridging();
+        int[] best = RecognitionGraph.topK(g.nodeCount(), top,
+                Comparator.<Integer>comparingInt(u -> b.distinctOtherUnits()[u]).reversed()
+                        .thenComparing(Comparator.<Integer>comparingLong(u -> b.crossUnitRecognitions()[u]).reversed()));
+        Map<Long, String> names = names(g, best);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int u : best) {
+            if (b.distinctOtherUnits()[u] == 0) break;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("employeeId", g.idAt(u));
+            row.put("name", names.get(g.idAt(u)));
+            row.put("unitId", g.unitAt(u) == RecognitionGraph.NO_UNIT ? null : g.unitAt(u));
+            row.put("otherUnits", b.distinctOtherUnits()[u]);
+            row.put("crossUnitSent", b.crossUnitRecognitions()[u]);
+            rows.add(row);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("crossUnitShare", b.total() == 0 ? 0.0 : (double) b.crossUnitTotal() / b.total());
+        out.put("top", rows);
+        return out;
+    }
+
+    public Map<String, Object> isolated(RecognitionGraph g, int limit) {
+        RecognitionGraph.Isolation iso = g.isolation();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < iso.isolated().length && ids.size() < limit; i++) ids.add(g.idAt(iso.isolated()[i]));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("isolatedCount", iso.isolated().length);
+        out.put("neverSent", iso.neverSent());
+        out.put("neverReceived", iso.neverReceived());
+        out.put("employeeIds", ids);
+        return out;
+    }
+
+    public Map<String, Object> influence(RecognitionGraph g, int top) {
+        RecognitionGraph.PageRank pr = g.pageRank(DAMPING, PAGERANK_MAX_ITERATIONS, PAGERANK_TOLERANCE);
+        double[] rank = pr.rank();
+        int[] best = RecognitionGraph.topK(g.nodeCount(), top, Comparator.<Integer>comparingDouble(u -> rank[u]).reversed());
+        Map<Long, String> names = names(g, best);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int u : best) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("employeeId", g.idAt(u));
+            row.put("name", names.get(g.idAt(u)));
+            row.put("score", rank[u]);
+            row.put("inDegree", g.inDegree(u));
+            row.put("outDegree", g.outDegree(u));
+            rows.add(row);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("iterations", pr.iterations());
+        out.put("converged", pr.delta() <= PAGERANK_TOLERANCE);
+        out.put("top", rows);
+        return out;
+    }
+
+    private Map<Long, String> names(RecognitionGraph g, int[] slots) {
+        List<Long> ids = new ArrayList<>(slots.length);
+        for (int u : slots) ids.add(g.idAt(u));
+        Map<Long, String> out = new HashMap<>();
+        for (Employee e : employeeRepository.findAllById(ids)) {
+            out.put(e.getId(), ((e.getFirstName() != null ? e.getFirstName() : "") + " " + (e.getLastName() != null ? e.getLastName() : "")).trim());
+        }
+        return out;
+    }
+}
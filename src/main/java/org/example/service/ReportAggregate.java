@@ -0,0 +1,181 @@
+package org.example.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary aggregates for a report: totals, breakdowns by status and type, distinct senders/recipients and
+ * per-employee counts for the top senders/recipients. Fed row by row from {@link ReportPipeline}; not thread-safe.
+ * Aggregates are mergeable, so a day's aggregate can be stored as a compact partial ({@link #toPartial}) and
+ * longer periods built by {@link #merge}. Partials keep only the top candidates per day, so merged top lists
+ * are exact while a scope has no more active employees per day than the candidate limit, and approximate beyond.
+ */
+public class ReportAggregate implements ReportPipeline.Sink {
+    long count;
+    long points;
+    Instant first;
+    Instant last;
+    final Map<String, Long> byStatus = new TreeMap<>();
+    final Map<String, long[]> byType = new TreeMap<>();
+    final Map<Long, long[]> bySender = new HashMap<>();
+    final Map<Long, long[]> byRecipient = new HashMap<>();
+    final Map<Long, String> names = new HashMap<>();
+    DistinctSketch senders = new DistinctSketch();
+    DistinctSketch recipients = new DistinctSketch();
+
+    @Override
+    public void accept(ReportPipeline.Row r) {
+        count++;
+        points += r.points();
+        if (r.sentAt() != null) {
+            if (first == null || r.sentAt().isBefore(first)) first = r.sentAt();
+            if (last == null || r.sentAt().isAfter(last)) last = r.sentAt();
+        }
+        byStatus.merge(r.status() == null ? "UNKNOWN" : r.status().toUpperCase(java.util.Locale.ROOT), 1L, Long::sum);
+        add(byType, r.typeName() == null ? "(none)" : r.typeName(), 1, r.points());
+        if (r.senderId() != null) {
+            add(bySender, r.senderId(), 1, r.points());
+            senders.add(r.senderId());
+            if (r.senderName() != null) names.putIfAbsent(r.senderId(), r.senderName());
+        }
+        if (r.recipientId() != null) {
+            add(byRecipient, r.recipientId(), 1, r.points());
+            recipients.add(r.recipientId());
+            if (r.recipientName() != null) names.putIfAbsent(r.recipientId(), r.recipientName());
+        }
+    }
+
+    @Override
+    public void finish() {
+        // nothing buffered
+    }
+
+    private static <K> void add(Map<K, long[]> m, K key, long count, long points) {
+        long[] v = m.computeIfAbsent(key, k -> new long[2]);
+        v[0] += count;
+        v[1] += points;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public Map<String, Long> statusCounts() {
+        return byStatus;
+    }
+
+    public void merge(ReportAggregate o) {
+        count += o.count;
+        points += o.points;
+        if (o.first != null && (first == null || o.first.isBefore(first))) first = o.first;
+        if (o.last != null && (last == null || o.last.isAfter(last))) last = o.last;
+        o.byStatus.forEach((k, v) -> byStatus.merge(k, v, Long::sum));
+        o.byType.forEach((k, v) -> add(byType, k, v[0], v[1]));
+        o.bySender.forEach((k, v) -> add(bySender, k, v[0], v[1]));
+        o.byRecipient.forEach((k, v) -> add(byRecipient, k, v[0], v[1]));
+        o.names.forEach(names::putIfAbsent);
+        senders.merge(o.senders);
+        recipients.merge(o.recipients);
+    }
+
+    /** Compact, JSON-friendly form with the {@code candidates} busiest senders and recipients. */
+    public Map<String, Object> toPartial(int candidates) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", count);
+        m.put("points", points);
+        m.put("first", first == null ? null : first.toEpochMilli());
+        m.put("last", last == null ? null : last.toEpochMilli());
+        m.put("byStatus", byStatus);
+        Map<String, long[]> types = new LinkedHashMap<>(byType);
+        m.put("byType", types);
+        m.put("senders", senders.toMap());
+        m.put("recipients", recipients.toMap());
+        m.put("topSenders", candidates(bySender, candidates));
+        m.put("topRecipients", candidates(byRecipient, candidates));
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static ReportAggregate fromPartial(Map<String, Object> m) {
+        ReportAggregate a = new ReportAggregate();
+        a.count = ((Number) m.getOrDefault("count", 0)).longValue();
+        a.points = ((Number) m.getOrDefault("points", 0)).longValue();
+        if (m.get("first") instanceof Number n) a.first = Instant.ofEpochMilli(n.longValue());
+        if (m.get("last") instanceof Number n) a.last = Instant.ofEpochMilli(n.longValue());
+        if (m.get("byStatus") instanceof Map<?, ?> s) s.forEach((k, v) -> a.byStatus.put((String) k, ((Number) v).longValue()));
+        if (m.get("byType") instanceof Map<?, ?> t) t.forEach((k, v) -> a.byType.put((String) k, longs((List<Object>) v)));
+        a.senders = DistinctSketch.fromMap((Map<String, Object>) m.get("senders"));
+        a.recipients = DistinctSketch.fromMap((Map<String, Object>) m.get("recipients"));
+        readCandidates(m.get("topSenders"), a.bySender, a.names);
+        readCandidates(m.get("topRecipients"), a.byRecipient, a.names);
+        return a;
+    }
+
+    // [id, count, points, name]
+    private List<List<Object>> candidates(Map<Long, long[]> m, int n) {
+        List<List<Object>> out = new ArrayList<>();
+        for (Map.Entry<Long, long[]> e : ranked(m, n)) {
+            out.add(java.util.Arrays.asList(e.getKey(), e.getValue()[0], e.getValue()[1], names.get(e.getKey())));
+        }
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readCandidates(Object o, Map<Long, long[]> into, Map<Long, String> names) {
+        if (!(o instanceof List<?> list)) return;
+        for (Object item : list) {
+            List<Object> c = (List<Object>) item;
+            long id = ((Number) c.get(0)).longValue();
+            into.put(id, new long[]{((Number) c.get(1)).longValue(), ((Number) c.get(2)).longValue()});
+            if (c.size() > 3 && c.get(3) != null) names.putIfAbsent(id, (String) c.get(3));
+        }
+    }
+
+    private static long[] longs(List<Object> v) {
+        return new long[]{((Number) v.get(0)).longValue(), ((Number) v.get(1)).longValue()};
+    }
+
+    public Map<String, Object> toMap(int top) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("recognitions", count);
+        out.put("points", points);
+        out.put("avgPoints", count == 0 ? 0.0 : (double) points / count);
+        out.put("firstSentAt", first == null ? null : first.toString());
+        out.put("lastSentAt", last == null ? null : last.toString());
+        out.put("distinctSenders", senders.estimate());
+        out.put("distinctRecipients", recipients.estimate());
+        if (!senders.isExact() || !recipients.isExact()) out.put("distinctApproximate", true);
+        out.put("byStatus", byStatus);
+        Map<String, Object> types = new LinkedHashMap<>();
+        byType.forEach((k, v) -> types.put(k, Map.of("count", v[0], "points", v[1])));
+        out.put("byType", types);
+        out.put("topSenders", top(bySender, top));
+        out.put("topRecipients", top(byRecipient, top));
+        return out;
+    }
+
+    private List<Map<String, Object>> top(Map<Long, long[]> m, int n) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Map.Entry<Long, long[]> e : ranked(m, n)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", e.getKey());
+            row.put("name", names.get(e.getKey()));
+            row.put("count", e.getValue()[0]);
+            row.put("points", e.getValue()[1]);
+            out.add(row);
+        }
+        return out;
+    }
+
+    private static List<Map.Entry<Long, long[]>> ranked(Map<Long, long[]> m, int n) {
+        List<Map.Entry<Long, long[]>> entries = new ArrayList<>(m.entrySet());
+        entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0] ? Long.compare(b.getValue()[0], a.getValue()[0])
+                : Long.compare(b.getValue()[1], a.getValue()[1]));
+        return entries.subList(0, Math.min(n, entries.size()));
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of one scheduled report run (global, per unit, per manager). Items are fixed when the batch is
+ * created and updated in place by the report threads, so progress can be read at any time; the final
+ * {@link #toMap} with items is stored as the run's completion manifest.
+ */
+public class ReportBatch {
+    public enum Status { PENDING, RUNNING, DONE, EMPTY, FAILED }
+
+    public static final class Item {
+        public final String scope;
+        public final Long scopeId;
+        public final String name;
+        volatile Status status = Status.PENDING;
+        volatile int attempts;
+        volatile long rows;
+        volatile long tookMs;
+        volatile int daysRecomputed;
+        volatile String error;
+
+        Item(String scope, Long scopeId, String name) {
+            this.scope = scope;
+            this.scopeId = scopeId;
+            this.name = name;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("scope", scope);
+            m.put("scopeId", scopeId);
+            m.put("name", name);
+            m.put("status", status.name());
+            m.put("attempts", attempts);
+            m.put("rows", rows);
+            m.put("tookMs", tookMs);
+            if (daysRecomputed > 0) m.put("daysRecomputed", daysRecomputed);
+            if (error != null) m.put("error", error);
+            return m;
+        }
+    }
+
+    final String id;
+    final String label;
+    final Instant from;
+    final Instant to;
+    final boolean fromPartials;
+    final Instant startedAt = Instant.now();
+    volatile Instant finishedAt;
+    final List<Item> items = new ArrayList<>();
+    final AtomicInteger done = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final AtomicInteger retries = new AtomicInteger();
+
+    ReportBatch(String id, String label, Instant from, Instant to, boolean fromPartials) {
+        this.id = id;
+        this.label = label;
+        this.from = from;
+        this.to = to;
+        this.fromPartials = fromPartials;
+    }
+
+    Item add(String scope, Long scopeId, String name) {
+        Item item = new Item(scope, scopeId, name);
+        items.add(item);
+        return item;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    /** Counts plus failed items; {@code withItems} adds every item (the manifest). */
+    public Map<String, Object> toMap(boolean withItems) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        int running = 0;
+        List<Map<String, Object>> failures = new ArrayList<>();
+        for (Item i : items) {
+            if (i.status == Status.RUNNING) running++;
+            if (i.status == Status.FAILED) failures.add(i.toMap());
+        }
+        m.put("id", id);
+        m.put("label", label);
+        m.put("from", from.toString());
+        m.put("to", to.toString());
+        m.put("fromPartials", fromPartials);
+        m.put("startedAt", startedAt.toString());
+        m.put("finishedAt", finishedAt == null ? null : finishedAt.toString());
+        m.put("total", items.size());
+        m.put("completed", done.get() + failed.get());
+        m.put("running", running);
+        m.put("failed", failed.get());
+        m.put("retries", retries.get());
+        Instant end = finishedAt == null ? Instant.now() : finishedAt;
+        m.put("elapsedMs", end.toEpochMilli() - startedAt.toEpochMilli());
+        if (withItems) {
+            List<Map<String, Object>> all = new ArrayList<>(items.size());
+            for (Item i : items) all.add(i.toMap());
+            m.put("items", all);
+        } else {
+            m.put("failures", failures);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.service;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Single-pass fan-out for reports: one thread walks the database cursor, converts each row once and hands
+ * batches of rows to every sink. Each sink consumes its own bounded queue on its own thread, so CSV formatting,
+ * aggregation and chart bucketing run side by side while the cursor is read exactly once. A slow sink applies
+ * back-pressure to the reader; a failed sink keeps draining so the others can finish, and its error is rethrown
+ * once the pass is over.
+ */
+public final class ReportPipeline {
+
+    /** One report row; columns match {@code RecognitionRepository.streamReportRows}. */
+    public record Row(long id, String uuid, Long typeId, String typeName, String category, String level,
+                      Long recipientId, String recipientUuid, String recipientName, String recipientRole,
+                      Long senderId, String senderUuid, String senderName, String senderRole,
+                      Instant sentAt, int points, String status, String rejectionReason, String message, Instant createdAt) {
+
+        static Row of(Object[] c) {
+            return new Row(((Number) c[0]).longValue(), (String) c[1], toLong(c[2]), (String) c[3], (String) c[4], (String) c[5],
+                    toLong(c[6]), (String) c[7], (String) c[8], (String) c[9],
+                    toLong(c[10]), (String) c[11], (String) c[12], (String) c[13],
+                    toInstant(c[14]), c[15] == null ? 0 : ((Number) c[15]).intValue(), (String) c[16], (String) c[17], (String) c[18],
+                    toInstant(c[19]));
+        }
+    }
+
+    public interface Sink {
+        void accept(Row row) throws Exception;
+
+        /** Called once after the last row, on the sink's thread; not called when the pass fails. */
+        void finish() throws Exception;
+    }
+
+    private static final List<Row> END = List.of();
+
+    private final int batchSize;
+    private final int queueDepth;
+
+    public ReportPipeline(int batchSize, int queueDepth) {
+        this.batchSize = Math.max(1, batchSize);
+        this.queueDepth = Math.max(1, queueDepth);
+    }
+
+    /** Reads {@code rows} to the end and returns the number of rows read. The caller closes the stream. */
+    public long run(Stream<Object[]> rows, List<? extends Sink> sinks) throws Exception {
+        List<Consumer> consumers = new ArrayList<>(sinks.size());
+        for (Sink s : sinks) consumers.add(new Consumer(s, new ArrayBlockingQueue<>(queueDepth)));
+        for (Consumer c : consumers) c.thread = Thread.ofVirtual().name("report-sink").start(c);
+
+        long count = 0;
+        boolean aborted = true;
+        try {
+            List<Row> batch = new ArrayList<>(batchSize);
+            for (Object[] cols : (Iterable<Object[]>) rows::iterator) {
+                batch.add(Row.of(cols));
+                count++;
+                if (batch.size() == batchSize) {
+                    publish(consumers, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) publish(consumers, batch);
+            aborted = false;
+        } finally {
+            for (Consumer c : consumers) {
+                c.aborted = aborted;
+                c.queue.put(END);
+            }
+            for (Consumer c : consumers) c.thread.join();
+        }
+        for (Consumer c : consumers) {
+            if (c.error != null) throw c.error;
+        }
+        return count;
+    }
+
+    // Batches are shared by all sinks and never modified after publishing
+    private static void publish(List<Consumer> consumers, List<Row> batch) throws InterruptedException {
+        for (Consumer c : consumers) c.queue.put(batch);
+    }
+
+    private static final class Consumer implements Runnable {
+        final Sink sink;
+        final BlockingQueue<List<Row>> queue;
+        Thread thread;
+        volatile boolean aborted;
+        volatile Exception error;
+
+        Consumer(Sink sink, BlockingQueue<List<Row>> queue) {
+            this.sink = sink;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    List<Row> batch = queue.take();
+                    if (batch == END) break;
+                    if (error != null) continue; // keep draining so the reader is never blocked on us
+                    try {
+                        for (Row r : batch) sink.accept(r);
+                    } catch (Exception e) {
+                        error = e;
+                    }
+                }
+                if (error == null && !aborted) sink.finish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+    }
+
+    private static Long toLong(Object o) {
+        return o == null ? null : ((Number) o).longValue();
+    }
+
+    static Instant toInstant(Object o) {
+        if (o instanceof Instant i) return i;
+        if (o instanceof OffsetDateTime odt) return odt.toInstant();
+        if (o instanceof java.sql.Timestamp ts) return ts.toInstant();
+        if (o instanceof java.time.LocalDateTime ldt) return ldt.toInstant(ZoneOffset.UTC);
+        return null;
+    }
+}
@@ -1,51 +1,567 @@
 package org.example.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.example.dto.SeriesTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
 
+/**
+ * Scheduled recognition reports. Each report is one pass over a database cursor fanned out (see
+ * {@link ReportPipeline}) to the CSV, the summary aggregates and the chart series, then stored under the
+ * reports folder as {@code <name>-recognitions.csv}, {@code -summary.json} and {@code -chart.png}.
+ * The daily and monthly runs produce the global report plus one per unit and one per manager subtree as a
+ * {@link ReportBatch}: reports run on virtual threads, but at most {@code db-concurrency} cursors are open at
+ * once (always below the connection pool size, so request traffic keeps its connections), failed reports are
+ * retried with backoff, and the run ends with a {@code <label>-<timestamp>-manifest.json}.
+ * Daily runs cover the previous UTC day and also store each scope's summary as a mergeable daily partial;
+ * monthly, quarterly and yearly runs are built from those partials, re-reading raw rows only for days that
+ * have no partial or changed since it was taken. Unit and manager partials also go stale when unit membership
+ * or the manager hierarchy changes, so scoped reports always reflect the current org structure.
+ */
 @Service
 public class ReportsService {
+    private static final Logger log = LoggerFactory.getLogger(ReportsService.class);
+    private static final DateTimeFormatter FILE_TS = DateTimeFormatter.ofPattern("MM-dd-yyyy-HH.mm.ss").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HOUR_LABEL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DAY_LABEL = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+    private static final int MAX_BUCKETS = 400;
 
     private final ChartService chartService;
-    private final RecognitionCsvExporter csvExporter;
     private final org.example.repository.RecognitionRepository recognitionRepository;
+    private final org.example.repository.EmployeeRepository employeeRepository;
     private final FileStorageService storage;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate writeTx;
+    private final ReportPipeline pipeline;
+    private final int top;
+    private final Semaphore dbPermits;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final int partialCandidates;
+    private final int partialRetentionDays;
+    private final Semaphore batchGate = new Semaphore(1);
+    private volatile ReportBatch lastBatch;
 
     public ReportsService(ChartService chartService,
-                          RecognitionCsvExporter csvExporter,
                           org.example.repository.RecognitionRepository recognitionRepository,
-                          FileStorageService storage) {
+                          org.example.repository.EmployeeRepository employeeRepository,
+                          FileStorageService storage,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${app.reports.batch-size:1000}") int batchSize,
+                          @Value("${app.reports.queue-depth:8}") int queueDepth,
+                          @Value("${app.reports.top:10}") int top,
+                          @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                          @Value("${app.reports.fan-out.db-concurrency:4}") int dbConcurrency,
+                          @Value("${app.reports.fan-out.max-in-flight:8}") int maxInFlight,
+                          @Value("${app.reports.fan-out.max-attempts:3}") int maxAttempts,
+                          @Value("${app.reports.fan-out.retry-backoff-ms:2000}") long retryBackoffMs,
+                          @Value("${app.reports.partials.top-candidates:100}") int partialCandidates,
+                          @Value("${app.reports.partials.retention-days:800}") int partialRetentionDays) {
         this.chartService = chartService;
-        this.csvExporter = csvExporter;
         this.recognitionRepository = recognitionRepository;
+        this.employeeRepository = employeeRepository;
         this.storage = storage;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.pipeline = new ReportPipeline(batchSize, queueDepth);
+        this.top = top;
+        // Leave at least two connections to request traffic whatever is configured
+        this.dbPermits = new Semaphore(Math.max(1, Math.min(dbConcurrency, poolSize - 2)));
+        this.maxInFlight = Math.max(1, Math.min(maxInFlight, poolSize - 2));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.partialCandidates = Math.max(top, partialCandidates);
+        this.partialRetentionDays = partialRetentionDays;
     }
 
+    // Batches run on their own thread so a long run doesn't hold up the other scheduled jobs
     @Scheduled(cron = "${app.reports.daily-cron}")
     public void dailyReport() {
+        Instant[] w = window("daily");
+        Thread.ofVirtual().name("report-batch").start(() -> runScheduled(w[0], w[1], "daily"));
+    }
+
+    @Scheduled(cron = "${app.reports.monthly-cron}")
+    public void monthlyReport() {
+        Instant[] w = window("monthly");
+        Thread.ofVirtual().name("report-batch").start(() -> runScheduled(w[0], w[1], "monthly"));
+    }
+
+    @Scheduled(cron = "${app.reports.quarterly-cron:0 0 8 1 1,4,7,10 *}")
+    public void quarterlyReport() {
+        Instant[] w = window("quarterly");
+        Thread.ofVirtual().name("report-batch").start(() -> runScheduled(w[0], w[1], "quarterly"));
+    }
+
+    @Scheduled(cron = "${app.reports.yearly-cron:0 0 9 1 1 *}")
+    public void yearlyReport() {
+        Instant[] w = window("yearly");
+        Thread.ofVirtual().name("report-batch").start(() -> runScheduled(w[0], w[1], "yearly"));
+    }
+
+    /** The last complete UTC day, month, quarter or year. */
+    public static Instant[] window(String period) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate month = today.withDayOfMonth(1);
+        LocalDate quarter = month.withMonth((today.getMonthValue() - 1) / 3 * 3 + 1);
+        LocalDate year = today.withDayOfYear(1);
+        LocalDate[] days = switch (period) {
+            case "daily" -> new LocalDate[]{today.minusDays(1), today};
+            case "monthly" -> new LocalDate[]{month.minusMonths(1), month};
+            case "quarterly" -> new LocalDate[]{quarter.minusMonths(3), quarter};
+            case "yearly" -> new LocalDate[]{year.minusYears(1), year};
+            default -> throw new IllegalArgumentException("Unsupported period: " + period);
+        };
+        return new Instant[]{days[0].atStartOfDay(ZoneOffset.UTC).toInstant(), days[1].atStartOfDay(ZoneOffset.UTC).toInstant()};
+    }
+
+    // Overlapping runs (e.g. a long daily run when the monthly one fires) wait for each other
+    private void runScheduled(Instant from, Instant to, String label) {
         try {
-            generateReportNow(Instant.now().minusSeconds(24*3600), Instant.now(), "daily");
+            batchGate.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            execute(prepareBatch(from, to, label));
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("{} report batch failed", label, e);
+        } finally {
+            batchGate.release();
         }
     }
 
-    @Scheduled(cron = "${app.reports.monthly-cron}")
-    public void monthlyReport() {
+    /** Starts a batch in the background; returns null when one is already running. */
+    public ReportBatch startBatch(String period) {
+        Instant[] w = window(period);
+        if (!batchGate.tryAcquire()) return null;
+        ReportBatch batch;
+        try {
+            batch = prepareBatch(w[0], w[1], period);
+        } catch (RuntimeException e) {
+            batchGate.release();
+            throw e;
+        }
+        Thread.ofVirtual().name("report-batch").start(() -> {
+            try {
+                execute(batch);
+            } finally {
+                batchGate.release();
+            }
+        });
+        return batch;
+    }
+
+    /** The running batch, or the last one to finish. */
+    public ReportBatch lastBatch() {
+        return lastBatch;
+    }
+
+    private ReportBatch prepareBatch(Instant from, Instant to, String label) {
+        String id = label + "-" + FILE_TS.format(to);
+        // Longer periods are merged from daily partials; the daily run is what writes them
+        ReportBatch batch = new ReportBatch(id, label, from, to, !"daily".equals(label));
+        batch.add("all", null, id);
+        for (Long unitId : employeeRepository.findActiveUnitIds()) batch.add("unit", unitId, id + "-unit-" + unitId);
+        for (Long managerId : employeeRepository.findActiveManagerIds()) batch.add("manager", managerId, id + "-manager-" + managerId);
+        return batch;
+    }
+
+    private void execute(ReportBatch batch) {
+        lastBatch = batch;
+        log.info("Report batch {} started: {} reports", batch.id, batch.items.size());
+        Semaphore inFlight = new Semaphore(maxInFlight); // bounds buffered CSVs and charts, not just cursors
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ReportBatch.Item item : batch.items) {
+                exec.submit(() -> {
+                    inFlight.acquire();
+                    try {
+                        runItem(batch, item);
+                    } finally {
+                        inFlight.release();
+                    }
+                    return null;
+                });
+            }
+        }
+        if (!batch.fromPartials) prunePartials();
+        batch.finishedAt = Instant.now();
+        try {
+            storage.storeReport(batch.id + "-manifest.json", objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(batch.toMap(true)));
+        } catch (IOException e) {
+            log.warn("Failed to write report manifest {}: {}", batch.id, e.getMessage());
+        }
+        log.info("Report batch {} finished: {} done, {} failed, {} retries in {} ms", batch.id, batch.done.get(),
+                batch.failed.get(), batch.retries.get(), batch.finishedAt.toEpochMilli() - batch.startedAt.toEpochMilli());
+    }
+
+    private void prunePartials() {
+        LocalDate before = LocalDate.now(ZoneOffset.UTC).minusDays(partialRetentionDays);
         try {
-            generateReportNow(Instant.now().minusSeconds(30L*24*3600), Instant.now(), "monthly");
+            Integer removed = withPermit(() -> writeTx.execute(status -> recognitionRepository.deleteReportPartialsBefore(before)
+                    + recognitionRepository.deleteDayChangesBefore(before)));
+            if (removed != null && removed > 0) log.info("Removed {} report partials/day markers before {}", removed, before);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("Failed to prune report partials: {}", e.getMessage());
         }
     }
 
+    // Every database call of a batch goes through the permits, not only the cursors, so a batch never holds more
+    // pooled connections than db-concurrency
+    private <T> T withPermit(java.util.concurrent.Callable<T> call) throws Exception {
+        dbPermits.acquire();
+        try {
+            return call.call();
+        } finally {
+            dbPermits.release();
+        }
+    }
+
+    private void runItem(ReportBatch batch, ReportBatch.Item item) throws InterruptedException {
+        String label = item.scopeId == null ? batch.label : batch.label + ", " + item.scope + " " + item.scopeId;
+        for (int attempt = 1; ; attempt++) {
+            item.attempts = attempt;
+            item.status = ReportBatch.Status.RUNNING;
+            long start = System.nanoTime();
+            try {
+                // Scoped reports with no activity produce no files; the global one is always written
+                Outcome outcome = batch.fromPartials
+                        ? generateFromPartials(batch.from, batch.to, label, item.name, item.scope, item.scopeId, item.scopeId != null)
+                        : generate(batch.from, batch.to, label, item.name, item.scope, item.scopeId, item.scopeId != null);
+                long rows = outcome.rows();
+                item.rows = rows;
+                item.daysRecomputed = outcome.daysRecomputed();
+                item.tookMs = (System.nanoTime() - start) / 1_000_000;
+                item.error = null;
+                item.status = rows == 0 && item.scopeId != null ? ReportBatch.Status.EMPTY : ReportBatch.Status.DONE;
+                batch.done.incrementAndGet();
+                return;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                item.error = e.getMessage();
+                if (attempt >= maxAttempts) {
+                    item.status = ReportBatch.Status.FAILED;
+                    batch.failed.incrementAndGet();
+                    log.warn("Report {} failed after {} attempts: {}", item.name, attempt, e.getMessage());
+                    return;
+                }
+                batch.retries.incrementAndGet();
+                Thread.sleep(retryBackoffMs * attempt);
+            }
+        }
+    }
+
+    /** Builds and stores the global report for [from, to) and returns its file name prefix. */
     public String generateReportNow(java.time.Instant from, java.time.Instant to, String label) throws Exception {
-        return "stub-report";
+        String name = label + "-" + FILE_TS.format(to);
+        generate(from, to, label, name, "all", null, false);
+        return name;
+    }
+
+    private record Outcome(long rows, int daysRecomputed) {}
+
+    // Thrown from the CSV's store callback so an empty report leaves no artifact behind
+    private static final class EmptyReport extends RuntimeException {
+        EmptyReport() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Full report from raw rows. The CSV is written to its artifact while the cursor is read, so memory use doesn't
+     * depend on the row count. When the window is exactly one UTC day the summary aggregate is also stored as that
+     * day's partial for the scope.
+     */
+    private Outcome generate(Instant from, Instant to, String label, String name, String scope, Long scopeId,
+                             boolean skipEmpty) throws Exception {
+        long start = System.nanoTime();
+        Long unitId = "unit".equals(scope) ? scopeId : null;
+        Long managerId = "manager".equals(scope) ? scopeId : null;
+        LocalDate partialDay = isUtcDay(from, to) ? LocalDate.ofInstant(from, ZoneOffset.UTC) : null;
+        ReportAggregate summary = new ReportAggregate();
+        SeriesSink series = new SeriesSink(from, to);
+
+        long[] rows = new long[1];
+        long[] xmin = new long[1];
+        dbPermits.acquire();
+        try {
+            storage.storeReport(name + "-recognitions.csv", null, os -> {
+                CsvSink csv = new CsvSink(os);
+                rows[0] = readOnlyTx.execute(status -> {
+                    // Read before the cursor so anything the cursor might miss counts as a later change
+                    if (partialDay != null) xmin[0] = recognitionRepository.currentSnapshotXmin();
+                    try (Stream<Object[]> cursor = recognitionRepository.streamReportRows(from, to, unitId, managerId)) {
+                        return pipeline.run(cursor, List.of(csv, summary, series));
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Report pass failed: " + e.getMessage(), e);
+                    }
+                });
+                if (rows[0] == 0 && skipEmpty) throw new EmptyReport();
+            });
+        } catch (EmptyReport e) {
+            // no CSV stored; the partial below is still worth keeping
+        } finally {
+            dbPermits.release();
+        }
+        if (partialDay != null) savePartial(scope, scopeId, partialDay, xmin[0], summary);
+        if (rows[0] == 0 && skipEmpty) return new Outcome(0, 0);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("label", label);
+        out.put("unitId", unitId);
+        out.put("managerId", managerId);
+        out.put("from", from.toString());
+        out.put("to", to.toString());
+        out.put("generatedAt", Instant.now().toString());
+        out.putAll(summary.toMap(top));
+        String title = "Recognitions (" + label + ")";
+        storage.storeReport(name + "-summary.json", objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(out));
+        storage.storeReport(name + "-chart.png", chartService.renderSeriesChartNow(series.table(), true, title, "time", "recognitions"));
+        log.debug("Report {} written: {} rows in {} ms", name, rows[0], (System.nanoTime() - start) / 1_000_000);
+        return new Outcome(rows[0], 0);
     }
 
+    /**
+     * Summary and chart for a longer period, merged from the scope's daily partials. Days without a partial, or
+     * whose recognitions (or, for unit/manager scopes, the org structure) changed after it was read, are re-read from raw rows (consecutive days in one pass) and
+     * their partials replaced. There is no CSV for these reports; the daily reports carry the rows.
+     */
+    private Outcome generateFromPartials(Instant from, Instant to, String label, String name, String scope, Long scopeId,
+                                         boolean skipEmpty) throws Exception {
+        LocalDate firstDay = LocalDate.ofInstant(from, ZoneOffset.UTC);
+        LocalDate endDay = LocalDate.ofInstant(to, ZoneOffset.UTC);
+        Map<LocalDate, ReportAggregate> days = new TreeMap<>();
+        for (Object[] row : withPermit(() -> recognitionRepository.findFreshReportPartials(scope, scopeKey(scopeId), firstDay, endDay))) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> payload = objectMapper.readValue((String) row[2], Map.class);
+            days.put(toLocalDate(row[0]), ReportAggregate.fromPartial(payload));
+        }
+        List<LocalDate> stale = new ArrayList<>();
+        for (LocalDate d = firstDay; d.isBefore(endDay); d = d.plusDays(1)) {
+            if (!days.containsKey(d)) stale.add(d);
+        }
+        recomputeDays(scope, scopeId, stale, days);
+
+        ReportAggregate total = new ReportAggregate();
+        days.values().forEach(total::merge);
+        if (total.count() == 0 && skipEmpty) return new Outcome(0, stale.size());
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("label", label);
+        out.put("unitId", "unit".equals(scope) ? scopeId : null);
+        out.put("managerId", "manager".equals(scope) ? scopeId : null);
+        out.put("from", from.toString());
+        out.put("to", to.toString());
+        out.put("generatedAt", Instant.now().toString());
+        out.put("days", days.size());
+        out.put("daysRecomputed", stale.size());
+        out.putAll(total.toMap(top));
+        String title = "Recognitions (" + label + ")";
+        storage.storeReport(name + "-summary.json", objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(out));
+        storage.storeReport(name + "-chart.png", chartService.renderSeriesChartNow(dailyTable(days), true, title, "day", "recognitions"));
+        return new Outcome(total.count(), stale.size());
+    }
+
+    private void recomputeDays(String scope, Long scopeId, List<LocalDate> stale, Map<LocalDate, ReportAggregate> into) throws Exception {
+        Long unitId = "unit".equals(scope) ? scopeId : null;
+        Long managerId = "manager".equals(scope) ? scopeId : null;
+        int i = 0;
+        while (i < stale.size()) {
+            int j = i;
+            while (j + 1 < stale.size() && stale.get(j + 1).equals(stale.get(j).plusDays(1))) j++;
+            LocalDate runStart = stale.get(i);
+            LocalDate runEnd = stale.get(j).plusDays(1);
+            DaySplitSink split = new DaySplitSink();
+            long[] xmin = new long[1];
+            dbPermits.acquire();
+            try {
+                readOnlyTx.executeWithoutResult(status -> {
+                    xmin[0] = recognitionRepository.currentSnapshotXmin();
+                    try (Stream<Object[]> cursor = recognitionRepository.streamReportRows(runStart.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                            runEnd.atStartOfDay(ZoneOffset.UTC).toInstant(), unitId, managerId)) {
+                        pipeline.run(cursor, List.of(split));
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Partial recompute failed: " + e.getMessage(), e);
+                    }
+                });
+            } finally {
+                dbPermits.release();
+            }
+            for (LocalDate d = runStart; d.isBefore(runEnd); d = d.plusDays(1)) {
+                ReportAggregate agg = split.days.getOrDefault(d, new ReportAggregate());
+                savePartial(scope, scopeId, d, xmin[0], agg);
+                into.put(d, agg);
+            }
+            i = j + 1;
+        }
+    }
+
+    private void savePartial(String scope, Long scopeId, LocalDate day, long xmin, ReportAggregate agg) throws Exception {
+        String payload = objectMapper.writeValueAsString(agg.toPartial(partialCandidates));
+        withPermit(() -> writeTx.execute(status ->
+                recognitionRepository.upsertReportPartial(scope, scopeKey(scopeId), day, xmin, agg.count(), payload)));
+    }
+
+    private static long scopeKey(Long scopeId) {
+        return scopeId == null ? 0L : scopeId;
+    }
+
+    private static boolean isUtcDay(Instant from, Instant to) {
+        return from.equals(from.truncatedTo(ChronoUnit.DAYS)) && Duration.between(from, to).equals(Duration.ofDays(1));
+    }
+
+    private static LocalDate toLocalDate(Object o) {
+        if (o instanceof LocalDate d) return d;
+        if (o instanceof java.sql.Date d) return d.toLocalDate();
+        return LocalDate.parse(o.toString());
+    }
+
+    // Days x status, from each day's partial
+    private static SeriesTable dailyTable(Map<LocalDate, ReportAggregate> days) {
+        TreeSet<String> statuses = new TreeSet<>();
+        days.values().forEach(a -> statuses.addAll(a.statusCounts().keySet()));
+        String[] labels = new String[days.size()];
+        String[] names = statuses.toArray(new String[0]);
+        int[][] values = new int[names.length][labels.length];
+        int i = 0;
+        for (Map.Entry<LocalDate, ReportAggregate> e : days.entrySet()) {
+            labels[i] = e.getKey().toString();
+            for (int s = 0; s < names.length; s++) values[s][i] = e.getValue().statusCounts().getOrDefault(names[s], 0L).intValue();
+            i++;
+        }
+        return new SeriesTable(labels, names, values);
+    }
+
+    /** One aggregate per UTC day, for re-reading several stale days in a single pass. */
+    private static final class DaySplitSink implements ReportPipeline.Sink {
+        final Map<LocalDate, ReportAggregate> days = new HashMap<>();
+
+        @Override
+        public void accept(ReportPipeline.Row r) {
+            if (r.sentAt() == null) return;
+            days.computeIfAbsent(LocalDate.ofInstant(r.sentAt(), ZoneOffset.UTC), d -> new ReportAggregate()).accept(r);
+        }
+
+        @Override
+        public void finish() {
+            // nothing buffered
+        }
+    }
+
+    /** Report rows as CSV, same columns as the recognitions export, written through to {@code out} (flushed, not closed). */
+    private static final class CsvSink implements ReportPipeline.Sink {
+        private final CSVPrinter printer;
+
+        CsvSink(OutputStream out) throws IOException {
+            printer = CSVFormat.DEFAULT.withHeader(RecognitionCsvExporter.HEADER)
+                    .print(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024));
+        }
+
+        @Override
+        public void accept(ReportPipeline.Row r) throws IOException {
+            printer.printRecord(r.id(), r.uuid(), r.typeId(), nz(r.typeName()), nz(r.category()), nz(r.level()),
+                    r.recipientId() == null ? "" : r.recipientId(), nz(r.recipientUuid()), nz(r.recipientName()), nz(r.recipientRole()),
+                    r.senderId() == null ? "" : r.senderId(), nz(r.senderUuid()), nz(r.senderName()), nz(r.senderRole()),
+                    r.sentAt() == null ? "" : r.sentAt(), r.points(), nz(r.status()), nz(r.rejectionReason()), nz(r.message()),
+                    r.createdAt() == null ? "" : r.createdAt());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            printer.flush();
+        }
+
+        private static String nz(String s) {
+            return s == null ? "" : s;
+        }
+    }
+
+    /** Counts per time bucket and approval status; hourly for ranges up to two days, daily otherwise. */
+    private static final class SeriesSink implements ReportPipeline.Sink {
+        private final Instant from;
+        private final Instant to;
+        private final ChronoUnit unit;
+        private final DateTimeFormatter fmt;
+        private final Map<String, Map<String, Integer>> buckets = new TreeMap<>();
+        private final TreeSet<String> statuses = new TreeSet<>();
+
+        SeriesSink(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+            boolean hourly = Duration.between(from, to).toHours() <= 48;
+            this.unit = hourly ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+            this.fmt = hourly ? HOUR_LABEL : DAY_LABEL;
+        }
+
+        @Override
+        public void accept(ReportPipeline.Row r) {
+            if (r.sentAt() == null) return;
+            String status = r.status() == null ? "UNKNOWN" : r.status().toUpperCase(java.util.Locale.ROOT);
+            statuses.add(status);
+            buckets.computeIfAbsent(fmt.format(r.sentAt().truncatedTo(unit)), k -> new java.util.HashMap<>()).merge(status, 1, Integer::sum);
+        }
+
+        @Override
+        public void finish() {
+            // Empty buckets so the time axis has no gaps
+            Instant t = from.truncatedTo(unit);
+            for (int i = 0; t.isBefore(to) && i < MAX_BUCKETS; t = t.plus(1, unit), i++) {
+                buckets.putIfAbsent(fmt.format(t), new java.util.HashMap<>());
+            }
+        }
+
+        SeriesTable table() {
+            String[] labels = buckets.keySet().toArray(new String[0]);
+            String[] names = statuses.toArray(new String[0]);
+            int[][] values = new int[names.length][labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                Map<String, Integer> b = buckets.get(labels[i]);
+                for (int s = 0; s < names.length; s++) values[s][i] = b.getOrDefault(names[s], 0);
+            }
+            return new SeriesTable(labels, names, values);
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes bar charts as SVG straight from label/value arrays, without AWT. Bars go out as a single path
+ * and the trend as a single polyline, so output size grows by a few bytes per bucket.
+ * Layout roughly follows the XChart category chart used for PNGs (title on top, rotated x labels).
+ */
+public final class SvgChartWriter {
+    private static final int MARGIN_LEFT = 70;
+    private static final int MARGIN_RIGHT = 20;
+    private static final int MARGIN_TOP = 40;
+    private static final int MARGIN_BOTTOM = 90;
+    private static final int Y_TICKS = 5;
+    private static final int MAX_X_LABELS = 40;
+
+    private SvgChartWriter() {}
+
+    /** One row of {@code series} per legend entry in {@code names}; rows are stacked, or side by side when not {@code stacked}. */
+    public static void write(Writer out, int width, int height, String title, String xLabel, String yLabel,
+                             String[] labels, String[] names, int[][] series, boolean stacked) throws IOException {
+        int n = labels.length;
+        int plotW = width - MARGIN_LEFT - MARGIN_RIGHT;
+        int plotH = height - MARGIN_TOP - MARGIN_BOTTOM;
+        long max = 0;
+        for (int i = 0; i < n; i++) {
+            long sum = 0;
+            for (int[] s : series) sum = stacked ? sum + Math.max(0, s[i]) : Math.max(sum, s[i]);
+            max = Math.max(max, sum);
+        }
+        long step = niceStep(max);
+        long top = Math.max(step, ((max + step - 1) / step) * step);
+        double slot = n == 0 ? plotW : (double) plotW / n;
+        double barW = slot * 0.7;
+
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+                + "\" viewBox=\"0 0 " + width + " " + height + "\" font-family=\"sans-serif\" font-size=\"11\">\n");
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>\n");
+        text(out, width / 2.0, 22, "middle", 14, null, title);
+
+        // Grid and y ticks at multiples of step (top is one), so every label is a whole number at its line
+        long ticks = top / step;
+        out.write("<g stroke=\"#ddd\">");
+        for (long t = 0; t <= ticks; t++) {
+            double y = MARGIN_TOP + plotH - (double) plotH * t / ticks;
+            out.write("<line x1=\"" + MARGIN_LEFT + "\" x2=\"" + (MARGIN_LEFT + plotW) + "\" y1=\"" + fmt(y) + "\" y2=\"" + fmt(y) + "\"/>");
+        }
+        out.write("</g>\n");
+        for (long t = 0; t <= ticks; t++) {
+            double y = MARGIN_TOP + plotH - (double) plotH * t / ticks;
+            text(out, MARGIN_LEFT - 6, y + 4, "end", 11, null, String.valueOf(step * t));
+        }
+
+        // Bars, one path per series, stacked bottom-up or grouped within the slot
+        double[] base = new double[n];
+        double w = stacked ? barW : barW / Math.max(1, series.length);
+        for (int s = 0; s < series.length; s++) {
+            out.write("<path fill=\"" + color(s) + "\" d=\"");
+            for (int i = 0; i < n; i++) {
+                int v = Math.max(0, series[s][i]);
+                if (v == 0) continue;
+                double h = (double) plotH * v / top;
+                double x = MARGIN_LEFT + slot * i + (slot - barW) / 2 + (stacked ? 0 : w * s);
+                double y = MARGIN_TOP + plotH - (stacked ? base[i] : 0) - h;
+                out.write("M" + fmt(x) + " " + fmt(y) + "h" + fmt(w) + "v" + fmt(h) + "h" + fmt(-w) + "z");
+                base[i] += h;
+            }
+            out.write("\"/>\n");
+        }
+        // Totals as a line over the bars
+        if (n > 1 && (stacked || series.length == 1)) {
+            out.write("<polyline fill=\"none\" stroke=\"#333\" stroke-width=\"1.5\" points=\"");
+            for (int i = 0; i < n; i++) {
+                if (i > 0) out.write(' ');
+                out.write(fmt(MARGIN_LEFT + slot * i + slot / 2) + "," + fmt(MARGIN_TOP + plotH - base[i]));
+            }
+            out.write("\"/>\n");
+        }
+
+        // Axes and labels
+        out.write("<path stroke=\"#333\" fill=\"none\" d=\"M" + MARGIN_LEFT + " " + MARGIN_TOP + "V" + (MARGIN_TOP + plotH)
+                + "H" + (MARGIN_LEFT + plotW) + "\"/>\n");
+        int every = Math.max(1, (n + MAX_X_LABELS - 1) / MAX_X_LABELS);
+        for (int i = 0; i < n; i += every) {
+            double x = MARGIN_LEFT + slot * i + slot / 2;
+            double y = MARGIN_TOP + plotH + 12;
+            text(out, x, y, "end", 10, "rotate(-45 " + fmt(x) + " " + fmt(y) + ")", labels[i]);
+        }
+        text(out, MARGIN_LEFT + plotW / 2.0, height - 8, "middle", 12, null, xLabel);
+        double yMid = MARGIN_TOP + plotH / 2.0;
+        text(out, 16, yMid, "middle", 12, "rotate(-90 16 " + fmt(yMid) + ")", yLabel);
+
+        if (names != null && names.length > 1) {
+            double x = MARGIN_LEFT + plotW - 10;
+            for (int s = names.length - 1, row = 0; s >= 0; s--, row++) {
+                double y = MARGIN_TOP + 6 + row * 16;
+                out.write("<rect x=\"" + fmt(x) + "\" y=\"" + fmt(y) + "\" width=\"10\" height=\"10\" fill=\"" + color(s) + "\"/>");
+                text(out, x - 4, y + 9, "end", 11, null, names[s]);
+            }
+        }
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    private static void text(Writer out, double x, double y, String anchor, int size, String transform, String s) throws IOException {
+        out.write("<text x=\"" + fmt(x) + "\" y=\"" + fmt(y) + "\" text-anchor=\"" + anchor + "\" font-size=\"" + size + "\"");
+        if (transform != null) out.write(" transform=\"" + transform + "\"");
+        out.write('>');
+        escape(out, s == null ? "" : s);
+        out.write("</text>\n");
+    }
+
+    private static void escape(Writer out, String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<' -> out.write("&lt;");
+                case '>' -> out.write("&gt;");
+                case '&' -> out.write("&amp;");
+                case '"' -> out.write("&quot;");
+                default -> {
+                    if (c >= 0x20 || c == '\t' || c == '\n') out.write(c);
+                }
+            }
+        }
+    }
+
+    // One decimal is plenty at screen resolution and keeps the output small
+    private static String fmt(double v) {
+        long tenths = Math.round(v * 10);
+        return (tenths % 10 == 0) ? Long.toString(tenths / 10) : Double.toString(tenths / 10.0);
+    }
+
+    private static long niceStep(long max) {
+        if (max <= Y_TICKS) return 1;
+        double raw = (double) max / Y_TICKS;
+        double mag = Math.pow(10, Math.floor(Math.log10(raw)));
+        double norm = raw / mag;
+        double nice = norm <= 1 ? 1 : norm <= 2 ? 2 : norm <= 5 ? 5 : 10;
+        return Math.max(1, (long) (nice * mag));
+    }
+
+    private static final String[] PALETTE = {"#4572a7", "#aa4643", "#89a54e", "#80699b", "#3d96ae", "#db843d", "#92a8cd", "#a47d7c"};
+
+    private static String color(int s) {
+        return PALETTE[s % PALETTE.length];
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 CSV reader working directly on a byte buffer. Delimiters, line ends and quotes are located eight bytes at
+ * a time (SWAR: one {@code long} load, XOR with the byte pattern, zero-byte test), so unquoted text is skipped
+ * without a per-character branch. Quoted fields may contain commas, line breaks and doubled quotes; CRLF and LF
+ * line ends are accepted and blank lines are skipped. Nothing is decoded here: each {@link CsvRecord} holds the
+ * record's bytes and field boundaries, and fields are parsed on demand.
+ * <p>
+ * Not thread-safe; records are independent copies and may be handed to other threads.
+ */
+public final class CsvReader implements Closeable {
+    private static final VarHandle WORD = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long COMMA = ONES * ',';
+    private static final long NEWLINE = ONES * '\n';
+    private static final long QUOTE = ONES * '"';
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024; // an unterminated quote must not swallow the file
+
+    private final InputStream in;
+    private byte[] buf = new byte[64 * 1024];
+    private int pos; // start of the next record
+    private int lim;
+    private boolean eof;
+    private long discarded; // bytes dropped from the front of buf by compaction
+    private int[] bounds = new int[32];
+    private int fields;
+    private long escaped;
+
+    public CsvReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** The next record, or null at the end of the input. */
+    public CsvRecord next() throws IOException {
+        while (true) {
+            if (pos == lim && eof) return null;
+            int next = parse();
+            if (next < 0) {
+                fill();
+                continue;
+            }
+            int start = pos;
+            pos = next;
+            if (fields == 1 && buf[start] != '"' && blank(bounds[0], bounds[1])) continue;
+            int end = bounds[2 * fields - 1];
+            int[] b = Arrays.copyOf(bounds, 2 * fields);
+            for (int i = 0; i < b.length; i++) b[i] -= start;
+            return new CsvRecord(Arrays.copyOfRange(buf, start, end), b, fields, escaped);
+        }
+    }
+
+    /** Bytes of input consumed by the records returned so far. */
+    public long byteOffset() {
+        return discarded + pos;
+    }
+
+    /** Skips {@code n} bytes, e.g. to continue at a {@link #byteOffset} saved earlier; that must be a record boundary. */
+    public void skip(long n) throws IOException {
+        int buffered = (int) Math.min(n, lim - pos);
+        pos += buffered;
+        n -= buffered;
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException("Input ends before byte " + (byteOffset() + n));
+                skipped = 1;
+            }
+            discarded += skipped;
+            n -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Splits the record at pos into bounds; returns where the next record starts, or -1 if more input is needed.
+    private int parse() {
+        int p = pos;
+        fields = 0;
+        escaped = 0;
+        while (true) {
+            int start;
+            int end;
+            if (p < lim && buf[p] == '"') {
+                int q = p + 1;
+                while (true) {
+                    q = find(q, QUOTE, QUOTE);
+                    if (q < 0) return needMore(p, "Unterminated quoted field");
+                    if (q + 1 == lim && !eof) return -1; // can't tell a closing quote from a doubled one yet
+                    if (q + 1 < lim && buf[q + 1] == '"') {
+                        if (fields < 64) escaped |= 1L << fields;
+                        q += 2;
+                        continue;
+                    }
+                    break;
+                }
+                start = p + 1;
+                end = q;
+                int d = find(q + 1, COMMA, NEWLINE); // anything between the closing quote and the delimiter is dropped
+                if (d < 0 && !eof) return needMore(p, "Unterminated record");
+                p = d < 0 ? lim : d;
+            } else {
+                int d = find(p, COMMA, NEWLINE);
+                if (d < 0 && !eof) return needMore(p, "Field too long");
+                start = p;
+                end = d < 0 ? lim : d;
+                p = end;
+                if (end > start && buf[end - 1] == '\r') end--;
+            }
+            if (2 * fields + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[2 * fields] = start;
+            bounds[2 * fields + 1] = end;
+            fields++;
+            if (p < lim && buf[p] == ',') {
+                p++;
+                continue;
+            }
+            return p < lim ? p + 1 : lim;
+        }
+    }
+
+    private int needMore(int fieldStart, String problem) {
+        if (eof) throw new IllegalArgumentException(problem + " at byte " + (discarded + fieldStart));
+        if (lim - pos >= MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("CSV record at byte " + (discarded + pos) + " exceeds " + MAX_RECORD_BYTES + " bytes");
+        }
+        return -1;
+    }
+
+    // Index of the first byte equal to a or b (broadcast patterns) at or after from, or -1.
+    private int find(int from, long a, long b) {
+        int i = from;
+        for (; i + 8 <= lim; i += 8) {
+            long w = (long) WORD.get(buf, i);
+            long m = zeroBytes(w ^ a) | zeroBytes(w ^ b);
+            if (m != 0) return i + (Long.numberOfTrailingZeros(m) >>> 3);
+        }
+        for (; i < lim; i++) {
+            if (buf[i] == (byte) a || buf[i] == (byte) b) return i;
+        }
+        return -1;
+    }
+
+    // High bit set in each zero byte of v; bits above the first zero byte may be spurious, the lowest one is exact.
+    private static long zeroBytes(long v) {
+        return (v - ONES) & ~v & HIGHS;
+    }
+
+    // Compacts, grows the buffer when one record fills it, and reads more.
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, lim - pos);
+            discarded += pos;
+            lim -= pos;
+            pos = 0;
+        }
+        if (lim == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+        int n = in.read(buf, lim, buf.length - lim);
+        if (n < 0) eof = true;
+        else lim += n;
+    }
+
+    private boolean blank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] != ' ' && buf[i] != '\t' && buf[i] != '\r') return false;
+        }
+        return true;
+    }
+}
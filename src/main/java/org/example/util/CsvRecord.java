@@ -0,0 +1,195 @@
+package org.example.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * One CSV record read by {@link CsvReader}: a private copy of the record's bytes plus field boundaries, so it can be
+ * handed to another thread. Fields are views; numbers and dates are parsed straight from the bytes and only
+ * {@link #string} allocates. Blank fields read as null.
+ */
+public final class CsvRecord {
+    private final byte[] data;
+    private final int[] bounds; // start, end per field
+    private final long escaped; // bit i: field i contains doubled quotes (fields past 63 are always checked)
+    private final int size;
+
+    CsvRecord(byte[] data, int[] bounds, int size, long escaped) {
+        this.data = data;
+        this.bounds = bounds;
+        this.size = size;
+        this.escaped = escaped;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** True when the field is missing or only whitespace. */
+    public boolean isBlank(int i) {
+        if (i >= size) return true;
+        for (int p = start(i), end = end(i); p < end; p++) {
+            if (!space(data[p])) return false;
+        }
+        return true;
+    }
+
+    /** The field as text (quotes removed, doubled quotes collapsed), or null when blank. */
+    public String string(int i) {
+        if (isBlank(i)) return null;
+        int start = start(i);
+        int end = end(i);
+        if (!hasEscapes(i)) return new String(data, start, end - start, StandardCharsets.UTF_8);
+        byte[] out = new byte[end - start];
+        int n = 0;
+        for (int p = start; p < end; p++) {
+            out[n++] = data[p];
+            if (data[p] == '"' && p + 1 < end && data[p + 1] == '"') p++;
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /** Case-insensitive comparison with an ASCII constant, ignoring surrounding whitespace. */
+    public boolean equalsIgnoreCase(int i, String ascii) {
+        if (i >= size) return false;
+        int start = trimStart(i);
+        int end = trimEnd(i);
+        if (end - start != ascii.length()) return false;
+        for (int k = 0; k < ascii.length(); k++) {
+            int a = data[start + k];
+            int b = ascii.charAt(k);
+            if (a != b && (a | 0x20) != (b | 0x20)) return false;
+            if (a != b && ((a | 0x20) < 'a' || (a | 0x20) > 'z')) return false;
+        }
+        return true;
+    }
+
+    /** Null when blank; {@link NumberFormatException} when not a long. */
+    public Long getLong(int i) {
+        if (isBlank(i)) return null;
+        int p = trimStart(i);
+        int end = trimEnd(i);
+        boolean negative = data[p] == '-';
+        if (negative || data[p] == '+') p++;
+        if (p == end || end - p > 18) return Long.parseLong(string(i).trim()); // empty sign or possible overflow: let the JDK decide
+        long v = 0;
+        for (; p < end; p++) {
+            int d = data[p] - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException("For input string: \"" + string(i).trim() + "\"");
+            v = v * 10 + d;
+        }
+        return negative ? -v : v;
+    }
+
+    /** Null when blank; {@link NumberFormatException} when not an int. */
+    public Integer getInt(int i) {
+        Long v = getLong(i);
+        if (v == null) return null;
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) throw new NumberFormatException("Out of int range: " + v);
+        return v.intValue();
+    }
+
+    /** ISO {@code yyyy-MM-dd}; null when blank; {@link DateTimeParseException} otherwise. */
+    public LocalDate getDate(int i) {
+        if (isBlank(i)) return null;
+        int p = trimStart(i);
+        if (trimEnd(i) - p == 10 && data[p + 4] == '-' && data[p + 7] == '-') {
+            int y = digits(p, 4);
+            int m = digits(p + 5, 2);
+            int d = digits(p + 8, 2);
+            if (y >= 0 && m >= 0 && d >= 0) {
+                try {
+                    return LocalDate.of(y, m, d);
+                } catch (java.time.DateTimeException e) {
+                    // fall through for the standard message
+                }
+            }
+        }
+        return LocalDate.parse(string(i).trim());
+    }
+
+    /** ISO-8601 instant; {@code yyyy-MM-ddTHH:mm:ss[.fraction]Z} is parsed from the bytes, anything else by {@link Instant#parse}. */
+    public Instant getInstant(int i) {
+        if (isBlank(i)) return null;
+        int p = trimStart(i);
+        int end = trimEnd(i);
+        int len = end - p;
+        if (len >= 20 && data[end - 1] == 'Z' && data[p + 4] == '-' && data[p + 7] == '-' && (data[p + 10] == 'T' || data[p + 10] == 't')
+                && data[p + 13] == ':' && data[p + 16] == ':') {
+            int y = digits(p, 4), mo = digits(p + 5, 2), d = digits(p + 8, 2);
+            int h = digits(p + 11, 2), mi = digits(p + 14, 2), s = digits(p + 17, 2);
+            int nanos = 0;
+            boolean ok = y >= 0 && mo >= 0 && d >= 0 && h >= 0 && mi >= 0 && s >= 0;
+            if (ok && len > 20) {
+                int fracLen = len - 21;
+                ok = data[p + 19] == '.' && fracLen >= 1 && fracLen <= 9;
+                int f = ok ? digits(p + 20, fracLen) : -1;
+                ok = ok && f >= 0;
+                if (ok) {
+                    nanos = f;
+                    for (int k = fracLen; k < 9; k++) nanos *= 10;
+                }
+            }
+            if (ok && h < 24 && mi < 60 && s < 60) {
+                try {
+                    return LocalDate.of(y, mo, d).atStartOfDay(java.time.ZoneOffset.UTC).toInstant()
+                            .plusSeconds(h * 3600L + mi * 60L + s).plusNanos(nanos);
+                } catch (java.time.DateTimeException e) {
+                    // fall through for the standard message
+                }
+            }
+        }
+        return Instant.parse(string(i).trim());
+    }
+
+    private int digits(int p, int n) {
+        int v = 0;
+        for (int k = 0; k < n; k++) {
+            int d = data[p + k] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private boolean hasEscapes(int i) {
+        if (i < 64) return (escaped & (1L << i)) != 0;
+        for (int p = start(i); p < end(i); p++) if (data[p] == '"') return true;
+        return false;
+    }
+
+    private int start(int i) {
+        return bounds[2 * i];
+    }
+
+    private int end(int i) {
+        return bounds[2 * i + 1];
+    }
+
+    private int trimStart(int i) {
+        int p = start(i);
+        int end = end(i);
+        while (p < end && space(data[p])) p++;
+        return p;
+    }
+
+    private int trimEnd(int i) {
+        int p = start(i);
+        int end = end(i);
+        while (end > p && space(data[end - 1])) end--;
+        return end;
+    }
+
+    private static boolean space(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) sb.append(i > 0 ? ", " : "").append(string(i));
+        return sb.append(']').toString();
+    }
+}
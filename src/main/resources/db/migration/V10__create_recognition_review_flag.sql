@@ -0,0 +1,20 @@
+-- V10__create_recognition_review_flag.sql
+-- Review queue for recognitions flagged by the streaming fraud/gaming detector (RecognitionFraudDetector).
+-- Approvers see OPEN flags and resolve them; the recognition itself is never modified by the detector.
+
+CREATE TABLE IF NOT EXISTS recognition_review_flag (
+  id BIGSERIAL PRIMARY KEY,
+  recognition_id BIGINT REFERENCES recognitions(id) ON DELETE CASCADE,
+  sender_id BIGINT,
+  recipient_id BIGINT,
+  rule VARCHAR(50) NOT NULL,       -- PAIR_BURST | RECIPROCAL_BURST | CLIQUE_BURST
+  detail TEXT,
+  window_count INTEGER,
+  window_points INTEGER,
+  status VARCHAR(20) NOT NULL DEFAULT 'OPEN', -- OPEN | CONFIRMED | DISMISSED
+  resolved_by VARCHAR(255),
+  resolved_at TIMESTAMP WITH TIME ZONE,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_review_flag_status_created ON recognition_review_flag(status, created_at);
+CREATE INDEX IF NOT EXISTS idx_review_flag_recognition ON recognition_review_flag(recognition_id);
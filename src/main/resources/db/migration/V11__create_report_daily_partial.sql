@@ -0,0 +1,45 @@
+-- V11__create_report_daily_partial.sql
+-- Mergeable per-day report aggregates (ReportsService). Daily runs store one partial per UTC day and scope
+-- (global, unit or manager subtree); monthly/quarterly/yearly reports merge partials instead of re-reading rows.
+-- scope_id is 0 for the global scope so it can be part of the primary key.
+-- snapshot_xmin is the oldest transaction id that may have been invisible when the partial was read.
+
+CREATE TABLE IF NOT EXISTS report_daily_partial (
+  scope VARCHAR(20) NOT NULL,
+  scope_id BIGINT NOT NULL DEFAULT 0,
+  day DATE NOT NULL,
+  snapshot_xmin BIGINT NOT NULL,
+  row_count BIGINT NOT NULL DEFAULT 0,
+  payload TEXT NOT NULL,
+  computed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  PRIMARY KEY (scope, scope_id, day)
+);
+CREATE INDEX IF NOT EXISTS idx_report_partial_day ON report_daily_partial(day);
+
+-- Last transaction that touched each day's recognitions. A partial is stale when changed_txid >= its snapshot_xmin,
+-- which also covers writers that were still in flight while the partial was read.
+CREATE TABLE IF NOT EXISTS recognition_day_change (
+  day DATE PRIMARY KEY,
+  changed_txid BIGINT NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION recognition_day_change_apply() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.sent_at IS NOT NULL THEN
+    INSERT INTO recognition_day_change (day, changed_txid) VALUES ((OLD.sent_at AT TIME ZONE 'UTC')::date, txid_current())
+    ON CONFLICT (day) DO UPDATE SET changed_txid = EXCLUDED.changed_txid
+    WHERE recognition_day_change.changed_txid < EXCLUDED.changed_txid;
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.sent_at IS NOT NULL THEN
+    INSERT INTO recognition_day_change (day, changed_txid) VALUES ((NEW.sent_at AT TIME ZONE 'UTC')::date, txid_current())
+    ON CONFLICT (day) DO UPDATE SET changed_txid = EXCLUDED.changed_txid
+    WHERE recognition_day_change.changed_txid < EXCLUDED.changed_txid;
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_recognition_day_change ON recognitions;
+CREATE TRIGGER trg_recognition_day_change
+AFTER INSERT OR UPDATE OF sent_at, recognition_type_id, approval_status, award_points, sender_id, recipient_id OR DELETE ON recognitions
+FOR EACH ROW EXECUTE FUNCTION recognition_day_change_apply();
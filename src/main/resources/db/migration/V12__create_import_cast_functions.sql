@@ -0,0 +1,19 @@
+-- V12__create_import_cast_functions.sql
+-- Lenient casts used by the COPY import (CopyImportService): staged rows are plain text, and a bad value should
+-- mark its own row as rejected instead of aborting the whole set-based merge.
+
+CREATE OR REPLACE FUNCTION import_try_timestamptz(v TEXT) RETURNS TIMESTAMP WITH TIME ZONE AS $$
+BEGIN
+  RETURN v::timestamptz;
+EXCEPTION WHEN others THEN
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql STABLE;
+
+CREATE OR REPLACE FUNCTION import_try_date(v TEXT) RETURNS DATE AS $$
+BEGIN
+  RETURN v::date;
+EXCEPTION WHEN others THEN
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql STABLE;
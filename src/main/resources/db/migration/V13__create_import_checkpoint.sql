@@ -0,0 +1,28 @@
+-- V13__create_import_checkpoint.sql
+-- Import jobs (ImportJobService) that survive a restart. row_number/byte_offset are the last input position whose
+-- rows are committed; they are updated in the same transaction as the rows. content_hash (SHA-256 of the upload)
+-- lets a re-upload of the same file resume from the checkpoint, or do nothing when it already finished.
+
+CREATE TABLE IF NOT EXISTS import_checkpoint (
+  job_id VARCHAR(36) PRIMARY KEY,
+  content_hash CHAR(64) NOT NULL,
+  format VARCHAR(10) NOT NULL,
+  filename TEXT,
+  status VARCHAR(20) NOT NULL,
+  row_number BIGINT NOT NULL DEFAULT 0,
+  byte_offset BIGINT NOT NULL DEFAULT 0,
+  error TEXT,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_import_checkpoint_hash ON import_checkpoint(content_hash, format);
+
+-- Ids from the file (exported ids) -> ids the rows got here, so later rows still resolve after a resume.
+-- kind: 'E' employee, 'T' recognition type
+CREATE TABLE IF NOT EXISTS import_checkpoint_id_map (
+  job_id VARCHAR(36) NOT NULL REFERENCES import_checkpoint(job_id) ON DELETE CASCADE,
+  kind CHAR(1) NOT NULL,
+  source_id BIGINT NOT NULL,
+  target_id BIGINT NOT NULL,
+  PRIMARY KEY (job_id, kind, source_id)
+);
@@ -0,0 +1,79 @@
+-- V14__add_export_change_tracking.sql
+-- Change tracking for delta exports (GET /admin/export?since=<token>). Inserts and updates stamp the row with the
+-- writing transaction's id (change_txid) and recognitions also get updated_at; deletes leave a tombstone.
+-- A token carries the xmin of the snapshot an export was read in: rows stamped with a txid >= xmin may have been
+-- invisible to that export, so the next delta includes them again. Rows written before this migration have
+-- change_txid 0 and only appear in full exports.
+
+ALTER TABLE employee ADD COLUMN IF NOT EXISTS change_txid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE recognition_type ADD COLUMN IF NOT EXISTS change_txid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE recognitions ADD COLUMN IF NOT EXISTS change_txid BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_employee_change_txid ON employee(change_txid);
+CREATE INDEX IF NOT EXISTS idx_recognition_type_change_txid ON recognition_type(change_txid);
+CREATE INDEX IF NOT EXISTS idx_recognitions_change_txid ON recognitions(change_txid);
+
+-- Pruned after app.exports.tombstone-retention-days; older tokens are refused (full export instead).
+CREATE TABLE IF NOT EXISTS export_tombstone (
+  id BIGSERIAL PRIMARY KEY,
+  table_name VARCHAR(32) NOT NULL,
+  row_uuid UUID NOT NULL,
+  deleted_txid BIGINT NOT NULL,
+  deleted_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_export_tombstone_txid ON export_tombstone(deleted_txid);
+CREATE INDEX IF NOT EXISTS idx_export_tombstone_deleted_at ON export_tombstone(deleted_at);
+
+-- Updates that change nothing keep their stamp, so re-importing a file doesn't show up in the next delta.
+CREATE OR REPLACE FUNCTION export_change_stamp() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'UPDATE' AND NEW IS NOT DISTINCT FROM OLD THEN
+    RETURN NEW;
+  END IF;
+  NEW.change_txid := txid_current();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION recognitions_change_stamp() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'UPDATE' THEN
+    IF NEW IS NOT DISTINCT FROM OLD THEN
+      RETURN NEW;
+    END IF;
+    NEW.updated_at := now();
+  END IF;
+  NEW.change_txid := txid_current();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION export_tombstone_record() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO export_tombstone (table_name, row_uuid, deleted_txid) VALUES (TG_TABLE_NAME, OLD.uuid, txid_current());
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_employee_change_stamp ON employee;
+CREATE TRIGGER trg_employee_change_stamp BEFORE INSERT OR UPDATE ON employee
+FOR EACH ROW EXECUTE FUNCTION export_change_stamp();
+
+DROP TRIGGER IF EXISTS trg_recognition_type_change_stamp ON recognition_type;
+CREATE TRIGGER trg_recognition_type_change_stamp BEFORE INSERT OR UPDATE ON recognition_type
+FOR EACH ROW EXECUTE FUNCTION export_change_stamp();
+
+DROP TRIGGER IF EXISTS trg_recognitions_change_stamp ON recognitions;
+CREATE TRIGGER trg_recognitions_change_stamp BEFORE INSERT OR UPDATE ON recognitions
+FOR EACH ROW EXECUTE FUNCTION recognitions_change_stamp();
+
+DROP TRIGGER IF EXISTS trg_employee_tombstone ON employee;
+CREATE TRIGGER trg_employee_tombstone AFTER DELETE ON employee
+FOR EACH ROW EXECUTE FUNCTION export_tombstone_record();
+
+DROP TRIGGER IF EXISTS trg_recognition_type_tombstone ON recognition_type;
+CREATE TRIGGER trg_recognition_type_tombstone AFTER DELETE ON recognition_type
+FOR EACH ROW EXECUTE FUNCTION export_tombstone_record();
+
+DROP TRIGGER IF EXISTS trg_recognitions_tombstone ON recognitions;
+CREATE TRIGGER trg_recognitions_tombstone AFTER DELETE ON recognitions
+FOR EACH ROW EXECUTE FUNCTION export_tombstone_record();
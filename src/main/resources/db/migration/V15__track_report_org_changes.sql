@@ -0,0 +1,47 @@
+-- V15__track_report_org_changes.sql
+-- Unit and manager report partials (V11) are scoped by the org structure when they are read: an employee moving
+-- to another unit or manager changes those partials without touching any recognition, so recognition_day_change
+-- doesn't see it. The last transaction that changed unit membership or the manager hierarchy is recorded here;
+-- unit/manager partials with snapshot_xmin <= changed_txid are stale for every day. Re-orgs are rare, so the next
+-- longer-period run re-reads the window once instead of tracking which scopes and days were affected.
+
+CREATE TABLE IF NOT EXISTS report_org_change (
+  id SMALLINT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+  changed_txid BIGINT NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION report_org_change_mark() RETURNS void AS $$
+  INSERT INTO report_org_change (id, changed_txid) VALUES (1, txid_current())
+  ON CONFLICT (id) DO UPDATE SET changed_txid = EXCLUDED.changed_txid
+  WHERE report_org_change.changed_txid < EXCLUDED.changed_txid;
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION report_org_change_apply() RETURNS trigger AS $$
+BEGIN
+  PERFORM report_org_change_mark();
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_report_org_change_employee ON employee;
+CREATE TRIGGER trg_report_org_change_employee
+AFTER UPDATE OF unit_id, manager_id ON employee
+FOR EACH ROW WHEN (OLD.unit_id IS DISTINCT FROM NEW.unit_id OR OLD.manager_id IS DISTINCT FROM NEW.manager_id)
+EXECUTE FUNCTION report_org_change_apply();
+
+-- OrgHierarchyService detaches closure paths on moves, deletes and rebuilds. Paths added for a new employee only
+-- are left alone: nobody's existing recognitions change scope.
+CREATE OR REPLACE FUNCTION report_org_change_closure_apply() RETURNS trigger AS $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM removed_paths) THEN
+    PERFORM report_org_change_mark();
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_report_org_change_closure ON employee_closure;
+CREATE TRIGGER trg_report_org_change_closure
+AFTER DELETE ON employee_closure
+REFERENCING OLD TABLE AS removed_paths
+FOR EACH STATEMENT EXECUTE FUNCTION report_org_change_closure_apply();
@@ -0,0 +1,24 @@
+-- V8__create_employee_closure.sql
+-- Org-hierarchy closure table: one row per (ancestor, descendant) pair, including the (id, id, 0) self row.
+-- "Everyone under manager X" becomes an indexed lookup on ancestor_id instead of a recursive walk of manager_id.
+-- Rows are maintained by OrgHierarchyService on employee create/update/delete.
+
+CREATE TABLE IF NOT EXISTS employee_closure (
+  ancestor_id BIGINT NOT NULL REFERENCES employee(id) ON DELETE CASCADE,
+  descendant_id BIGINT NOT NULL REFERENCES employee(id) ON DELETE CASCADE,
+  depth INTEGER NOT NULL,
+  PRIMARY KEY (ancestor_id, descendant_id)
+);
+CREATE INDEX IF NOT EXISTS idx_employee_closure_descendant ON employee_closure(descendant_id, depth);
+
+-- Backfill from the existing manager_id pointers (the path array guards against cycles in legacy data)
+WITH RECURSIVE paths(ancestor_id, descendant_id, depth, path) AS (
+  SELECT id, id, 0, ARRAY[id] FROM employee
+  UNION ALL
+  SELECT p.ancestor_id, e.id, p.depth + 1, p.path || e.id
+  FROM paths p JOIN employee e ON e.manager_id = p.descendant_id
+  WHERE NOT e.id = ANY(p.path)
+)
+INSERT INTO employee_closure (ancestor_id, descendant_id, depth)
+SELECT ancestor_id, descendant_id, depth FROM paths
+ON CONFLICT (ancestor_id, descendant_id) DO NOTHING;
@@ -0,0 +1,50 @@
+-- V9__create_recognition_daily_rollup.sql
+-- Daily pre-aggregate of recognitions by the dimensions that don't depend on employee attributes.
+-- Graph queries filtered only by type/status/points/timeframe read this table instead of scanning recognitions,
+-- so their cost is bounded by the number of days, not the number of rows.
+-- NULL dimensions are stored as sentinels (type_id 0, status '') so they can be part of the primary key.
+
+CREATE TABLE IF NOT EXISTS recognition_daily_rollup (
+  day DATE NOT NULL,
+  type_id BIGINT NOT NULL,
+  status VARCHAR(50) NOT NULL,
+  award_points INTEGER NOT NULL,
+  cnt BIGINT NOT NULL DEFAULT 0,
+  points BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (day, type_id, status, award_points)
+);
+
+CREATE OR REPLACE FUNCTION recognition_daily_rollup_apply() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.sent_at IS NOT NULL THEN
+    UPDATE recognition_daily_rollup
+       SET cnt = cnt - 1, points = points - COALESCE(OLD.award_points, 0)
+     WHERE day = (OLD.sent_at AT TIME ZONE 'UTC')::date
+       AND type_id = COALESCE(OLD.recognition_type_id, 0)
+       AND status = UPPER(COALESCE(OLD.approval_status, ''))
+       AND award_points = COALESCE(OLD.award_points, 0);
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.sent_at IS NOT NULL THEN
+    INSERT INTO recognition_daily_rollup (day, type_id, status, award_points, cnt, points)
+    VALUES ((NEW.sent_at AT TIME ZONE 'UTC')::date, COALESCE(NEW.recognition_type_id, 0),
+            UPPER(COALESCE(NEW.approval_status, '')), COALESCE(NEW.award_points, 0), 1, COALESCE(NEW.award_points, 0))
+    ON CONFLICT (day, type_id, status, award_points)
+    DO UPDATE SET cnt = recognition_daily_rollup.cnt + 1, points = recognition_daily_rollup.points + EXCLUDED.points;
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_recognition_daily_rollup ON recognitions;
+CREATE TRIGGER trg_recognition_daily_rollup
+AFTER INSERT OR UPDATE OF sent_at, recognition_type_id, approval_status, award_points OR DELETE ON recognitions
+FOR EACH ROW EXECUTE FUNCTION recognition_daily_rollup_apply();
+
+-- Backfill existing rows
+INSERT INTO recognition_daily_rollup (day, type_id, status, award_points, cnt, points)
+SELECT (r.sent_at AT TIME ZONE 'UTC')::date, COALESCE(r.recognition_type_id, 0), UPPER(COALESCE(r.approval_status, '')),
+       COALESCE(r.award_points, 0), COUNT(*), COALESCE(SUM(r.award_points), 0)
+FROM recognitions r
+WHERE r.sent_at IS NOT NULL
+GROUP BY 1, 2, 3, 4
+ON CONFLICT (day, type_id, status, award_points) DO NOTHING;